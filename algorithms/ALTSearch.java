@@ -6,6 +6,8 @@ import models.*;
 public class ALTSearch {
     private final Node[] graph;
     private final Map<Integer, String> idToCoord;
+    private SearchSpaceRecorder recorder;
+    private QueryStats stats;
     private final List<Integer> landmarks;
     
     public ALTSearch(Node[] graph, Map<Integer, String> idToCoord, List<Integer> landmarks) {
@@ -14,6 +16,16 @@ public class ALTSearch {
         this.landmarks = landmarks;
     }
     
+    // Registro opcional del espacio de búsqueda; null para no registrar
+    public void setRecorder(SearchSpaceRecorder recorder) {
+        this.recorder = recorder;
+    }
+    
+    // Contadores opcionales de la consulta; null para no contar
+    public void setStats(QueryStats stats) {
+        this.stats = stats;
+    }
+    
     public static class Result {
         public List<Integer> path;
         public long distance;
@@ -40,15 +52,24 @@ public class ALTSearch {
         open.add(graph[origin]);
         
         Map<Integer, Integer> prev = new HashMap<>();
+        long searchStart = stats != null ? System.nanoTime() : 0;
+        if (stats != null) stats.pushes++;
         
         while (!open.isEmpty()) {
+            RoutingEngine.checkCancelled();
             Node current = open.poll();
             int u = current.id;
+            if (stats != null) stats.pops++;
             
             if (u == destination) break;
             
-            if (visited[u]) continue;
+            if (visited[u]) {
+                if (stats != null) stats.stalled++;
+                continue;
+            }
             visited[u] = true;
+            if (recorder != null) recorder.settled(u, true);
+            if (stats != null) stats.settled++;
             
             for (Edge edge : current.outEdges) {
                 int v = edge.to;
@@ -60,18 +81,29 @@ public class ALTSearch {
                 if (edgeWeight == Double.MAX_VALUE) {
                     continue;
                 }
+                if (stats != null) stats.relaxed++;
                 
                 long tentativeG = graph[u].distance.g + (long)edgeWeight;
                 
                 if (tentativeG < graph[v].distance.g) {
+                    if (stats != null) {
+                        stats.pushes++;
+                        if (graph[v].distance.g != Long.MAX_VALUE) stats.decreaseKeys++;
+                    }
                     graph[v].distance.g = tentativeG;
                     graph[v].distance.f = tentativeG + altHeuristic(v, destination);
                     prev.put(v, u);
                     open.add(graph[v]);
+                    if (recorder != null) recorder.relaxed(v, true);
                 }
             }
         }
         
+        long unpackStart = 0;
+        if (stats != null) {
+            unpackStart = System.nanoTime();
+            stats.searchNanos += unpackStart - searchStart;
+        }
         if (!prev.containsKey(destination)) return new Result(null, -1);
         
         // Reconstruct path
@@ -81,6 +113,7 @@ public class ALTSearch {
         }
         path.add(origin);
         Collections.reverse(path);
+        if (stats != null) stats.unpackNanos += System.nanoTime() - unpackStart;
         
         return new Result(path, graph[destination].distance.g);
     }
@@ -5,11 +5,23 @@ import models.*;
 
 public class BidirectionalSearch {
     public Node[] graph;
+    private SearchSpaceRecorder recorder;
+    private QueryStats stats;
     
     public BidirectionalSearch(Node[] graph) {
         this.graph = graph;
     }
     
+    // Registro opcional del espacio de búsqueda; null para no registrar
+    public void setRecorder(SearchSpaceRecorder recorder) {
+        this.recorder = recorder;
+    }
+    
+    // Contadores opcionales de la consulta; null para no contar
+    public void setStats(QueryStats stats) {
+        this.stats = stats;
+    }
+    
     // Nueva clase para devolver tanto la distancia como el punto de encuentro
     public class PathResult {
         public long distance;
@@ -42,18 +54,25 @@ public class BidirectionalSearch {
         
         long bestDist = Long.MAX_VALUE;
         int meetingNode = -1;
+        long searchStart = stats != null ? System.nanoTime() : 0;
+        if (stats != null) stats.pushes += 2;
         
         // Búsqueda bidireccional alternada
         while (!forwardQueue.isEmpty() || !backwardQueue.isEmpty()) {
+            RoutingEngine.checkCancelled();
             // Paso de búsqueda hacia adelante
             if (!forwardQueue.isEmpty()) {
                 Node node = forwardQueue.poll();
+                if (stats != null) stats.pops++;
                 
                 if (node.distance.forwardProcessed || node.distance.forwardDist > bestDist) {
+                    if (stats != null) stats.stalled++;
                     continue;
                 }
                 
                 node.distance.forwardProcessed = true;
+                if (recorder != null) recorder.settled(node.id, true);
+                if (stats != null) stats.settled++;
                 
                 if (node.distance.backwardQueryId == queryId) {
                     long totalDist = node.distance.forwardDist + node.distance.backwardDist;
@@ -84,12 +103,16 @@ public class BidirectionalSearch {
             // Paso de búsqueda hacia atrás
             if (!backwardQueue.isEmpty()) {
                 Node node = backwardQueue.poll();
+                if (stats != null) stats.pops++;
                 
                 if (node.distance.backwardProcessed || node.distance.backwardDist > bestDist) {
+                    if (stats != null) stats.stalled++;
                     continue;
                 }
                 
                 node.distance.backwardProcessed = true;
+                if (recorder != null) recorder.settled(node.id, false);
+                if (stats != null) stats.settled++;
                 
                 if (node.distance.forwardQueryId == queryId) {
                     long totalDist = node.distance.forwardDist + node.distance.backwardDist;
@@ -118,6 +141,7 @@ public class BidirectionalSearch {
             }
         }
         
+        if (stats != null) stats.searchNanos += System.nanoTime() - searchStart;
         return new PathResult(bestDist == Long.MAX_VALUE ? -1 : bestDist, meetingNode);
     }
     
@@ -130,26 +154,37 @@ public class BidirectionalSearch {
         if (edgeWeight == Double.MAX_VALUE) {
             return; // Do not use prohibited routes
         }
+        if (stats != null) stats.relaxed++;
         
         long edgeWeightLong = (long) edgeWeight;
         
         if (forward) {
             long newDist = current.distance.forwardDist + edgeWeightLong;
             if (neighbor.distance.forwardQueryId != queryId || newDist < neighbor.distance.forwardDist) {
+                if (stats != null) {
+                    stats.pushes++;
+                    if (neighbor.distance.forwardQueryId == queryId) stats.decreaseKeys++;
+                }
                 queue.remove(neighbor);
                 neighbor.distance.forwardDist = newDist;
                 neighbor.distance.forwardQueryId = queryId;
                 neighbor.distance.forwardPredecessor = current.id; // Guardar predecesor
                 queue.add(neighbor);
+                if (recorder != null) recorder.relaxed(neighbor.id, true);
             }
         } else {
             long newDist = current.distance.backwardDist + edgeWeightLong;
             if (neighbor.distance.backwardQueryId != queryId || newDist < neighbor.distance.backwardDist) {
+                if (stats != null) {
+                    stats.pushes++;
+                    if (neighbor.distance.backwardQueryId == queryId) stats.decreaseKeys++;
+                }
                 queue.remove(neighbor);
                 neighbor.distance.backwardDist = newDist;
                 neighbor.distance.backwardQueryId = queryId;
                 neighbor.distance.backwardPredecessor = current.id; // Guardar predecesor
                 queue.add(neighbor);
+                if (recorder != null) recorder.relaxed(neighbor.id, false);
             }
         }
     }
@@ -157,6 +192,7 @@ public class BidirectionalSearch {
     // Método para reconstruir la ruta desde los predecesores - VERSIÓN CORREGIDA
     public List<Integer> reconstructPath(int source, int target, int meetingNode) {
         if (meetingNode == -1) return new ArrayList<>();
+        long unpackStart = stats != null ? System.nanoTime() : 0;
         
         List<Integer> forwardPath = new ArrayList<>();
         List<Integer> backwardPath = new ArrayList<>();
@@ -198,6 +234,7 @@ public class BidirectionalSearch {
         }
         
         forwardPath.addAll(backwardPath);
+        if (stats != null) stats.unpackNanos += System.nanoTime() - unpackStart;
         return forwardPath;
     }
     
@@ -215,16 +252,26 @@ public class BidirectionalSearch {
         pq.offer(new int[]{source, 0});
         
         boolean[] visited = new boolean[graph.length];
+        long searchStart = stats != null ? System.nanoTime() : 0;
+        if (stats != null) stats.pushes++;
         
         while (!pq.isEmpty()) {
+            RoutingEngine.checkCancelled();
             int[] current = pq.poll();
             int nodeId = current[0];
             long dist = current[1];
+            if (stats != null) stats.pops++;
             
-            if (visited[nodeId]) continue;
+            if (visited[nodeId]) {
+                if (stats != null) stats.stalled++;
+                continue;
+            }
             visited[nodeId] = true;
+            if (recorder != null) recorder.settled(nodeId, true);
+            if (stats != null) stats.settled++;
             
             if (nodeId == target) {
+                if (stats != null) stats.searchNanos += System.nanoTime() - searchStart;
                 // Found target, set up predecessor info for reconstruction
                 for (int i = 0; i < graph.length; i++) {
                     if (predecessors[i] != -1) {
@@ -244,17 +291,24 @@ public class BidirectionalSearch {
                     if (edgeWeight == Double.MAX_VALUE) {
                         continue;
                     }
+                    if (stats != null) stats.relaxed++;
                     
                     long newDist = dist + (long)edgeWeight;
                     if (newDist < distances[edge.to]) {
+                        if (stats != null) {
+                            stats.pushes++;
+                            if (distances[edge.to] != Long.MAX_VALUE) stats.decreaseKeys++;
+                        }
                         distances[edge.to] = newDist;
                         predecessors[edge.to] = nodeId;
+                        if (recorder != null) recorder.relaxed(edge.to, true);
                         pq.offer(new int[]{edge.to, (int)newDist});
                     }
                 }
             }
         }
         
+        if (stats != null) stats.searchNanos += System.nanoTime() - searchStart;
         return new PathResult(-1, -1); // No path found
     }
     
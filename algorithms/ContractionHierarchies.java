@@ -1,6 +1,8 @@
 package algorithms;
 
 import java.util.*;
+import metrics.MetricsRegistry;
+import metrics.RoutingEvents;
 import models.*;
 
 public class ContractionHierarchies {
@@ -9,29 +11,67 @@ public class ContractionHierarchies {
     // CCH-related fields
     private VehicleProfile currentProfile = VehicleProfile.VEHICULOS;
     private boolean weightsCustomized = false;
+    private volatile boolean recordMetrics = true;
     
     // OPTIMIZACIÓN SEGURA 1: Tracking de nodos en cola sin queue.remove()
     private boolean[] inQueue;
     private long[] lastImportanceUpdate;
     
+    /**
+     * Node ordering used by preprocess. DEFAULT is the original importance
+     * (edge difference, degree and contracted neighbours); the others use a
+     * single term and are kept to compare orderings.
+     */
+    public enum OrderingStrategy { DEFAULT, EDGE_DIFFERENCE, DEGREE }
+    
+    // Nodos por evento de JFR: uno por nodo saturaría la grabación
+    private static final int CONTRACTION_BATCH = 1000;
+    
+    private OrderingStrategy orderingStrategy = OrderingStrategy.DEFAULT;
+    private PreprocessingStats stats = new PreprocessingStats();
+    
     public ContractionHierarchies(Node[] graph) {
         this.graph = graph;
         this.inQueue = new boolean[graph.length];
         this.lastImportanceUpdate = new long[graph.length];
     }
     
+    public void setOrderingStrategy(OrderingStrategy orderingStrategy) {
+        this.orderingStrategy = orderingStrategy;
+    }
+    
+    public OrderingStrategy getOrderingStrategy() {
+        return orderingStrategy;
+    }
+    
+    /** Phase timings and counters of the last preprocess run. */
+    public PreprocessingStats getPreprocessingStats() {
+        return stats;
+    }
+    
     // Main method to perform the contraction
     public void preprocess() {
         PriorityQueue<Node> queue = new PriorityQueue<>(graph.length, new ImportanceComparator());
+        stats = new PreprocessingStats();
+        stats.strategy = orderingStrategy;
+        stats.nodes = graph.length;
+        for (Node node : graph) stats.originalEdges += node.outEdges.size();
+        long startNanos = System.nanoTime();
         
         // Initial importance calculation
         long startTime = System.currentTimeMillis();
         for (int i = 0; i < graph.length; i++) {
-            graph[i].computeImportance();
+            computeImportance(graph[i]);
             queue.add(graph[i]);
             inQueue[i] = true;
             lastImportanceUpdate[i] = startTime;
         }
+        stats.initialOrderingMs = (System.nanoTime() - startNanos) / 1e6;
+        long contractionNanos = 0, updateNanos = 0;
+        // Contadores del lote en curso; se copian al evento solo si se va a registrar
+        RoutingEvents.ContractionBatch batch = null;
+        int batchFirstLevel = 0, batchNodes = 0, batchShortcuts = 0;
+        long batchWitnessStart = 0;
         
         int level = 0;
         int totalNodes = graph.length;
@@ -46,7 +86,7 @@ public class ContractionHierarchies {
             long currentTime = System.currentTimeMillis();
             if (currentTime - lastImportanceUpdate[node.id] > 50) { // Cada 50ms
                 long oldImportance = node.importance;
-                node.computeImportance();
+                computeImportance(node);
                 lastImportanceUpdate[node.id] = currentTime;
                 
                 // Si la importancia cambió significativamente, reinsertarlo SOLO si hay otros nodos
@@ -54,13 +94,27 @@ public class ContractionHierarchies {
                     if (node.importance > queue.peek().importance) {
                         queue.add(node);
                         inQueue[node.id] = true;
+                        stats.lazyReinsertions++;
                         continue;
                     }
                 }
             }
             
             // Contract the node
-            contractNode(node);
+            if (batch == null) {
+                batch = new RoutingEvents.ContractionBatch();
+                batchFirstLevel = level;
+                batchNodes = 0;
+                batchShortcuts = 0;
+                batchWitnessStart = stats.witnessSearches;
+                batch.begin();
+            }
+            long phaseStart = System.nanoTime();
+            int added = contractNode(node);
+            contractionNanos += System.nanoTime() - phaseStart;
+            stats.shortcutsAdded += added;
+            batchNodes++;
+            batchShortcuts += added;
             node.contracted = true;
             node.level = level++;
             
@@ -74,14 +128,53 @@ public class ContractionHierarchies {
             }
             
             // OPTIMIZACIÓN SEGURA: Update neighbors sin queue.remove()
+            phaseStart = System.nanoTime();
             updateNeighborsImportanceOptimized(node, queue);
+            updateNanos += System.nanoTime() - phaseStart;
+            
+            if (batchNodes == CONTRACTION_BATCH) {
+                commitBatch(batch, batchFirstLevel, batchNodes, batchShortcuts, batchWitnessStart);
+                batch = null;
+            }
         }
+        if (batch != null) commitBatch(batch, batchFirstLevel, batchNodes, batchShortcuts, batchWitnessStart);
         
+        stats.contractionMs = contractionNanos / 1e6;
+        stats.neighborUpdateMs = updateNanos / 1e6;
+        stats.totalMs = (System.nanoTime() - startNanos) / 1e6;
+        MetricsRegistry.global().histogram("load.preprocess").recordSince(startNanos);
+        MetricsRegistry.global().counter("load.shortcuts").add(stats.shortcutsAdded);
         long totalTime = (System.currentTimeMillis() - startTime) / 1000;
-        System.out.printf("Preprocessing completed in %d seconds\n", totalTime);
+        System.out.printf("Preprocessing completed in %d seconds (%d shortcuts added)\n", totalTime, stats.shortcutsAdded);
+    }
+    
+    private void commitBatch(RoutingEvents.ContractionBatch batch, int firstLevel, int nodes, int shortcuts,
+                             long witnessStart) {
+        if (batch.shouldCommit()) {
+            batch.firstLevel = firstLevel;
+            batch.nodes = nodes;
+            batch.shortcuts = shortcuts;
+            batch.witnessSearches = stats.witnessSearches - witnessStart;
+            batch.commit();
+        }
+    }
+    
+    private void computeImportance(Node node) {
+        node.computeImportance();
+        switch (orderingStrategy) {
+            case EDGE_DIFFERENCE:
+                node.importance = node.edgeDiff;
+                break;
+            case DEGREE:
+                node.importance = node.shortcutCount;
+                break;
+            default:
+                break;
+        }
     }
     
-    private void contractNode(Node node) {
+    // Devuelve la cantidad de shortcuts agregados
+    private int contractNode(Node node) {
         // OPTIMIZACIÓN SEGURA 3: Crear copias para evitar ConcurrentModificationException
         List<Edge> inEdgesCopy = new ArrayList<>(node.inEdges);
         List<Edge> outEdgesCopy = new ArrayList<>(node.outEdges);
@@ -100,16 +193,22 @@ public class ContractionHierarchies {
                 
                 // Check if this is the shortest path or if there's a witness path
                 long directDist = (long)inEdge.getCustomWeight() + (long)outEdge.getCustomWeight();
-                if (isShortestPathOptimized(inEdge.from, outEdge.to, directDist, node.id)) {
+                long witnessStart = System.nanoTime();
+                boolean needed = isShortestPathOptimized(inEdge.from, outEdge.to, directDist, node.id);
+                stats.witnessSearchMs += (System.nanoTime() - witnessStart) / 1e6;
+                stats.witnessSearches++;
+                if (needed) {
                     // Create shortcut with combined street name
                     String combinedStreet = inEdge.streetName + " -> " + outEdge.streetName;
                     Edge shortcut = new Edge(inEdge.from, outEdge.to, directDist, combinedStreet);
+                    shortcut.setShortcut(true);
                     graph[inEdge.from].outEdges.add(shortcut);
                     graph[outEdge.to].inEdges.add(shortcut);
                     shortcutCount++;
                 }
             }
         }
+        return shortcutCount;
     }
     
     // OPTIMIZACIÓN SEGURA 2: Usar arrays en lugar de HashMap
@@ -135,6 +234,7 @@ public class ContractionHierarchies {
             nodesExplored++;
             
             if (current.nodeId == to) {
+                stats.witnessNodesExplored += nodesExplored;
                 return current.distance >= shortcutDist; // If true, shortcut is needed
             }
             
@@ -163,6 +263,7 @@ public class ContractionHierarchies {
             hopCount++;
         }
         
+        stats.witnessNodesExplored += nodesExplored;
         return true; // Couldn't find a witness path, shortcut needed
     }
             
@@ -195,7 +296,7 @@ public class ContractionHierarchies {
             
             // Solo agregar a la cola si no está ya presente
             if (!inQueue[neighborId]) {
-                neighbor.computeImportance();
+                computeImportance(neighbor);
                 queue.add(neighbor);
                 inQueue[neighborId] = true;
                 lastImportanceUpdate[neighborId] = System.currentTimeMillis();
@@ -226,6 +327,9 @@ public class ContractionHierarchies {
         
         System.out.println("Customizing weights for profile: " + profile);
         long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        RoutingEvents.Customization event = new RoutingEvents.Customization();
+        event.begin();
         
         // Update all edge weights based on the profile
         int edgeCount = 0;
@@ -240,10 +344,28 @@ public class ContractionHierarchies {
         }
         
         long endTime = System.currentTimeMillis();
+        if (recordMetrics) {
+            MetricsRegistry.global().histogram("customization." + profile.name()).recordSince(startNanos);
+            MetricsRegistry.global().counter("customization.count").increment();
+        }
+        if (recordMetrics && event.shouldCommit()) {
+            event.profile = profile.name();
+            event.edges = edgeCount;
+            event.commit();
+        }
         System.out.println("Weight customization completed in " + (endTime - startTime) + "ms");
         System.out.println("Updated " + edgeCount + " edges for profile: " + profile);
     }
     
+    /**
+     * Whether customizations record metrics and JFR events. Turned off while
+     * warming up, which switches profiles many times on synthetic traffic.
+     * @param recordMetrics False to customize without recording
+     */
+    public void setRecordMetrics(boolean recordMetrics) {
+        this.recordMetrics = recordMetrics;
+    }
+    
     /**
      * Gets the current vehicle profile
      * @return The current vehicle profile
@@ -5,11 +5,23 @@ import models.*;
 
 public class DijkstraSearch {
     private final Node[] graph;
+    private SearchSpaceRecorder recorder;
+    private QueryStats stats;
     
     public DijkstraSearch(Node[] graph) {
         this.graph = graph;
     }
     
+    // Registro opcional del espacio de búsqueda; null para no registrar
+    public void setRecorder(SearchSpaceRecorder recorder) {
+        this.recorder = recorder;
+    }
+    
+    // Contadores opcionales de la consulta; null para no contar
+    public void setStats(QueryStats stats) {
+        this.stats = stats;
+    }
+    
     public static class Result {
         public List<Integer> path;
         public long distance;
@@ -35,22 +47,36 @@ public class DijkstraSearch {
         pq.offer(new int[]{origin, 0});
         
         boolean[] visited = new boolean[graph.length];
+        long searchStart = stats != null ? System.nanoTime() : 0;
+        if (stats != null) stats.pushes++;
         
         while (!pq.isEmpty()) {
             int[] current = pq.poll();
             int nodeId = current[0];
             long dist = current[1];
+            if (stats != null) stats.pops++;
             
-            if (visited[nodeId]) continue;
+            if (visited[nodeId]) {
+                if (stats != null) stats.stalled++;
+                continue;
+            }
             visited[nodeId] = true;
+            if (recorder != null) recorder.settled(nodeId, true);
+            if (stats != null) stats.settled++;
             
             if (nodeId == destination) {
+                long unpackStart = 0;
+                if (stats != null) {
+                    unpackStart = System.nanoTime();
+                    stats.searchNanos += unpackStart - searchStart;
+                }
                 // Reconstruct path
                 List<Integer> path = new ArrayList<>();
                 for (int at = destination; at != -1; at = predecessors[at]) {
                     path.add(at);
                 }
                 Collections.reverse(path);
+                if (stats != null) stats.unpackNanos += System.nanoTime() - unpackStart;
                 return new Result(path, dist);
             }
             
@@ -63,17 +89,24 @@ public class DijkstraSearch {
                     if (edgeWeight == Double.MAX_VALUE) {
                         continue;
                     }
+                    if (stats != null) stats.relaxed++;
                     
                     long newDist = dist + (long)edgeWeight;
                     if (newDist < distances[edge.to]) {
+                        if (stats != null) {
+                            stats.pushes++;
+                            if (distances[edge.to] != Long.MAX_VALUE) stats.decreaseKeys++;
+                        }
                         distances[edge.to] = newDist;
                         predecessors[edge.to] = nodeId;
+                        if (recorder != null) recorder.relaxed(edge.to, true);
                         pq.offer(new int[]{edge.to, (int)newDist});
                     }
                 }
             }
         }
         
+        if (stats != null) stats.searchNanos += System.nanoTime() - searchStart;
         return new Result(null, -1); // No path found
     }
 }
@@ -0,0 +1,166 @@
+package algorithms;
+
+import java.util.*;
+import graph.ConcaveHull;
+import graph.PolylineStore;
+import models.*;
+
+/**
+ * Budgeted one-to-all search: everything reachable from an origin within a
+ * distance or time budget. The search context is kept between calls so that
+ * repeated isochrones reuse warm arrays instead of reallocating them.
+ */
+public class IsochroneSearch {
+    public enum BudgetType { METERS, SECONDS }
+
+    private static final double METERS_PER_DEGREE = 111_000;
+
+    private final Node[] graph;
+    private final double[] lon;
+    private final double[] lat;
+    private final PolylineStore geometry;
+    private final SearchContext context;
+
+    public IsochroneSearch(Node[] graph, double[] nodeLon, double[] nodeLat) {
+        this(graph, nodeLon, nodeLat, null);
+    }
+
+    public IsochroneSearch(Node[] graph, double[] nodeLon, double[] nodeLat, PolylineStore geometry) {
+        this.graph = graph;
+        this.lon = nodeLon;
+        this.lat = nodeLat;
+        this.geometry = geometry;
+        this.context = new SearchContext(graph.length);
+    }
+
+    // Arista alcanzada solo en parte: el presupuesto se agota antes de llegar a 'to'
+    public static class BoundaryEdge {
+        public Edge edge;
+        public double fraction;
+        public double lon;
+        public double lat;
+
+        public BoundaryEdge(Edge edge, double fraction, double lon, double lat) {
+            this.edge = edge;
+            this.fraction = fraction;
+            this.lon = lon;
+            this.lat = lat;
+        }
+    }
+
+    public static class Result {
+        public int origin;
+        public long budgetMeters;
+        public List<Integer> reachedNodes;
+        public List<BoundaryEdge> boundaryEdges;
+        public List<double[]> polygon; // {lon, lat} en sentido antihorario
+
+        public Result(int origin, long budgetMeters, List<Integer> reachedNodes,
+                      List<BoundaryEdge> boundaryEdges, List<double[]> polygon) {
+            this.origin = origin;
+            this.budgetMeters = budgetMeters;
+            this.reachedNodes = reachedNodes;
+            this.boundaryEdges = boundaryEdges;
+            this.polygon = polygon;
+        }
+    }
+
+    /**
+     * Computes the isochrone of an origin for the profile the graph is currently
+     * customized for (prohibited edges are skipped).
+     * @param budget Budget in metres or seconds depending on the budget type
+     * @param type Whether the budget is a distance or a travel time
+     * @param profile Profile used to turn a time budget into metres
+     */
+    public Result compute(int origin, double budget, BudgetType type, VehicleProfile profile) {
+        long budgetMeters = (long) (type == BudgetType.SECONDS ? budget * profile.getSpeedMps() : budget);
+
+        List<Integer> reached = new ArrayList<>();
+        List<BoundaryEdge> boundary = new ArrayList<>();
+
+        context.reset();
+        context.relax(origin, 0, -1);
+
+        while (!context.isHeapEmpty()) {
+            RoutingEngine.checkCancelled();
+            int u = context.poll();
+            long du = context.getDist(u);
+            reached.add(u);
+
+            for (Edge edge : graph[u].outEdges) {
+                if (edge.isShortcut() || edge.isProhibited()) continue;
+
+                long newDist = du + edge.weight;
+                if (newDist <= budgetMeters) {
+                    context.relax(edge.to, newDist, u);
+                } else if (edge.weight > 0) {
+                    double fraction = (budgetMeters - du) / (double) edge.weight;
+                    double cutLon, cutLat;
+                    if (geometry != null && edge.getGeometryId() >= 0) {
+                        // Sobre la polilínea real: las cadenas colapsadas pueden ser largas y curvas
+                        double[] cut = geometry.interpolate(edge.getGeometryId(), edge.isGeometryReversed(), fraction);
+                        cutLon = cut[0];
+                        cutLat = cut[1];
+                    } else {
+                        cutLon = lon[u] + (lon[edge.to] - lon[u]) * fraction;
+                        cutLat = lat[u] + (lat[edge.to] - lat[u]) * fraction;
+                    }
+                    boundary.add(new BoundaryEdge(edge, fraction, cutLon, cutLat));
+                }
+            }
+        }
+
+        List<double[]> polygon = buildPolygon(origin, reached, boundary, budgetMeters);
+        return new Result(origin, budgetMeters, reached, boundary, polygon);
+    }
+
+    /**
+     * Returns the distance in metres of a node from the origin of the last
+     * computed isochrone, or Long.MAX_VALUE if it was not reached.
+     */
+    public long getReachedDistance(int node) {
+        return context.isSettled(node) ? context.getDist(node) : Long.MAX_VALUE;
+    }
+
+    private List<double[]> buildPolygon(int origin, List<Integer> reached, List<BoundaryEdge> boundary,
+                                        long budgetMeters) {
+        int total = reached.size() + boundary.size();
+        double cosLat = Math.cos(Math.toRadians(lat[origin]));
+        double maxEdgeLength = Math.max(80.0, budgetMeters * 0.1);
+        double cellSize = maxEdgeLength / 3;
+
+        // Proyección local en metros y reducción a un punto por celda de grilla
+        double[] xs = new double[total];
+        double[] ys = new double[total];
+        double[] lons = new double[total];
+        double[] lats = new double[total];
+        Set<Long> usedCells = new HashSet<>();
+        int n = 0;
+        for (int i = 0; i < total; i++) {
+            double pLon, pLat;
+            if (i < reached.size()) {
+                pLon = lon[reached.get(i)];
+                pLat = lat[reached.get(i)];
+            } else {
+                BoundaryEdge cut = boundary.get(i - reached.size());
+                pLon = cut.lon;
+                pLat = cut.lat;
+            }
+            double x = pLon * cosLat * METERS_PER_DEGREE;
+            double y = pLat * METERS_PER_DEGREE;
+            long cell = ((long) Math.floor(x / cellSize) << 32) ^ ((long) Math.floor(y / cellSize) & 0xffffffffL);
+            if (!usedCells.add(cell)) continue;
+            xs[n] = x;
+            ys[n] = y;
+            lons[n] = pLon;
+            lats[n] = pLat;
+            n++;
+        }
+
+        List<double[]> polygon = new ArrayList<>();
+        for (int index : ConcaveHull.compute(xs, ys, n, maxEdgeLength)) {
+            polygon.add(new double[]{lons[index], lats[index]});
+        }
+        return polygon;
+    }
+}
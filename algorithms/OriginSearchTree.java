@@ -0,0 +1,133 @@
+package algorithms;
+
+import java.util.*;
+import models.*;
+
+/**
+ * Resumable one-to-all Dijkstra from a single origin over the customized
+ * weights (original edges only, prohibited edges skipped). The tree can be
+ * grown speculatively before a destination is known and is kept in its
+ * search context afterwards: a destination already settled is a lookup, any
+ * other one continues the same search from where it stopped.
+ */
+public class OriginSearchTree {
+    private final Node[] graph;
+    private final SearchContext context;
+    private int origin = -1;
+    private int settledCount;
+    private QueryStats stats;
+
+    public OriginSearchTree(Node[] graph) {
+        this.graph = graph;
+        this.context = new SearchContext(graph.length);
+    }
+
+    /**
+     * Discards the current tree and starts a new one at the origin.
+     */
+    public void start(int origin) {
+        this.origin = origin;
+        this.settledCount = 0;
+        context.reset();
+        context.relax(origin, 0, -1);
+    }
+
+    // Contadores opcionales de la consulta en curso; null para no contar
+    public void setStats(QueryStats stats) {
+        this.stats = stats;
+    }
+
+    public int getOrigin() {
+        return origin;
+    }
+
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    public boolean isComplete() {
+        return origin != -1 && context.isHeapEmpty();
+    }
+
+    public boolean isSettled(int node) {
+        return origin != -1 && context.isSettled(node);
+    }
+
+    /**
+     * Expands the tree until the target is settled, or until it is exhausted
+     * when target is -1. Cancellation is checked between nodes, so an
+     * interrupted expansion leaves a consistent tree that can be resumed.
+     * @return true if the target is settled (always false for -1)
+     */
+    public boolean expandUntil(int target) {
+        if (target != -1 && isSettled(target)) return true;
+        long searchStart = stats != null ? System.nanoTime() : 0;
+
+        try {
+            while (!context.isHeapEmpty()) {
+                RoutingEngine.checkCancelled();
+                int u = context.poll();
+                settledCount++;
+                long du = context.getDist(u);
+                if (stats != null) {
+                    stats.pops++;
+                    stats.settled++;
+                }
+
+                for (Edge edge : graph[u].outEdges) {
+                    if (edge.isShortcut() || edge.isProhibited()) continue;
+                    if (stats == null) {
+                        context.relax(edge.to, du + (long) edge.getCustomWeight(), u);
+                        continue;
+                    }
+                    // Heap indexado: mejorar un nodo ya alcanzado es un decrease-key, no un push
+                    stats.relaxed++;
+                    boolean reached = context.isReached(edge.to);
+                    if (context.relax(edge.to, du + (long) edge.getCustomWeight(), u)) {
+                        if (reached) stats.decreaseKeys++;
+                        else stats.pushes++;
+                    }
+                }
+
+                if (u == target) return true;
+            }
+            return false;
+        } finally {
+            if (stats != null) stats.searchNanos += System.nanoTime() - searchStart;
+        }
+    }
+
+    /**
+     * Records the tree as it stands: settled nodes and the frontier. The tree
+     * outlives single queries, so this is its search space so far.
+     */
+    public void recordTo(SearchSpaceRecorder recorder) {
+        if (origin == -1) return;
+        for (int node = 0; node < graph.length; node++) {
+            if (context.isSettled(node)) recorder.settled(node, true);
+            if (context.isReached(node)) recorder.relaxed(node, true);
+        }
+    }
+
+    /**
+     * @return distance to a settled node, or -1 if it is not settled
+     */
+    public long getDistance(int node) {
+        return isSettled(node) ? context.getDist(node) : -1;
+    }
+
+    /**
+     * @return node ids from the origin to a settled node, or null if it is not settled
+     */
+    public List<Integer> getPath(int node) {
+        if (!isSettled(node)) return null;
+        long unpackStart = stats != null ? System.nanoTime() : 0;
+        List<Integer> path = new ArrayList<>();
+        for (int at = node; at != -1; at = context.getPredecessor(at)) {
+            path.add(at);
+        }
+        Collections.reverse(path);
+        if (stats != null) stats.unpackNanos += System.nanoTime() - unpackStart;
+        return path;
+    }
+}
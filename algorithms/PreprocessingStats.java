@@ -0,0 +1,40 @@
+package algorithms;
+
+/**
+ * Figures collected by the last ContractionHierarchies.preprocess run:
+ * time spent in each phase and the work done by the contraction. The
+ * contraction phase includes the witness searches, which are also timed
+ * on their own.
+ */
+public class PreprocessingStats {
+    public ContractionHierarchies.OrderingStrategy strategy;
+    public int nodes;
+    public int originalEdges;
+    public int shortcutsAdded;
+
+    // Tiempos por fase en milisegundos
+    public double initialOrderingMs;
+    public double contractionMs;
+    public double witnessSearchMs;
+    public double neighborUpdateMs;
+    public double totalMs;
+
+    public long witnessSearches;
+    public long witnessNodesExplored;
+    public int lazyReinsertions;
+
+    public double edgesPerNode() {
+        return nodes == 0 ? 0 : (originalEdges + shortcutsAdded) / (double) nodes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(java.util.Locale.ROOT,
+            "%s: %d nodes, %d edges + %d shortcuts (%.2f edges/node), total %.0f ms "
+            + "(ordering %.0f, contraction %.0f of which witness %.0f, updates %.0f), "
+            + "%d witness searches, %d reinsertions",
+            strategy, nodes, originalEdges, shortcutsAdded, edgesPerNode(), totalMs,
+            initialOrderingMs, contractionMs, witnessSearchMs, neighborUpdateMs,
+            witnessSearches, lazyReinsertions);
+    }
+}
@@ -0,0 +1,104 @@
+package algorithms;
+
+import java.util.*;
+import graph.GraphSimplifier;
+import models.*;
+
+/**
+ * Fixed, seeded origin/destination pairs bucketed by Dijkstra rank: the
+ * position at which the destination is settled by a Dijkstra from the
+ * origin. Buckets are fractions of the nodes reachable from each origin, so
+ * they keep their meaning on graphs of any size. Ranks use the weights the
+ * graph is customized with when the set is built. The buckets are
+ * contiguous, so every trip length is sampled.
+ */
+public class QuerySet {
+    public enum Bucket {
+        SHORT(0, 1.0 / 64),
+        MEDIUM(1.0 / 64, 1.0 / 8),
+        LONG(1.0 / 8, 1.0);
+
+        final double minFraction;
+        final double maxFraction;
+
+        Bucket(double minFraction, double maxFraction) {
+            this.minFraction = minFraction;
+            this.maxFraction = maxFraction;
+        }
+    }
+
+    private final Map<Bucket, int[][]> pairs = new EnumMap<>(Bucket.class);
+
+    private QuerySet() {
+    }
+
+    /**
+     * Builds pairsPerBucket pairs per bucket. Origins are drawn from the
+     * nodes left after simplification; one destination per bucket is drawn
+     * from each origin's settle order.
+     */
+    public static QuerySet build(Node[] graph, int pairsPerBucket, long seed) {
+        QuerySet set = new QuerySet();
+        Map<Bucket, List<int[]>> lists = new EnumMap<>(Bucket.class);
+        for (Bucket bucket : Bucket.values()) lists.put(bucket, new ArrayList<>());
+
+        List<Integer> candidates = new ArrayList<>();
+        for (int id = 0; id < graph.length; id++) {
+            if (!GraphSimplifier.isRemoved(graph[id])) candidates.add(id);
+        }
+
+        Random random = new Random(seed);
+        SearchContext context = new SearchContext(graph.length);
+        int[] order = new int[graph.length];
+        int attempts = 0;
+
+        while (!isFull(lists, pairsPerBucket) && attempts++ < pairsPerBucket * 100) {
+            int origin = candidates.get(random.nextInt(candidates.size()));
+            int reached = settleOrder(graph, context, origin, order);
+            // Orígenes casi aislados no dan viajes largos
+            if (reached < 64) continue;
+
+            for (Bucket bucket : Bucket.values()) {
+                List<int[]> list = lists.get(bucket);
+                if (list.size() >= pairsPerBucket) continue;
+                int from = Math.max(1, (int) (bucket.minFraction * reached));
+                int to = Math.max(from + 1, (int) (bucket.maxFraction * reached));
+                int rank = from + random.nextInt(Math.min(to, reached) - from);
+                list.add(new int[]{origin, order[rank]});
+            }
+        }
+
+        for (Bucket bucket : Bucket.values()) {
+            set.pairs.put(bucket, lists.get(bucket).toArray(new int[0][]));
+        }
+        return set;
+    }
+
+    private static boolean isFull(Map<Bucket, List<int[]>> lists, int pairsPerBucket) {
+        for (List<int[]> list : lists.values()) {
+            if (list.size() < pairsPerBucket) return false;
+        }
+        return true;
+    }
+
+    // Dijkstra completo sobre aristas originales; devuelve cuántos nodos asentó
+    private static int settleOrder(Node[] graph, SearchContext context, int origin, int[] order) {
+        context.reset();
+        context.relax(origin, 0, -1);
+        int count = 0;
+        while (!context.isHeapEmpty()) {
+            int u = context.poll();
+            order[count++] = u;
+            long du = context.getDist(u);
+            for (Edge edge : graph[u].outEdges) {
+                if (edge.isShortcut() || edge.isProhibited()) continue;
+                context.relax(edge.to, du + (long) edge.getCustomWeight(), u);
+            }
+        }
+        return count;
+    }
+
+    public int[][] getPairs(Bucket bucket) {
+        return pairs.get(bucket);
+    }
+}
@@ -0,0 +1,59 @@
+package algorithms;
+
+import java.util.Locale;
+
+/**
+ * Work counters of a query, filled by the searches when one is attached
+ * (setStats). Counting is a null check plus a field increment, cheap enough
+ * to leave on for sampled production queries. Counters accumulate, so a
+ * search that falls back to another one adds both.
+ *
+ * - settled: nodes expanded for good
+ * - relaxed: non-prohibited edges scanned from settled nodes
+ * - pushes / pops: heap insertions and removals
+ * - decreaseKeys: improvements of a node already in the heap (lazy heaps
+ *   count them as a push too)
+ * - stalled: pops discarded without expanding (stale entries, nodes already
+ *   settled or beyond the best distance found)
+ */
+public class QueryStats {
+    public long settled;
+    public long relaxed;
+    public long pushes;
+    public long pops;
+    public long decreaseKeys;
+    public long stalled;
+    public long searchNanos;
+    public long unpackNanos;
+
+    public double getSearchMs() {
+        return searchNanos / 1e6;
+    }
+
+    public double getUnpackMs() {
+        return unpackNanos / 1e6;
+    }
+
+    public void add(QueryStats other) {
+        settled += other.settled;
+        relaxed += other.relaxed;
+        pushes += other.pushes;
+        pops += other.pops;
+        decreaseKeys += other.decreaseKeys;
+        stalled += other.stalled;
+        searchNanos += other.searchNanos;
+        unpackNanos += other.unpackNanos;
+    }
+
+    public void clear() {
+        settled = relaxed = pushes = pops = decreaseKeys = stalled = 0;
+        searchNanos = unpackNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+            "%d settled, %d relaxed, %d pushes, %d pops, %d decrease-keys, %d stalled, search %.2f ms, unpack %.2f ms",
+            settled, relaxed, pushes, pops, decreaseKeys, stalled, getSearchMs(), getUnpackMs());
+    }
+}
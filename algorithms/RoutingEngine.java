@@ -0,0 +1,485 @@
+package algorithms;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import graph.EdgeRTree;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import metrics.QueryLog;
+import metrics.RoutingEvents;
+import models.*;
+
+/**
+ * Runs route queries and profile customization on a dedicated worker thread.
+ * All of them mutate shared graph state (per-node distance labels, custom
+ * weights), so a single thread keeps them serialized while the caller stays
+ * responsive. A new query pre-empts the one in flight: the running search is
+ * interrupted and stops at its next cancellation check, and results of
+ * superseded queries are never delivered.
+ *
+ * When an origin is selected the engine grows its shortest path tree
+ * speculatively (prepareOrigin); CCH queries from that origin are then
+ * answered from the tree, so later destinations cost a lookup or only the
+ * part of the search still missing. The tree is an exact Dijkstra over the
+ * original edges, not a CH search, so its latencies are recorded apart.
+ */
+public class RoutingEngine {
+    private final Node[] graph;
+    private final Map<Integer, String> idToCoord;
+    private final ContractionHierarchies ch;
+    private final IsochroneSearch isochroneSearch;
+    private final Executor callbackExecutor;
+    private final ExecutorService executor;
+    private Query<?> currentQuery;
+    private int pendingCustomizations;
+
+    // Árbol especulativo del origen; solo se toca desde el hilo del motor
+    private final OriginSearchTree originTree;
+    private int treeWeightsVersion = -1;
+    private int weightsVersion;
+    private Future<?> speculation;
+    private volatile int preparedOrigin = -1;
+    private volatile boolean recordSearchSpace;
+    private volatile QueryLog queryLog;
+    private volatile boolean recordMetrics = true;
+    // Búsqueda entre coordenadas; su contexto se reutiliza, solo desde el hilo del motor
+    private VirtualNodeSearch virtualNodeSearch;
+
+    // Histogramas de latencia por algoritmo y perfil, resueltos una sola vez
+    private final LatencyHistogram[][] queryLatency =
+        new LatencyHistogram[Algorithm.values().length][VehicleProfile.values().length];
+    // Las respuestas del árbol del origen son un Dijkstra exacto, no CH: van aparte (query.CCH_TREE.<perfil>)
+    private final LatencyHistogram[] treeLatency = new LatencyHistogram[VehicleProfile.values().length];
+
+    public static class RouteResult {
+        public final Algorithm algorithm;
+        public final int origin;
+        public final int destination;
+        public final List<Integer> path;   // null si no hay ruta
+        public final long distance;        // -1 si no hay ruta
+        public final long durationMs;
+        public final boolean fromOriginTree; // respondida desde el árbol especulativo del origen
+        public final SearchSpaceRecorder searchSpace; // null si no se registró
+        public final QueryStats stats;
+
+        public RouteResult(Algorithm algorithm, int origin, int destination, List<Integer> path,
+                           long distance, long durationMs, boolean fromOriginTree, SearchSpaceRecorder searchSpace,
+                           QueryStats stats) {
+            this.algorithm = algorithm;
+            this.origin = origin;
+            this.destination = destination;
+            this.path = path;
+            this.distance = distance;
+            this.durationMs = durationMs;
+            this.fromOriginTree = fromOriginTree;
+            this.searchSpace = searchSpace;
+            this.stats = stats;
+        }
+
+        public boolean isFound() {
+            return path != null && !path.isEmpty() && distance != -1;
+        }
+    }
+
+    /**
+     * Handle of a submitted query. Cancelling it interrupts the search if it
+     * is still running and suppresses its callback.
+     */
+    public class Query<T> extends FutureTask<T> {
+        private final Consumer<? super T> onResult;
+        private final Consumer<Throwable> onError;
+        private volatile long startNanos;
+        private volatile long elapsedMs = -1;
+
+        Query(Callable<T> task, Consumer<? super T> onResult, Consumer<Throwable> onError) {
+            super(task);
+            this.onResult = onResult;
+            this.onError = onError;
+        }
+
+        @Override
+        public void run() {
+            startNanos = System.nanoTime();
+            super.run();
+        }
+
+        // Tiempo de ejecución en el worker, sin la espera en cola
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) return;
+            if (startNanos != 0) elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+            callbackExecutor.execute(() -> {
+                if (!isCurrent(this)) return;
+                finish(this);
+                try {
+                    onResult.accept(get());
+                } catch (ExecutionException e) {
+                    onError.accept(e.getCause());
+                } catch (InterruptedException | CancellationException e) {
+                    // Reemplazada mientras se entregaba
+                }
+            });
+        }
+    }
+
+    /**
+     * @param callbackExecutor Where results are delivered, e.g.
+     *        SwingUtilities::invokeLater for a GUI
+     */
+    public RoutingEngine(Node[] graph, Map<Integer, String> idToCoord, ContractionHierarchies ch,
+                         IsochroneSearch isochroneSearch, Executor callbackExecutor) {
+        this.graph = graph;
+        this.idToCoord = idToCoord;
+        this.ch = ch;
+        this.isochroneSearch = isochroneSearch;
+        this.callbackExecutor = callbackExecutor;
+        this.originTree = new OriginSearchTree(graph);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "routing-engine");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Computes a route on the calling thread. Only call it from the engine
+     * thread (through a submitted task) or while no other query can run.
+     */
+    public RouteResult route(Algorithm algorithm, int origin, int destination) {
+        // Consultas sintéticas (calentamiento): sin métricas, eventos ni log
+        if (!recordMetrics) return computeRoute(algorithm, origin, destination);
+        long startNanos = System.nanoTime();
+        QueryLog log = queryLog;
+        long startMillis = log != null ? System.currentTimeMillis() : 0;
+        MetricsRegistry metrics = MetricsRegistry.global();
+        metrics.counter("query.count").increment();
+        RoutingEvents.RouteQuery event = new RoutingEvents.RouteQuery();
+        event.begin();
+        try {
+            RouteResult result = computeRoute(algorithm, origin, destination);
+            (result.fromOriginTree ? treeLatency() : queryLatency(algorithm)).recordSince(startNanos);
+            if (!result.isFound()) metrics.counter("query.not_found").increment();
+            if (result.fromOriginTree) metrics.counter("query.origin_tree").increment();
+            commitQueryEvent(event, algorithm, origin, destination, result, false);
+            if (log != null) {
+                int flags = (result.isFound() ? QueryLog.FOUND : 0) | (result.fromOriginTree ? QueryLog.FROM_ORIGIN_TREE : 0);
+                log.append(startMillis, origin, destination, currentProfile(), algorithm, flags, System.nanoTime() - startNanos);
+            }
+            return result;
+        } catch (CancellationException e) {
+            metrics.counter("query.cancelled").increment();
+            commitQueryEvent(event, algorithm, origin, destination, null, true);
+            if (log != null) {
+                log.append(startMillis, origin, destination, currentProfile(), algorithm, QueryLog.CANCELLED,
+                           System.nanoTime() - startNanos);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Enables coordinate queries (submitCoordinateRoute), snapping both points
+     * onto the nearest street segments of this tree. The search and its
+     * graph-sized context are built once and reused by every such query.
+     */
+    public synchronized void setEdgeTree(EdgeRTree edgeTree) {
+        virtualNodeSearch = edgeTree != null ? new VirtualNodeSearch(graph, edgeTree) : null;
+    }
+
+    /**
+     * Routes between two raw coordinates on the calling thread, starting and
+     * ending on virtual nodes placed on the snapped segments. Same thread
+     * rules as route().
+     */
+    public VirtualNodeSearch.Result routeCoordinates(double sourceLon, double sourceLat,
+                                                     double targetLon, double targetLat) {
+        VirtualNodeSearch search;
+        synchronized (this) {
+            search = virtualNodeSearch;
+        }
+        if (search == null) throw new IllegalStateException("Edge index not available");
+        long startNanos = System.nanoTime();
+        VirtualNodeSearch.Result result = search.compute(sourceLon, sourceLat, targetLon, targetLat);
+        if (recordMetrics) {
+            MetricsRegistry.global().histogram("query.COORDINATES." + currentProfile().name()).recordSince(startNanos);
+        }
+        return result;
+    }
+
+    /**
+     * Appends every query answered by route() to a binary log for later
+     * replay (benchmark.QueryReplay); null stops logging.
+     */
+    public void setQueryLog(QueryLog queryLog) {
+        this.queryLog = queryLog;
+    }
+
+    /**
+     * Whether route() records metrics, JFR events and the query log. Turned
+     * off for synthetic traffic such as the JIT warm-up, so it does not skew
+     * the latency percentiles of real queries.
+     */
+    public void setRecordMetrics(boolean recordMetrics) {
+        this.recordMetrics = recordMetrics;
+    }
+
+    private VehicleProfile currentProfile() {
+        return ch != null ? ch.getCurrentProfile() : VehicleProfile.VEHICULOS;
+    }
+
+    private void commitQueryEvent(RoutingEvents.RouteQuery event, Algorithm algorithm, int origin, int destination,
+                                  RouteResult result, boolean cancelled) {
+        if (!event.shouldCommit()) return;
+        event.algorithm = algorithm.name();
+        event.profile = currentProfile().name();
+        event.origin = origin;
+        event.destination = destination;
+        event.cancelled = cancelled;
+        if (result != null) {
+            event.found = result.isFound();
+            event.fromOriginTree = result.fromOriginTree;
+            event.settledNodes = result.stats != null ? result.stats.settled : 0;
+        }
+        event.commit();
+    }
+
+    private LatencyHistogram queryLatency(Algorithm algorithm) {
+        VehicleProfile profile = currentProfile();
+        LatencyHistogram histogram = queryLatency[algorithm.ordinal()][profile.ordinal()];
+        if (histogram == null) {
+            histogram = MetricsRegistry.global().histogram("query." + algorithm.name() + "." + profile.name());
+            queryLatency[algorithm.ordinal()][profile.ordinal()] = histogram;
+        }
+        return histogram;
+    }
+
+    private LatencyHistogram treeLatency() {
+        VehicleProfile profile = currentProfile();
+        LatencyHistogram histogram = treeLatency[profile.ordinal()];
+        if (histogram == null) {
+            histogram = MetricsRegistry.global().histogram("query.CCH_TREE." + profile.name());
+            treeLatency[profile.ordinal()] = histogram;
+        }
+        return histogram;
+    }
+
+    private RouteResult computeRoute(Algorithm algorithm, int origin, int destination) {
+        SearchSpaceRecorder recorder = recordSearchSpace ? new SearchSpaceRecorder() : null;
+        // Siempre se cuenta: son incrementos de campos, sin costo apreciable
+        QueryStats stats = new QueryStats();
+
+        if (algorithm == Algorithm.CCH && origin == preparedOrigin) {
+            long startTime = System.nanoTime();
+            originTree.setStats(stats);
+            try {
+                // La especulación pudo cancelarse antes de arrancar
+                startOriginTree(origin);
+                originTree.expandUntil(destination);
+                List<Integer> path = originTree.getPath(destination);
+                long durationMs = (System.nanoTime() - startTime) / 1_000_000;
+                if (recorder != null) originTree.recordTo(recorder);
+                return new RouteResult(algorithm, origin, destination, path,
+                                       originTree.getDistance(destination), durationMs, true, recorder, stats);
+            } finally {
+                originTree.setStats(null);
+            }
+        }
+
+        for (Node node : graph) {
+            node.distance = new Distance();
+        }
+
+        List<Integer> path = null;
+        long distance = -1;
+        long startTime = System.nanoTime();
+
+        switch (algorithm) {
+            case CCH:
+                if (ch == null) throw new IllegalStateException("Contraction hierarchy not available");
+                BidirectionalSearch search = ch.getBidirectionalSearch();
+                search.setRecorder(recorder);
+                search.setStats(stats);
+                try {
+                    BidirectionalSearch.PathResult chResult = search.computeShortestPathEnhanced(
+                        origin, destination, (int) (System.currentTimeMillis() % 1000));
+                    if (chResult.distance != -1) {
+                        path = search.reconstructPath(origin, destination, chResult.meetingNode);
+                        distance = chResult.distance;
+                    }
+                } finally {
+                    search.setRecorder(null);
+                    search.setStats(null);
+                }
+                break;
+
+            case ASTAR:
+                AStarSearch aStar = new AStarSearch(graph, idToCoord);
+                aStar.setRecorder(recorder);
+                aStar.setStats(stats);
+                AStarSearch.Result aStarResult = aStar.compute(origin, destination);
+                path = aStarResult.path;
+                distance = aStarResult.distance;
+                break;
+
+            case ALT:
+                ALTSearch alt = new ALTSearch(graph, idToCoord, defaultLandmarks(graph));
+                alt.setRecorder(recorder);
+                alt.setStats(stats);
+                ALTSearch.Result altResult = alt.compute(origin, destination);
+                path = altResult.path;
+                distance = altResult.distance;
+                break;
+        }
+
+        long durationMs = (System.nanoTime() - startTime) / 1_000_000;
+        return new RouteResult(algorithm, origin, destination, path, distance, durationMs, false, recorder, stats);
+    }
+
+    /**
+     * Whether route queries record their search space (settled and relaxed
+     * nodes) into RouteResult.searchSpace. Off by default.
+     */
+    public void setRecordSearchSpace(boolean record) {
+        this.recordSearchSpace = record;
+    }
+
+    // Landmarks fijos de la GUI para ALT
+    public static List<Integer> defaultLandmarks(Node[] graph) {
+        return Arrays.asList(0, Math.min(10, graph.length - 1), Math.min(50, graph.length - 1));
+    }
+
+    private void startOriginTree(int origin) {
+        if (originTree.getOrigin() != origin || treeWeightsVersion != weightsVersion) {
+            originTree.start(origin);
+            treeWeightsVersion = weightsVersion;
+        }
+    }
+
+    /**
+     * Starts growing the shortest path tree of an origin in the background,
+     * before a destination is chosen. Queries and customizations interrupt
+     * it; whatever was expanded stays usable and is resumed on demand. CCH
+     * queries from this origin are answered from its tree from now on.
+     */
+    public synchronized void prepareOrigin(int origin) {
+        cancelSpeculation();
+        preparedOrigin = origin;
+        speculation = executor.submit(() -> {
+            try {
+                startOriginTree(origin);
+                originTree.expandUntil(-1);
+            } catch (CancellationException e) {
+                // Interrumpida por una consulta real: el árbol parcial sigue siendo válido
+            }
+        });
+    }
+
+    private void cancelSpeculation() {
+        if (speculation != null) {
+            speculation.cancel(true);
+            speculation = null;
+        }
+    }
+
+    public Query<RouteResult> submitRoute(Algorithm algorithm, int origin, int destination,
+                                          Consumer<RouteResult> onResult, Consumer<Throwable> onError) {
+        return submitQuery(() -> route(algorithm, origin, destination), onResult, onError);
+    }
+
+    public Query<VirtualNodeSearch.Result> submitCoordinateRoute(double sourceLon, double sourceLat,
+                                                                 double targetLon, double targetLat,
+                                                                 Consumer<VirtualNodeSearch.Result> onResult,
+                                                                 Consumer<Throwable> onError) {
+        return submitQuery(() -> routeCoordinates(sourceLon, sourceLat, targetLon, targetLat), onResult, onError);
+    }
+
+    public Query<IsochroneSearch.Result> submitIsochrone(int origin, double budget, IsochroneSearch.BudgetType type,
+                                                         VehicleProfile profile,
+                                                         Consumer<IsochroneSearch.Result> onResult,
+                                                         Consumer<Throwable> onError) {
+        return submitQuery(() -> {
+            long startNanos = System.nanoTime();
+            IsochroneSearch.Result result = isochroneSearch.compute(origin, budget, type, profile);
+            MetricsRegistry.global().histogram("isochrone." + profile.name()).recordSince(startNanos);
+            return result;
+        }, onResult, onError);
+    }
+
+    /**
+     * Submits a query, cancelling the previous one. The callback runs on the
+     * callback executor, and only if no later query or cancel superseded it.
+     */
+    public synchronized <T> Query<T> submitQuery(Callable<T> task, Consumer<? super T> onResult,
+                                                 Consumer<Throwable> onError) {
+        cancelQuery();
+        cancelSpeculation();
+        Query<T> query = new Query<>(task, onResult, onError);
+        currentQuery = query;
+        executor.execute(query);
+        return query;
+    }
+
+    /**
+     * Re-customizes the weights for a profile. Cancels the query in flight
+     * (it was for the previous profile); queries submitted afterwards run
+     * once the customization is done.
+     */
+    public synchronized Future<?> setProfile(VehicleProfile profile, Runnable onDone) {
+        cancelQuery();
+        cancelSpeculation();
+        pendingCustomizations++;
+        return executor.submit(() -> {
+            try {
+                weightsVersion++;
+                if (ch != null) ch.setProfile(profile);
+            } finally {
+                synchronized (this) {
+                    pendingCustomizations--;
+                }
+                if (onDone != null) callbackExecutor.execute(onDone);
+            }
+        });
+    }
+
+    public synchronized void cancelQuery() {
+        if (currentQuery != null) {
+            currentQuery.cancel(true);
+            currentQuery = null;
+        }
+    }
+
+    // Hay una consulta o una customización sin terminar
+    public synchronized boolean isBusy() {
+        return currentQuery != null || pendingCustomizations > 0;
+    }
+
+    private synchronized boolean isCurrent(Query<?> query) {
+        return currentQuery == query;
+    }
+
+    private synchronized void finish(Query<?> query) {
+        if (currentQuery == query) currentQuery = null;
+    }
+
+    public synchronized void shutdown() {
+        cancelQuery();
+        cancelSpeculation();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Cancellation point for searches: throws if the running query was
+     * pre-empted. Reading the interrupt flag is cheap enough to call once
+     * per settled node.
+     */
+    public static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Query cancelled");
+        }
+    }
+}
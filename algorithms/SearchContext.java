@@ -0,0 +1,148 @@
+package algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Reusable state for one-to-many searches (distances, predecessors and an
+ * indexed binary heap). Arrays are allocated once per graph size and
+ * invalidated between queries with a stamp, so a warm context costs nothing
+ * to reset. A context is not thread-safe: keep one per searching thread.
+ */
+public class SearchContext {
+    private final long[] dist;
+    private final int[] pred;
+    private final int[] reachedStamp;
+    private final int[] settledStamp;
+    private int stamp;
+
+    // Indexed min-heap over node ids ordered by dist, supports decrease-key
+    private final int[] heap;
+    private final int[] heapPos;
+    private int heapSize;
+
+    public SearchContext(int nodeCount) {
+        this.dist = new long[nodeCount];
+        this.pred = new int[nodeCount];
+        this.reachedStamp = new int[nodeCount];
+        this.settledStamp = new int[nodeCount];
+        this.heap = new int[nodeCount];
+        this.heapPos = new int[nodeCount];
+        this.stamp = 0;
+    }
+
+    public int size() {
+        return dist.length;
+    }
+
+    /**
+     * Invalidates the previous query in O(1) (O(n) only when the stamp wraps).
+     */
+    public void reset() {
+        heapSize = 0;
+        stamp++;
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(reachedStamp, 0);
+            Arrays.fill(settledStamp, 0);
+            stamp = 1;
+        }
+    }
+
+    public boolean isReached(int node) {
+        return reachedStamp[node] == stamp;
+    }
+
+    public boolean isSettled(int node) {
+        return settledStamp[node] == stamp;
+    }
+
+    public void markSettled(int node) {
+        settledStamp[node] = stamp;
+    }
+
+    public long getDist(int node) {
+        return reachedStamp[node] == stamp ? dist[node] : Long.MAX_VALUE;
+    }
+
+    public int getPredecessor(int node) {
+        return reachedStamp[node] == stamp ? pred[node] : -1;
+    }
+
+    /**
+     * Sets the tentative distance of a node if it improves the current one,
+     * inserting it into the heap or decreasing its key.
+     * @return true if the distance was improved
+     */
+    public boolean relax(int node, long newDist, int predecessor) {
+        if (reachedStamp[node] != stamp) {
+            reachedStamp[node] = stamp;
+            dist[node] = newDist;
+            pred[node] = predecessor;
+            heapPos[node] = heapSize;
+            heap[heapSize++] = node;
+            siftUp(heapPos[node]);
+            return true;
+        }
+        if (newDist < dist[node] && settledStamp[node] != stamp) {
+            dist[node] = newDist;
+            pred[node] = predecessor;
+            siftUp(heapPos[node]);
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isHeapEmpty() {
+        return heapSize == 0;
+    }
+
+    /**
+     * Removes the node with the smallest tentative distance and marks it settled.
+     */
+    public int poll() {
+        int top = heap[0];
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapPos[heap[0]] = 0;
+            siftDown(0);
+        }
+        settledStamp[top] = stamp;
+        return top;
+    }
+
+    public long peekDist() {
+        return dist[heap[0]];
+    }
+
+    private void siftUp(int i) {
+        int node = heap[i];
+        long key = dist[node];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int parentNode = heap[parent];
+            if (dist[parentNode] <= key) break;
+            heap[i] = parentNode;
+            heapPos[parentNode] = i;
+            i = parent;
+        }
+        heap[i] = node;
+        heapPos[node] = i;
+    }
+
+    private void siftDown(int i) {
+        int node = heap[i];
+        long key = dist[node];
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < heapSize && dist[heap[right]] < dist[heap[child]]) child = right;
+            if (key <= dist[heap[child]]) break;
+            heap[i] = heap[child];
+            heapPos[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = node;
+        heapPos[node] = i;
+    }
+}
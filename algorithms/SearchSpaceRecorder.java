@@ -0,0 +1,45 @@
+package algorithms;
+
+import java.util.BitSet;
+
+/**
+ * Sink for the search space of a query: the nodes each direction settled
+ * (popped from its queue for good) and relaxed (whose tentative distance
+ * improved). Searches take an optional recorder and only pay a null check
+ * when none is attached. Unidirectional searches record forward only.
+ */
+public class SearchSpaceRecorder {
+    public final BitSet forwardSettled = new BitSet();
+    public final BitSet forwardRelaxed = new BitSet();
+    public final BitSet backwardSettled = new BitSet();
+    public final BitSet backwardRelaxed = new BitSet();
+
+    public void settled(int node, boolean forward) {
+        (forward ? forwardSettled : backwardSettled).set(node);
+    }
+
+    public void relaxed(int node, boolean forward) {
+        (forward ? forwardRelaxed : backwardRelaxed).set(node);
+    }
+
+    public int getSettledCount() {
+        return forwardSettled.cardinality() + backwardSettled.cardinality();
+    }
+
+    public int getRelaxedCount() {
+        return forwardRelaxed.cardinality() + backwardRelaxed.cardinality();
+    }
+
+    public void clear() {
+        forwardSettled.clear();
+        forwardRelaxed.clear();
+        backwardSettled.clear();
+        backwardRelaxed.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "forward settled " + forwardSettled.cardinality() + ", relaxed " + forwardRelaxed.cardinality() +
+               "; backward settled " + backwardSettled.cardinality() + ", relaxed " + backwardRelaxed.cardinality();
+    }
+}
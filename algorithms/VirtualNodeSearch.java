@@ -0,0 +1,133 @@
+package algorithms;
+
+import java.util.*;
+import graph.EdgeRTree;
+import graph.EdgeSnap;
+import models.*;
+
+/**
+ * Shortest path between two arbitrary coordinates. Each coordinate is snapped
+ * onto its nearest street segment and treated as a virtual node that splits
+ * the edge, so the search starts and ends with partial edge costs instead of
+ * jumping to the nearest intersection.
+ *
+ * Keeps one graph-sized SearchContext between queries, so an instance is
+ * meant to be reused from a single thread (RoutingEngine's worker).
+ */
+public class VirtualNodeSearch {
+    private final Node[] graph;
+    private final EdgeRTree edgeTree;
+    private final SearchContext context;
+
+    public VirtualNodeSearch(Node[] graph, EdgeRTree edgeTree) {
+        this.graph = graph;
+        this.edgeTree = edgeTree;
+        this.context = new SearchContext(graph.length);
+    }
+
+    public static class Result {
+        public EdgeSnap source;
+        public EdgeSnap target;
+        public List<Integer> path;   // nodos reales entre los dos puntos virtuales
+        public long distance;
+
+        public Result(EdgeSnap source, EdgeSnap target, List<Integer> path, long distance) {
+            this.source = source;
+            this.target = target;
+            this.path = path;
+            this.distance = distance;
+        }
+    }
+
+    public Result compute(double sourceLon, double sourceLat, double targetLon, double targetLat) {
+        EdgeSnap source = edgeTree.nearest(sourceLon, sourceLat);
+        EdgeSnap target = edgeTree.nearest(targetLon, targetLat);
+        if (source == null || target == null) return new Result(source, target, null, -1);
+        return compute(source, target);
+    }
+
+    public Result compute(EdgeSnap source, EdgeSnap target) {
+        Edge sourceEdge = source.edge;
+        Edge sourceTwin = EdgeRTree.findTwin(graph, sourceEdge);
+        Edge targetEdge = target.edge;
+        Edge targetTwin = EdgeRTree.findTwin(graph, targetEdge);
+
+        long best = Long.MAX_VALUE;
+        List<Integer> bestPath = null;
+
+        // Ambos puntos sobre la misma calle: tramo directo sin pasar por nodos, en el sentido de la arista o de su gemela
+        if (source.edgeId == target.edgeId) {
+            if (source.fraction <= target.fraction && !sourceEdge.isProhibited()) {
+                best = (long) ((target.fraction - source.fraction) * sourceEdge.getCustomWeight());
+                bestPath = new ArrayList<>();
+            }
+            if (target.fraction <= source.fraction && sourceTwin != null && !sourceTwin.isProhibited()) {
+                long twinCost = (long) ((source.fraction - target.fraction) * sourceTwin.getCustomWeight());
+                if (twinCost < best) {
+                    best = twinCost;
+                    bestPath = new ArrayList<>();
+                }
+            }
+        }
+
+        // Semillas: desde el nodo virtual hacia los extremos permitidos de su arista
+        context.reset();
+        if (!sourceEdge.isProhibited()) {
+            context.relax(sourceEdge.to, (long) ((1 - source.fraction) * sourceEdge.getCustomWeight()), -1);
+        }
+        if (sourceTwin != null && !sourceTwin.isProhibited()) {
+            context.relax(sourceTwin.to, (long) (source.fraction * sourceTwin.getCustomWeight()), -1);
+        }
+        if (source.fraction == 0) {
+            context.relax(sourceEdge.from, 0, -1); // proyectado justo sobre la intersección
+        }
+
+        // Costos parciales de llegada desde cada extremo de la arista destino
+        int[] entries = new int[3];
+        long[] tails = new long[3];
+        int entryCount = 0;
+        if (!targetEdge.isProhibited()) {
+            entries[entryCount] = targetEdge.from;
+            tails[entryCount++] = (long) (target.fraction * targetEdge.getCustomWeight());
+        }
+        if (targetTwin != null && !targetTwin.isProhibited()) {
+            entries[entryCount] = targetTwin.from;
+            tails[entryCount++] = (long) ((1 - target.fraction) * targetTwin.getCustomWeight());
+        }
+        if (target.fraction == 1) {
+            entries[entryCount] = targetEdge.to;
+            tails[entryCount++] = 0;
+        }
+
+        int bestEntry = -1;
+        while (!context.isHeapEmpty() && context.peekDist() < best) {
+            RoutingEngine.checkCancelled();
+            int u = context.poll();
+            long du = context.getDist(u);
+
+            for (int i = 0; i < entryCount; i++) {
+                if (u == entries[i] && du + tails[i] < best) {
+                    best = du + tails[i];
+                    bestEntry = u;
+                }
+            }
+
+            for (Edge edge : graph[u].outEdges) {
+                if (edge.isShortcut()) continue;
+                double edgeWeight = edge.getCustomWeight();
+                if (edgeWeight == Double.MAX_VALUE) continue;
+                context.relax(edge.to, du + (long) edgeWeight, u);
+            }
+        }
+
+        if (bestEntry != -1) {
+            bestPath = new ArrayList<>();
+            for (int at = bestEntry; at != -1; at = context.getPredecessor(at)) {
+                bestPath.add(at);
+            }
+            Collections.reverse(bestPath);
+        }
+
+        return new Result(source, target, bestPath, best == Long.MAX_VALUE ? -1 : best);
+    }
+}
@@ -0,0 +1,111 @@
+package algorithms;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.*;
+import models.*;
+
+/**
+ * JIT warm-up before a server starts taking route queries. Replays a fixed
+ * seeded workload (QuerySet pairs of every length) through RoutingEngine
+ * for every algorithm and profile, round after round, until the query time
+ * of a whole round changes less than the tolerance between consecutive
+ * rounds, so the first real users do not pay for interpreted and
+ * C1-compiled code. Single queries are too noisy to compare round to round;
+ * a round adds up every algorithm and profile, customizations excluded.
+ * Its queries record no query metrics and write no query log. The profile
+ * active before the warm-up is restored afterwards.
+ */
+public class WarmUp {
+    private static final int MIN_ROUNDS = 3;
+    private static final int STABLE_ROUNDS = 2;
+
+    public static class Options {
+        public int pairsPerBucket = 10;
+        public long seed = 42;
+        public double tolerance = 0.10;
+        public long maxMillis = 30_000;
+    }
+
+    public static class Result {
+        public int rounds;
+        public long queries;
+        public long elapsedMs;
+        public boolean stable;
+        // Tiempo de consultas de cada ronda
+        public final List<Double> roundMs = new ArrayList<>();
+        // Mediana de la última ronda por "ALGORITMO/PERFIL"
+        public final Map<String, Double> medianMs = new LinkedHashMap<>();
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder(String.format(Locale.ROOT,
+                "Warm-up: %d rounds, %d queries in %.1f s, latencies %s", rounds, queries, elapsedMs / 1000.0,
+                stable ? "stable" : "still changing when the time limit was reached"));
+            if (!roundMs.isEmpty()) {
+                out.append(String.format(Locale.ROOT, "%n  round time %.1f ms first, %.1f ms last", roundMs.get(0),
+                    roundMs.get(roundMs.size() - 1)));
+            }
+            for (Map.Entry<String, Double> entry : medianMs.entrySet()) {
+                out.append(String.format(Locale.ROOT, "%n  %-20s median %.3f ms", entry.getKey(), entry.getValue()));
+            }
+            return out.toString();
+        }
+    }
+
+    public static Result run(Node[] graph, Map<Integer, String> idToCoord, ContractionHierarchies ch, Options options) {
+        Result result = new Result();
+        long start = System.nanoTime();
+        long deadline = start + options.maxMillis * 1_000_000;
+        VehicleProfile original = ch.getCurrentProfile();
+
+        RoutingEngine engine = new RoutingEngine(graph, idToCoord, ch, null, Runnable::run);
+        engine.setRecordMetrics(false);
+        ch.setRecordMetrics(false);
+        PrintStream console = System.out;
+        // Customizaciones y fallbacks imprimen diagnósticos en cada consulta
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            QuerySet querySet = QuerySet.build(graph, options.pairsPerBucket, options.seed);
+            List<int[]> pairs = new ArrayList<>();
+            for (QuerySet.Bucket bucket : QuerySet.Bucket.values()) pairs.addAll(Arrays.asList(querySet.getPairs(bucket)));
+            if (pairs.isEmpty()) return result;
+
+            int stableRounds = 0;
+            while (System.nanoTime() < deadline) {
+                double roundMs = 0;
+                for (VehicleProfile profile : VehicleProfile.values()) {
+                    ch.setProfile(profile);
+                    for (Algorithm algorithm : Algorithm.values()) {
+                        double[] latencies = new double[pairs.size()];
+                        for (int i = 0; i < pairs.size(); i++) {
+                            long queryStart = System.nanoTime();
+                            engine.route(algorithm, pairs.get(i)[0], pairs.get(i)[1]);
+                            latencies[i] = (System.nanoTime() - queryStart) / 1e6;
+                        }
+                        result.queries += latencies.length;
+                        for (double latency : latencies) roundMs += latency;
+                        Arrays.sort(latencies);
+                        result.medianMs.put(algorithm.name() + "/" + profile.name(), latencies[latencies.length / 2]);
+                    }
+                }
+                result.rounds++;
+                result.roundMs.add(roundMs);
+                double last = result.roundMs.size() > 1 ? result.roundMs.get(result.roundMs.size() - 2) : Double.NaN;
+                boolean roundStable = Math.abs(roundMs - last) <= options.tolerance * last;
+                stableRounds = roundStable ? stableRounds + 1 : 0;
+                if (result.rounds >= MIN_ROUNDS && stableRounds >= STABLE_ROUNDS) {
+                    result.stable = true;
+                    break;
+                }
+            }
+        } finally {
+            ch.setProfile(original);
+            ch.setRecordMetrics(true);
+            System.setOut(console);
+            engine.shutdown();
+        }
+        result.elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        return result;
+    }
+}
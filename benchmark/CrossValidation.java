@@ -0,0 +1,438 @@
+package benchmark;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import algorithms.*;
+import graph.GraphSimplifier;
+import loader.*;
+import models.*;
+
+/**
+ * Runs random origin/destination pairs through every shortest-path
+ * implementation, for each vehicle profile, and compares them against a
+ * plain Dijkstra over the original edges. The reference skips CH shortcuts:
+ * customizeWeights does not rebuild them from their parts, so a shortcut can
+ * be cheaper than any legal route. Reports distance mismatches (including
+ * one algorithm finding a route the other does not) and paths whose edge
+ * weights do not add up to the reported distance. Each mismatch is shrunk to
+ * the shortest sub-path of the reference route that still shows it. A
+ * separate timed pass gives each algorithm's speedup over DijkstraSearch.
+ *
+ * The reference keeps its labels in local arrays, so it runs on a thread
+ * pool. A*, ALT and the CH searches keep theirs in the shared Node.distance
+ * fields and run on the calling thread, at the same time as the pool.
+ *
+ * Usage: java benchmark.CrossValidation [--csv main/rutas.csv] [--pairs 2000] [--seed 42]
+ *        [--threads N] [--timing-pairs 200] [--max-repros 10] [--algorithms DIJKSTRA,ASTAR,ALT,CH,FALLBACK]
+ *        [--profiles VEHICULOS,...] [--out mismatches.txt]
+ * Only the first max-repros mismatches of each algorithm and profile are
+ * shrunk and written; the rest are counted. Exits with status 1 when any
+ * mismatch is found.
+ */
+public class CrossValidation {
+    // DIJKSTRA: DijkstraSearch; CH: búsqueda bidireccional sin fallback; FALLBACK: computeShortestPathFallback
+    public enum Algorithm { DIJKSTRA, ASTAR, ALT, CH, FALLBACK }
+
+    private static final int MAX_REPRO_EDGES = 40;
+
+    static class Answer {
+        final long distance;
+        final List<Integer> path;
+
+        Answer(long distance, List<Integer> path) {
+            this.distance = distance;
+            this.path = path;
+        }
+    }
+
+    public static class Summary {
+        public String profile;
+        public Algorithm algorithm;
+        public int queries;
+        public int mismatches;          // consultas con alguna diferencia
+        public int distanceMismatches;
+        public int pathMismatches;
+        public double avgMs;
+        public double speedup;
+    }
+
+    private final Node[] graph;
+    private final Map<Integer, String> idToCoord;
+    private final ContractionHierarchies ch;
+    private final Options options;
+    private final List<String> repros = new ArrayList<>();
+    private int queryId;
+    private long sink;
+
+    static class Options {
+        String csv = "main/rutas.csv";
+        int pairs = 2000;
+        long seed = 42;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int timingPairs = 200;
+        int maxRepros = 10;
+        List<Algorithm> algorithms = Arrays.asList(Algorithm.DIJKSTRA, Algorithm.ASTAR, Algorithm.ALT, Algorithm.CH, Algorithm.FALLBACK);
+        List<VehicleProfile> profiles = Arrays.asList(VehicleProfile.values());
+        String out;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--csv": options.csv = value; break;
+                    case "--pairs": options.pairs = Integer.parseInt(value); break;
+                    case "--seed": options.seed = Long.parseLong(value); break;
+                    case "--threads": options.threads = Integer.parseInt(value); break;
+                    case "--timing-pairs": options.timingPairs = Integer.parseInt(value); break;
+                    case "--max-repros": options.maxRepros = Integer.parseInt(value); break;
+                    case "--algorithms":
+                        options.algorithms = new ArrayList<>();
+                        for (String name : value.split(",")) options.algorithms.add(Algorithm.valueOf(name.trim().toUpperCase()));
+                        break;
+                    case "--profiles":
+                        options.profiles = new ArrayList<>();
+                        for (String name : value.split(",")) options.profiles.add(VehicleProfile.valueOf(name.trim().toUpperCase()));
+                        break;
+                    case "--out": options.out = value; break;
+                    default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            return options;
+        }
+    }
+
+    public CrossValidation(Node[] graph, Map<Integer, String> idToCoord, ContractionHierarchies ch, Options options) {
+        this.graph = graph;
+        this.idToCoord = idToCoord;
+        this.ch = ch;
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+
+        MapDataResult data = CSVRouteLoader.loadFromCSV(options.csv);
+        GraphSimplifier.simplify(data.graph, data.geometry);
+        ContractionHierarchies ch = new ContractionHierarchies(data.graph);
+        PrintStream console = System.out;
+        System.setOut(RoutingBenchmark.quietStream());
+        ch.preprocess();
+        System.setOut(console);
+
+        CrossValidation validation = new CrossValidation(data.graph, data.idToCoord, ch, options);
+        List<Summary> results = validation.runAll();
+        printTable(results);
+
+        if (options.out != null) {
+            Files.write(Paths.get(options.out), validation.repros, StandardCharsets.UTF_8);
+            System.out.println("Mismatches written to " + options.out);
+        }
+        int mismatches = 0;
+        for (Summary summary : results) mismatches += summary.mismatches;
+        if (mismatches > 0) {
+            System.out.println(mismatches + " mismatching queries found");
+            System.exit(1);
+        }
+    }
+
+    public List<Summary> runAll() throws InterruptedException, ExecutionException {
+        List<Summary> results = new ArrayList<>();
+        PrintStream console = System.out;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, options.threads), runnable -> {
+            Thread thread = new Thread(runnable, "cross-validation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (VehicleProfile profile : options.profiles) {
+                System.setOut(RoutingBenchmark.quietStream());
+                ch.setProfile(profile);
+                System.setOut(console);
+                int[][] pairs = randomPairs(options.pairs, options.seed);
+                console.println("Validating " + profile.name() + " on " + pairs.length + " pairs...");
+
+                // Referencias en el pool mientras este hilo corre los algoritmos con estado en los nodos
+                List<Future<Answer>> references = new ArrayList<>();
+                for (int[] pair : pairs) {
+                    references.add(pool.submit(() -> reference(pair[0], pair[1])));
+                }
+                Map<Algorithm, Answer[]> answers = new EnumMap<>(Algorithm.class);
+                System.setOut(RoutingBenchmark.quietStream());
+                try {
+                    for (Algorithm algorithm : options.algorithms) {
+                        Answer[] list = new Answer[pairs.length];
+                        for (int i = 0; i < pairs.length; i++) list[i] = run(algorithm, pairs[i][0], pairs[i][1]);
+                        answers.put(algorithm, list);
+                    }
+                } finally {
+                    System.setOut(console);
+                }
+                Answer[] expected = new Answer[pairs.length];
+                for (int i = 0; i < pairs.length; i++) expected[i] = references.get(i).get();
+
+                for (Algorithm algorithm : options.algorithms) {
+                    Summary summary = new Summary();
+                    summary.profile = profile.name();
+                    summary.algorithm = algorithm;
+                    summary.queries = pairs.length;
+                    Answer[] actual = answers.get(algorithm);
+                    for (int i = 0; i < pairs.length; i++) {
+                        boolean distanceOk = actual[i].distance == expected[i].distance;
+                        boolean pathOk = pathMatches(algorithm, actual[i], pairs[i][0], pairs[i][1]);
+                        if (!distanceOk || !pathOk) {
+                            if (summary.mismatches++ < options.maxRepros) {
+                                report(profile, algorithm, pairs[i][0], pairs[i][1], expected[i], actual[i]);
+                            }
+                        }
+                        if (!distanceOk) summary.distanceMismatches++;
+                        if (!pathOk) summary.pathMismatches++;
+                    }
+                    results.add(summary);
+                }
+
+                time(profile, pairs, results);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        console.println("(checksum " + sink + ")");
+        return results;
+    }
+
+    // Pares uniformes entre los nodos que quedan tras la simplificación
+    private int[][] randomPairs(int count, long seed) {
+        List<Integer> candidates = new ArrayList<>();
+        for (int id = 0; id < graph.length; id++) {
+            if (!GraphSimplifier.isRemoved(graph[id])) candidates.add(id);
+        }
+        Random random = new Random(seed);
+        int[][] pairs = new int[count][];
+        for (int i = 0; i < count; i++) {
+            int origin = candidates.get(random.nextInt(candidates.size()));
+            int destination;
+            do {
+                destination = candidates.get(random.nextInt(candidates.size()));
+            } while (destination == origin && candidates.size() > 1);
+            pairs[i] = new int[]{origin, destination};
+        }
+        return pairs;
+    }
+
+    /**
+     * Ground truth: Dijkstra over original edges only, accumulating weights
+     * the way the algorithms do. Never relaxes shortcuts, so it does not
+     * depend on how the hierarchy was customized.
+     */
+    private Answer reference(int origin, int destination) {
+        long[] distances = new long[graph.length];
+        int[] predecessors = new int[graph.length];
+        Arrays.fill(distances, Long.MAX_VALUE);
+        Arrays.fill(predecessors, -1);
+        distances[origin] = 0;
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[1], b[1]));
+        queue.offer(new long[]{origin, 0});
+        while (!queue.isEmpty()) {
+            long[] current = queue.poll();
+            int nodeId = (int) current[0];
+            if (current[1] > distances[nodeId]) continue;
+            if (nodeId == destination) {
+                List<Integer> path = new ArrayList<>();
+                for (int at = destination; at != -1; at = predecessors[at]) path.add(at);
+                Collections.reverse(path);
+                return new Answer(current[1], path);
+            }
+            for (Edge edge : graph[nodeId].outEdges) {
+                double weight = edge.getCustomWeight();
+                if (edge.isShortcut() || weight == Double.MAX_VALUE) continue;
+                long distance = current[1] + (long) weight;
+                if (distance < distances[edge.to]) {
+                    distances[edge.to] = distance;
+                    predecessors[edge.to] = nodeId;
+                    queue.offer(new long[]{edge.to, distance});
+                }
+            }
+        }
+        return new Answer(-1, null);
+    }
+
+    private Answer run(Algorithm algorithm, int origin, int destination) {
+        switch (algorithm) {
+            case DIJKSTRA: {
+                DijkstraSearch.Result result = new DijkstraSearch(graph).compute(origin, destination);
+                return new Answer(result.distance, result.path);
+            }
+            case ASTAR: {
+                AStarSearch.Result result = new AStarSearch(graph, idToCoord).compute(origin, destination);
+                return new Answer(result.distance, result.path);
+            }
+            case ALT: {
+                ALTSearch.Result result = new ALTSearch(graph, idToCoord, RoutingEngine.defaultLandmarks(graph))
+                    .compute(origin, destination);
+                return new Answer(result.distance, result.path);
+            }
+            case CH:
+            case FALLBACK: {
+                for (Node node : graph) node.distance = new Distance();
+                BidirectionalSearch search = ch.getBidirectionalSearch();
+                BidirectionalSearch.PathResult result = algorithm == Algorithm.CH
+                    ? search.computeShortestPath(origin, destination, ++queryId)
+                    : search.computeShortestPathFallback(origin, destination, ++queryId);
+                List<Integer> path = result.distance != -1 ? search.reconstructPath(origin, destination, result.meetingNode) : null;
+                return new Answer(result.distance, path);
+            }
+            default:
+                throw new IllegalArgumentException(algorithm.toString());
+        }
+    }
+
+    /**
+     * Whether the returned path is a chain of existing edges from origin to
+     * destination whose weights add up to the reported distance. Only
+     * original edges count, except for CH and FALLBACK: reconstructPath does
+     * not unpack shortcuts, so their hops may be shortcuts, checked with the
+     * weights the search used. Wrong shortcut weights still show up as
+     * distance mismatches against the reference.
+     */
+    private boolean pathMatches(Algorithm algorithm, Answer answer, int origin, int destination) {
+        if (answer.distance == -1) return true;
+        List<Integer> path = answer.path;
+        if (path == null || path.isEmpty() || path.get(0) != origin || path.get(path.size() - 1) != destination) return false;
+        return pathCost(path, algorithm == Algorithm.CH || algorithm == Algorithm.FALLBACK) == answer.distance;
+    }
+
+    // Suma de los pesos como los acumulan los algoritmos; -1 si falta alguna arista
+    private long pathCost(List<Integer> path, boolean shortcuts) {
+        long cost = 0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            double best = Double.MAX_VALUE;
+            for (Edge edge : graph[path.get(i)].outEdges) {
+                if (edge.isShortcut() && !shortcuts) continue;
+                if (edge.to == path.get(i + 1)) best = Math.min(best, edge.getCustomWeight());
+            }
+            if (best == Double.MAX_VALUE) return -1;
+            cost += (long) best;
+        }
+        return cost;
+    }
+
+    // ===================== REPRODUCCIÓN MÍNIMA =====================
+
+    /**
+     * Shrinks a mismatch along the reference route: first the closest
+     * destination on it that still disagrees, then the closest origin to
+     * that destination. Prefixes and suffixes of a shortest path are
+     * shortest paths too, so the small case has the same expected answer.
+     */
+    private void report(VehicleProfile profile, Algorithm algorithm, int origin, int destination,
+                        Answer expected, Answer actual) {
+        int from = origin, to = destination;
+        Answer expectedSmall = expected, actualSmall = actual;
+        PrintStream console = System.out;
+        System.setOut(RoutingBenchmark.quietStream());
+        try {
+            List<Integer> route = expected.path;
+            if (route != null && route.size() > 2) {
+                for (int k = 1; k < route.size(); k++) {
+                    Answer e = reference(origin, route.get(k));
+                    Answer a = run(algorithm, origin, route.get(k));
+                    if (a.distance != e.distance || !pathMatches(algorithm, a, origin, route.get(k))) {
+                        to = route.get(k);
+                        expectedSmall = e;
+                        actualSmall = a;
+                        for (int j = k - 1; j > 0; j--) {
+                            e = reference(route.get(j), to);
+                            a = run(algorithm, route.get(j), to);
+                            if (a.distance != e.distance || !pathMatches(algorithm, a, route.get(j), to)) {
+                                from = route.get(j);
+                                expectedSmall = e;
+                                actualSmall = a;
+                                break;
+                            }
+                        }
+                        break;
+                    }
+                }
+            }
+        } finally {
+            System.setOut(console);
+        }
+
+        StringBuilder repro = new StringBuilder();
+        repro.append(String.format(Locale.ROOT, "%s %s: %d -> %d (shrunk from %d -> %d)%n",
+            profile.name(), algorithm, from, to, origin, destination));
+        repro.append(String.format(Locale.ROOT, "  origin %s, destination %s%n", idToCoord.get(from), idToCoord.get(to)));
+        repro.append(String.format(Locale.ROOT, "  expected %d, got %d, path cost %s%n", expectedSmall.distance,
+            actualSmall.distance, actualSmall.path != null ? Long.toString(pathCost(actualSmall.path, algorithm == Algorithm.CH || algorithm == Algorithm.FALLBACK)) : "no path"));
+        appendPath(repro, "expected", expectedSmall.path);
+        appendPath(repro, "actual", actualSmall.path);
+        repros.add(repro.toString());
+    }
+
+    private void appendPath(StringBuilder repro, String label, List<Integer> path) {
+        if (path == null) {
+            repro.append("  ").append(label).append(" path: none\n");
+            return;
+        }
+        repro.append("  ").append(label).append(" path: ").append(path.size() - 1).append(" edges\n");
+        if (path.size() - 1 > MAX_REPRO_EDGES) return;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            int u = path.get(i), v = path.get(i + 1);
+            Edge hop = null;
+            for (Edge edge : graph[u].outEdges) {
+                if (edge.to == v && (hop == null || edge.getCustomWeight() < hop.getCustomWeight())) hop = edge;
+            }
+            if (hop == null) {
+                repro.append(String.format(Locale.ROOT, "    %d -> %d missing edge%n", u, v));
+            } else {
+                repro.append(String.format(Locale.ROOT, "    %d -> %d weight %.1f%s %s%n", u, v, hop.getCustomWeight(),
+                    hop.isShortcut() ? " shortcut" : "", hop.streetName));
+            }
+        }
+    }
+
+    // ===================== TIEMPOS =====================
+
+    // Pasada aparte en un solo hilo, tras una vuelta de calentamiento, para que los tiempos sean comparables
+    private void time(VehicleProfile profile, int[][] pairs, List<Summary> results) {
+        int count = Math.min(options.timingPairs, pairs.length);
+        if (count == 0) return;
+        PrintStream console = System.out;
+        System.setOut(RoutingBenchmark.quietStream());
+        try {
+            Map<Algorithm, Double> avgMs = new EnumMap<>(Algorithm.class);
+            List<Algorithm> timed = new ArrayList<>();
+            timed.add(Algorithm.DIJKSTRA);
+            for (Algorithm algorithm : options.algorithms) {
+                if (algorithm != Algorithm.DIJKSTRA) timed.add(algorithm);
+            }
+            for (Algorithm algorithm : timed) {
+                for (int i = 0; i < count; i++) sink += run(algorithm, pairs[i][0], pairs[i][1]).distance;
+                long start = System.nanoTime();
+                for (int i = 0; i < count; i++) sink += run(algorithm, pairs[i][0], pairs[i][1]).distance;
+                avgMs.put(algorithm, (System.nanoTime() - start) / 1e6 / count);
+            }
+            for (Summary summary : results) {
+                if (!summary.profile.equals(profile.name()) || !avgMs.containsKey(summary.algorithm)) continue;
+                summary.avgMs = avgMs.get(summary.algorithm);
+                summary.speedup = avgMs.get(Algorithm.DIJKSTRA) / summary.avgMs;
+            }
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    static void printTable(List<Summary> results) {
+        System.out.println();
+        System.out.println(String.format("%-10s %-9s %8s %10s %10s %10s %8s",
+            "profile", "algorithm", "queries", "dist-diff", "path-diff", "avg ms", "speedup"));
+        for (Summary s : results) {
+            System.out.println(String.format(Locale.ROOT, "%-10s %-9s %8d %10d %10d %10.3f %7.1fx",
+                s.profile, s.algorithm, s.queries, s.distanceMismatches, s.pathMismatches, s.avgMs, s.speedup));
+        }
+    }
+}
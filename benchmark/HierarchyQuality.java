@@ -0,0 +1,94 @@
+package benchmark;
+
+import java.util.*;
+import graph.GraphSimplifier;
+import models.*;
+
+/**
+ * Quality figures of a contracted graph: edges per node after adding
+ * shortcuts, number of levels, hierarchy depth (longest chain of edges
+ * going strictly up in level) and the size of the upward search spaces,
+ * i.e. the nodes a CH query can reach from a source before pruning. Search
+ * spaces are measured on a seeded sample of nodes.
+ */
+public class HierarchyQuality {
+    public int nodes;
+    public long edges;
+    public long shortcuts;
+    public int maxLevel;
+    public int depth;
+    public double avgUpwardSearchSpace;
+    public int maxUpwardSearchSpace;
+
+    public double edgesPerNode() {
+        return nodes == 0 ? 0 : edges / (double) nodes;
+    }
+
+    public static HierarchyQuality measure(Node[] graph, int samples, long seed) {
+        HierarchyQuality quality = new HierarchyQuality();
+        quality.nodes = graph.length;
+
+        Integer[] byLevel = new Integer[graph.length];
+        for (int id = 0; id < graph.length; id++) {
+            byLevel[id] = id;
+            quality.maxLevel = Math.max(quality.maxLevel, graph[id].level);
+            for (Edge edge : graph[id].outEdges) {
+                quality.edges++;
+                if (edge.isShortcut()) quality.shortcuts++;
+            }
+        }
+
+        // Profundidad: en orden de nivel, cada nodo queda uno por encima de su vecino más profundo de nivel menor
+        Arrays.sort(byLevel, Comparator.comparingInt(id -> graph[id].level));
+        int[] depth = new int[graph.length];
+        for (int id : byLevel) {
+            int level = graph[id].level;
+            for (Edge edge : graph[id].inEdges) {
+                if (graph[edge.from].level < level) depth[id] = Math.max(depth[id], depth[edge.from] + 1);
+            }
+            for (Edge edge : graph[id].outEdges) {
+                if (graph[edge.to].level < level) depth[id] = Math.max(depth[id], depth[edge.to] + 1);
+            }
+            quality.depth = Math.max(quality.depth, depth[id]);
+        }
+
+        List<Integer> candidates = new ArrayList<>();
+        for (int id = 0; id < graph.length; id++) {
+            if (!GraphSimplifier.isRemoved(graph[id])) candidates.add(id);
+        }
+        if (candidates.isEmpty()) return quality;
+
+        Random random = new Random(seed);
+        int[] visited = new int[graph.length];
+        int[] stack = new int[graph.length];
+        long total = 0;
+        int count = Math.min(samples, candidates.size());
+        for (int sample = 1; sample <= count; sample++) {
+            int source = candidates.get(random.nextInt(candidates.size()));
+            int size = upwardSearchSpace(graph, source, sample, visited, stack);
+            total += size;
+            quality.maxUpwardSearchSpace = Math.max(quality.maxUpwardSearchSpace, size);
+        }
+        quality.avgUpwardSearchSpace = total / (double) count;
+        return quality;
+    }
+
+    // Nodos alcanzables subiendo de nivel, como la búsqueda hacia adelante de BidirectionalSearch
+    private static int upwardSearchSpace(Node[] graph, int source, int stamp, int[] visited, int[] stack) {
+        int top = 0, size = 0;
+        stack[top++] = source;
+        visited[source] = stamp;
+        while (top > 0) {
+            int u = stack[--top];
+            size++;
+            for (Edge edge : graph[u].outEdges) {
+                if (edge.isProhibited() || visited[edge.to] == stamp) continue;
+                if (graph[edge.to].level > graph[u].level) {
+                    visited[edge.to] = stamp;
+                    stack[top++] = edge.to;
+                }
+            }
+        }
+        return size;
+    }
+}
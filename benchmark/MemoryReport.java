@@ -0,0 +1,257 @@
+package benchmark;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import algorithms.*;
+import graph.GraphSimplifier;
+import graph.PolylineStore;
+import loader.*;
+import metrics.ObjectLayout;
+import models.*;
+
+/**
+ * Heap retained by each major structure of the loaded graph, estimated with
+ * ObjectLayout, next to what a more compact representation would take.
+ * Structures are measured in table order and objects they share (e.g. a
+ * street name referenced by an edge, a route and streetNameMap) are charged
+ * to the first one, so each row is roughly what dropping it would free.
+ *
+ * The alternatives are computed, not built:
+ * - graph: struct-of-arrays adjacency (CSR) with int ids, int meters, float
+ *   custom weights and coded CSV attributes; search labels in per-query
+ *   arrays (SearchContext) instead of a Distance object per node.
+ * - shortcuts: target, weight and middle node for unpacking; no name.
+ * - loader maps and routes: not kept once the graph is built.
+ * - ALT landmarks: the "after" figure is what real landmark distance tables
+ *   (to and from every node) would add.
+ *
+ * Usage: java benchmark.MemoryReport [--csv main/rutas.csv] [--contract true] [--out memory.csv]
+ */
+public class MemoryReport {
+    public static class Entry {
+        public final String structure;
+        public final long objects;
+        public final long bytes;
+        public final String alternative;
+        public final long alternativeBytes;
+
+        Entry(String structure, long objects, long bytes, String alternative, long alternativeBytes) {
+            this.structure = structure;
+            this.objects = objects;
+            this.bytes = bytes;
+            this.alternative = alternative;
+            this.alternativeBytes = alternativeBytes;
+        }
+    }
+
+    // Bytes por arista en CSR: destino, origen, metros, peso float, nombre, atributos, geometría, índice entrante
+    private static final int CSR_EDGE_BYTES = 4 + 4 + 4 + 4 + 4 + 2 + 4 + 4;
+    // Shortcut: destino, peso y nodo intermedio para desempaquetar
+    private static final int CSR_SHORTCUT_BYTES = 4 + 4 + 4 + 4;
+    // El snapshot de geometría cuantiza cada vértice a 1e-7 grados
+    private static final double SNAPSHOT_TOLERANCE = 1e-7;
+
+    public static void main(String[] args) throws IOException {
+        String csv = "main/rutas.csv";
+        boolean contract = true;
+        String out = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--csv": csv = value; break;
+                case "--contract": contract = Boolean.parseBoolean(value); break;
+                case "--out": out = value; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        PrintStream console = System.out;
+        System.setOut(RoutingBenchmark.quietStream());
+        MapDataResult data;
+        try {
+            data = CSVRouteLoader.loadFromCSV(csv);
+            GraphSimplifier.simplify(data.graph, data.geometry);
+            if (contract) new ContractionHierarchies(data.graph).preprocess();
+        } finally {
+            System.setOut(console);
+        }
+
+        List<Entry> entries = measure(data, RoutingEngine.defaultLandmarks(data.graph));
+        print(entries);
+        if (data.geometry != null) checkGeometrySnapshot(data.geometry);
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        System.out.println(String.format(Locale.ROOT, "Heap used after GC: %.1f MB (estimate covers the loaded data only)",
+            (runtime.totalMemory() - runtime.freeMemory()) / (1024.0 * 1024.0)));
+        if (out != null) {
+            writeCsv(entries, out);
+            System.out.println("Report written to " + out);
+        }
+    }
+
+    /** Measures every structure of the loaded data; landmarks may be null. */
+    public static List<Entry> measure(MapDataResult data, List<Integer> landmarks) {
+        ObjectLayout layout = ObjectLayout.forCurrentVm();
+        Set<Object> visited = ObjectLayout.newVisitedSet();
+        List<Entry> entries = measureGraph(data.graph, layout, visited);
+        int nodes = data.graph.length;
+
+        entries.add(entry(layout, visited, "MapDataResult.routes", data.routes,
+            "dropped once the graph is built", 0));
+        entries.add(entry(layout, visited, "streetNameMap", data.streetNameMap,
+            "Edge.streetName / name ids", 0));
+        entries.add(entry(layout, visited, "idToCoord", data.idToCoord,
+            "nodeLon/nodeLat arrays", 0));
+        // Tabla de direccionamiento abierto con clave long (coordenada cuantizada), factor de carga 0.5
+        int slots = data.nodeIndex != null ? Integer.highestOneBit(Math.max(1, data.nodeIndex.size() * 2 - 1)) << 1 : 0;
+        entries.add(entry(layout, visited, "nodeIndex", data.nodeIndex, "long-keyed open addressing, load time only",
+            layout.arraySize(long.class, slots) + layout.arraySize(int.class, slots)));
+        long coordinates = layout.deepSize(data.nodeLon, visited) + layout.deepSize(data.nodeLat, visited);
+        entries.add(new Entry("nodeLon/nodeLat", data.nodeLon != null ? 2 : 0, coordinates, "float arrays",
+            data.nodeLon != null ? 2 * layout.arraySize(float.class, nodes) : 0));
+        long spatial = layout.deepSize(data.spatialIndex, visited);
+        entries.add(new Entry("NodeSpatialIndex", data.spatialIndex != null ? 1 : 0, spatial, "unchanged", spatial));
+        long geometry = layout.deepSize(data.geometry, visited);
+        entries.add(new Entry("PolylineStore", data.geometry != null ? 1 : 0, geometry, "unchanged", geometry));
+        if (landmarks != null) {
+            long bytes = layout.deepSize(landmarks, visited);
+            entries.add(new Entry("ALT landmarks", landmarks.size(), bytes, "distance tables to/from every node",
+                bytes + 2L * landmarks.size() * layout.arraySize(int.class, nodes)));
+        }
+        return entries;
+    }
+
+    /** Node array, adjacency lists, search labels, edges and shortcuts of a graph. */
+    public static List<Entry> measureGraph(Node[] graph, ObjectLayout layout, Set<Object> visited) {
+        long nodeBytes = layout.arraySize(Node.class, graph.length);
+        long labelBytes = 0, listBytes = 0, edgeBytes = 0, shortcutBytes = 0;
+        long nodes = 0, labels = 0, edges = 0, shortcuts = 0, viaNodes = 0;
+        List<Edge> edgeList = new ArrayList<>();
+        visited.add(graph);
+        for (Node node : graph) {
+            if (node == null || !visited.add(node)) continue;
+            nodes++;
+            nodeBytes += layout.shallowSize(Node.class);
+            if (node.distance != null) {
+                labels++;
+                labelBytes += layout.deepSize(node.distance, visited);
+            }
+            listBytes += listSize(node.outEdges, layout, visited) + listSize(node.inEdges, layout, visited);
+            edgeList.addAll(node.outEdges);
+            edgeList.addAll(node.inEdges);
+        }
+        // Aristas después de los nodos: cada una aparece en la lista de salida y en la de entrada
+        for (Edge edge : edgeList) {
+            if (visited.contains(edge)) continue;
+            long bytes = layout.deepSize(edge, visited);
+            if (edge.isShortcut()) {
+                shortcuts++;
+                shortcutBytes += bytes;
+            } else {
+                edges++;
+                edgeBytes += bytes;
+                if (edge.getViaNodes() != null) viaNodes += edge.getViaNodes().length;
+            }
+        }
+
+        long n = graph.length;
+        List<Entry> entries = new ArrayList<>();
+        entries.add(new Entry("Node[] + Node", nodes, nodeBytes, "CSR offsets, level and flags",
+            2 * layout.arraySize(int.class, n + 1) + layout.arraySize(int.class, n) + layout.arraySize(byte.class, n)));
+        entries.add(new Entry("Node.distance labels", labels, labelBytes, "per-query arrays (SearchContext)", 0));
+        entries.add(new Entry("outEdges/inEdges lists", 2 * nodes, listBytes, "contiguous CSR ranges", 0));
+        entries.add(new Entry("Edge (original)", edges, edgeBytes, "CSR edge arrays",
+            edges * CSR_EDGE_BYTES + layout.arraySize(int.class, viaNodes + edges + 1)));
+        entries.add(new Entry("CH shortcuts", shortcuts, shortcutBytes, "CSR shortcut arrays",
+            shortcuts * CSR_SHORTCUT_BYTES));
+        return entries;
+    }
+
+    /** Estimated bytes retained by the graph alone, for the benchmark reports. */
+    public static long graphBytes(Node[] graph) {
+        long total = 0;
+        for (Entry entry : measureGraph(graph, ObjectLayout.forCurrentVm(), ObjectLayout.newVisitedSet())) {
+            total += entry.bytes;
+        }
+        return total;
+    }
+
+    // Solo el contenedor: las aristas se cuentan aparte
+    private static long listSize(ArrayList<Edge> list, ObjectLayout layout, Set<Object> visited) {
+        if (list == null || !visited.add(list)) return 0;
+        return layout.shallowSize(ArrayList.class) + layout.arraySize(Object.class, ObjectLayout.listCapacity(list.size()));
+    }
+
+    private static Entry entry(ObjectLayout layout, Set<Object> visited, String name, Object root,
+                               String alternative, long alternativeBytes) {
+        long objects = root instanceof Map ? ((Map<?, ?>) root).size()
+                     : root instanceof Collection ? ((Collection<?>) root).size() : root != null ? 1 : 0;
+        return new Entry(name, objects, layout.deepSize(root, visited), alternative, alternativeBytes);
+    }
+
+    static void print(List<Entry> entries) {
+        long total = 0, alternativeTotal = 0;
+        System.out.println();
+        System.out.println(String.format("%-24s %10s %11s %8s   %-42s %11s", "structure", "objects", "bytes", "MB",
+            "alternative", "alt MB"));
+        for (Entry e : entries) {
+            System.out.println(String.format(Locale.ROOT, "%-24s %10d %11d %8.2f   %-42s %11.2f", e.structure, e.objects,
+                e.bytes, mb(e.bytes), e.alternative, mb(e.alternativeBytes)));
+            total += e.bytes;
+            alternativeTotal += e.alternativeBytes;
+        }
+        System.out.println(String.format(Locale.ROOT, "%-24s %10s %11d %8.2f   %-42s %11.2f", "total", "", total, mb(total),
+            "", mb(alternativeTotal)));
+    }
+
+    /**
+     * Writes the polyline pool with PolylineStore.writeTo, reads it back and
+     * checks that every polyline keeps its point count and every vertex
+     * stays within the 1e-7 degree quantization of the format.
+     */
+    static void checkGeometrySnapshot(PolylineStore geometry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            geometry.writeTo(out);
+        }
+        PolylineStore copy = PolylineStore.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        if (copy.size() != geometry.size()) {
+            throw new IllegalStateException("Snapshot has " + copy.size() + " polylines, expected " + geometry.size());
+        }
+        double maxError = 0;
+        for (int id = 0; id < geometry.size(); id++) {
+            if (copy.pointCount(id) != geometry.pointCount(id)) {
+                throw new IllegalStateException("Polyline " + id + " has " + copy.pointCount(id)
+                    + " points after the snapshot, expected " + geometry.pointCount(id));
+            }
+            for (int k = 0; k < geometry.pointCount(id); k++) {
+                maxError = Math.max(maxError, Math.abs(copy.getLon(id, k, false) - geometry.getLon(id, k, false)));
+                maxError = Math.max(maxError, Math.abs(copy.getLat(id, k, false) - geometry.getLat(id, k, false)));
+            }
+        }
+        if (maxError > SNAPSHOT_TOLERANCE) {
+            throw new IllegalStateException(String.format(Locale.ROOT,
+                "Snapshot moved a vertex by %.1e degrees (tolerance %.0e)", maxError, SNAPSHOT_TOLERANCE));
+        }
+        System.out.println(String.format(Locale.ROOT,
+            "PolylineStore snapshot: %.2f MB for %d points, max round-trip error %.1e degrees",
+            mb(bytes.size()), geometry.totalPoints(), maxError));
+    }
+
+    static void writeCsv(List<Entry> entries, String file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8))) {
+            out.println("structure,objects,bytes,alternative,alternative_bytes");
+            for (Entry e : entries) {
+                out.println(String.format(Locale.ROOT, "%s,%d,%d,%s,%d", e.structure, e.objects, e.bytes,
+                    e.alternative.replace(',', ';'), e.alternativeBytes));
+            }
+        }
+    }
+
+    private static double mb(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+}
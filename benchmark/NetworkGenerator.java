@@ -0,0 +1,546 @@
+package benchmark;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Writes synthetic street networks as CSV files in the 23-column schema read
+ * by CSVRouteLoader, so the loader, the GUI and the benchmarks can be run on
+ * networks many times larger than the real one.
+ *
+ * - grid: perturbed Manhattan grid around Buenos Aires. Whole streets share
+ *   their class: an avenue every 8 lines, a highway every 64, bike lanes on
+ *   some local streets, and one-way streets alternating direction by line.
+ * - geometric: random geometric graph, each intersection joined to its
+ *   nearest neighbours; segment classes are drawn with the same overall
+ *   proportions as the grid.
+ *
+ * One-way segments that would leave part of the network unreachable (their
+ * ends fall in different strongly connected components) are turned two-way,
+ * so the final one-way ratio can be slightly below the requested one.
+ * Pedestrian segments (sentido PEATONAL) load as a single directed edge, so
+ * they count as one-way here too.
+ *
+ * Usage: java benchmark.NetworkGenerator [--type grid|geometric] [--nodes 100000]
+ *        [--one-way 0.8] [--seed 42] [--out synthetic.csv]
+ */
+public class NetworkGenerator {
+    private static final String HEADER = "id,codigo,nomoficial,a,b,c,d,nomanter,nom_mapa,tipo_c,long,sentido,observa,"
+        + "bicisenda,red_jerarq,tipo_ffcc,comuna,com_par,com_impar,barrio,barrio_par,barrio_imp,geometry";
+
+    // Origen de coordenadas y cuadra típica de Buenos Aires
+    private static final double ORIGIN_LON = -58.53;
+    private static final double ORIGIN_LAT = -34.70;
+    private static final double BLOCK_METERS = 100;
+    private static final double METERS_PER_DEGREE_LAT = 111_320;
+    private static final double METERS_PER_DEGREE_LON = METERS_PER_DEGREE_LAT * Math.cos(Math.toRadians(ORIGIN_LAT));
+
+    private static final int AVENUE_EVERY = 8;
+    private static final int HIGHWAY_EVERY = 64;
+    private static final int BIKE_LANE_EVERY = 12;
+    private static final double MISSING_SEGMENT_RATIO = 0.03;
+    private static final double JITTER = 0.15;
+    private static final int NEAREST_NEIGHBOURS = 3;
+
+    // Proporciones por segmento para el grafo geométrico, similares a las de la grilla
+    private static final double HIGHWAY_RATIO = 0.015;
+    private static final double AVENUE_RATIO = 0.12;
+    private static final double PASSAGE_RATIO = 0.04;
+    private static final double PEDESTRIAN_RATIO = 0.01;
+    private static final double BIKE_LANE_RATIO = 0.07;
+
+    enum RoadClass {
+        HIGHWAY("AUTOPISTA", "VIA TRONCAL", "AU."),
+        MAIN_AVENUE("AVENIDA", "VIA DISTRIBUIDORA PRINCIPAL", "AV."),
+        AVENUE("AVENIDA", "VIA DISTRIBUIDORA COMPLEMENTARIA", "AV."),
+        STREET("CALLE", "VIA LOCAL", "CALLE"),
+        PASSAGE("PASAJE", "VIA LOCAL", "PJE."),
+        PEDESTRIAN("CALLE PEATONAL", "VIA LOCAL", "PEATONAL");
+
+        final String tipoC;
+        final String redJerarq;
+        final String prefix;
+
+        RoadClass(String tipoC, String redJerarq, String prefix) {
+            this.tipoC = tipoC;
+            this.redJerarq = redJerarq;
+            this.prefix = prefix;
+        }
+    }
+
+    private static final RoadClass[] CLASSES = RoadClass.values();
+    private static final String[] AXES = {"", " OESTE", " NORTE"};
+
+    private final Random random;
+    private final double oneWayRatio;
+
+    // Intersecciones
+    private double[] lon;
+    private double[] lat;
+
+    // Segmentos, en el sentido de circulación si son de una mano
+    private int segmentCount;
+    private int[] from = new int[1024];
+    private int[] to = new int[1024];
+    private int[] code = new int[1024];
+    private byte[] roadClass = new byte[1024];
+    private byte[] axis = new byte[1024];
+    private boolean[] oneWay = new boolean[1024];
+    private boolean[] bikeLane = new boolean[1024];
+
+    NetworkGenerator(long seed, double oneWayRatio) {
+        this.random = new Random(seed);
+        this.oneWayRatio = oneWayRatio;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String type = "grid";
+        int nodes = 100_000;
+        double oneWay = 0.8;
+        long seed = 42;
+        String output = "synthetic.csv";
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--type": type = value; break;
+                case "--nodes": nodes = Integer.parseInt(value); break;
+                case "--one-way": oneWay = Double.parseDouble(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--out": output = value; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        long startTime = System.currentTimeMillis();
+        NetworkGenerator generator = new NetworkGenerator(seed, oneWay);
+        switch (type) {
+            case "grid": generator.grid(nodes); break;
+            case "geometric": generator.geometric(nodes); break;
+            default: throw new IllegalArgumentException("Unknown network type: " + type);
+        }
+        int converted = generator.ensureStronglyConnected();
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8), 1 << 16)) {
+            generator.write(writer);
+        }
+
+        int oneWaySegments = 0;
+        for (int s = 0; s < generator.segmentCount; s++) {
+            if (generator.oneWay[s]) oneWaySegments++;
+        }
+        System.out.println(String.format(Locale.ROOT,
+            "Wrote %d intersections and %d segments (%s, %.1f%% one-way, %d made two-way for connectivity) to %s in %d ms",
+            generator.lon.length, generator.segmentCount, type, 100.0 * oneWaySegments / Math.max(1, generator.segmentCount),
+            converted, output, System.currentTimeMillis() - startTime));
+    }
+
+    private void addSegment(int a, int b, RoadClass cls, int segmentCode, int segmentAxis, boolean isOneWay,
+                            boolean hasBikeLane) {
+        if (segmentCount == from.length) {
+            int capacity = from.length * 2;
+            from = Arrays.copyOf(from, capacity);
+            to = Arrays.copyOf(to, capacity);
+            code = Arrays.copyOf(code, capacity);
+            roadClass = Arrays.copyOf(roadClass, capacity);
+            axis = Arrays.copyOf(axis, capacity);
+            oneWay = Arrays.copyOf(oneWay, capacity);
+            bikeLane = Arrays.copyOf(bikeLane, capacity);
+        }
+        from[segmentCount] = a;
+        to[segmentCount] = b;
+        code[segmentCount] = segmentCode;
+        roadClass[segmentCount] = (byte) cls.ordinal();
+        axis[segmentCount] = (byte) segmentAxis;
+        oneWay[segmentCount] = isOneWay;
+        bikeLane[segmentCount] = hasBikeLane;
+        segmentCount++;
+    }
+
+    private double jitter() {
+        return (random.nextDouble() * 2 - 1) * JITTER;
+    }
+
+    // ===================== GRILLA =====================
+
+    void grid(int nodes) {
+        int side = Math.max(2, (int) Math.round(Math.sqrt(nodes)));
+        lon = new double[side * side];
+        lat = new double[side * side];
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                int id = row * side + col;
+                lon[id] = ORIGIN_LON + (col + jitter()) * BLOCK_METERS / METERS_PER_DEGREE_LON;
+                lat[id] = ORIGIN_LAT + (row + jitter()) * BLOCK_METERS / METERS_PER_DEGREE_LAT;
+            }
+        }
+
+        // Filas: calles horizontales (eje 1); columnas: verticales (eje 2)
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col + 1 < side; col++) {
+                int a = row * side + col;
+                addGridSegment(a, a + 1, row, 1);
+            }
+        }
+        for (int col = 0; col < side; col++) {
+            for (int row = 0; row + 1 < side; row++) {
+                int a = row * side + col;
+                addGridSegment(a, a + side, col, 2);
+            }
+        }
+    }
+
+    // Clase y sentido dependen solo de la línea: toda la calle los comparte
+    private RoadClass lineClass(int index, int lineAxis) {
+        if (index % HIGHWAY_EVERY == HIGHWAY_EVERY / 2) return RoadClass.HIGHWAY;
+        if (index % AVENUE_EVERY == 0) return index % (2 * AVENUE_EVERY) == 0 ? RoadClass.MAIN_AVENUE : RoadClass.AVENUE;
+        double r = lineRandom(index, lineAxis, 1);
+        return r < PASSAGE_RATIO ? RoadClass.PASSAGE
+             : r < PASSAGE_RATIO + PEDESTRIAN_RATIO ? RoadClass.PEDESTRIAN : RoadClass.STREET;
+    }
+
+    private boolean lineOneWay(int index, int lineAxis, RoadClass cls) {
+        // CSVRouteLoader solo agrega la vuelta con sentido DOBLE: una peatonal se carga de una mano
+        if (cls == RoadClass.PEDESTRIAN) return true;
+        // Autopistas y avenidas principales de doble mano
+        if (cls == RoadClass.HIGHWAY || cls == RoadClass.MAIN_AVENUE) return false;
+        return lineRandom(index, lineAxis, 2) < oneWayRatio;
+    }
+
+    // Número pseudoaleatorio fijo por línea, independiente del orden de generación
+    private static double lineRandom(int index, int lineAxis, int salt) {
+        long h = index * 0x9E3779B97F4A7C15L + lineAxis * 0xC2B2AE3D27D4EB4FL + salt * 0x165667B19E3779F9L;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (h >>> 11) * 0x1.0p-53;
+    }
+
+    private void addGridSegment(int a, int b, int index, int lineAxis) {
+        RoadClass cls = lineClass(index, lineAxis);
+        boolean arterial = cls == RoadClass.HIGHWAY || cls == RoadClass.MAIN_AVENUE || cls == RoadClass.AVENUE;
+        if (!arterial && random.nextDouble() < MISSING_SEGMENT_RATIO) return;
+        boolean isOneWay = lineOneWay(index, lineAxis, cls);
+        boolean hasBikeLane = cls == RoadClass.STREET && index % BIKE_LANE_EVERY == BIKE_LANE_EVERY / 2;
+        // Manos alternadas: las líneas impares circulan en sentido decreciente
+        if (isOneWay && index % 2 == 1) {
+            addSegment(b, a, cls, index, lineAxis, true, hasBikeLane);
+        } else {
+            addSegment(a, b, cls, index, lineAxis, isOneWay, hasBikeLane);
+        }
+    }
+
+    // ===================== GRAFO GEOMÉTRICO =====================
+
+    void geometric(int nodes) {
+        double sideMeters = Math.sqrt(nodes) * BLOCK_METERS;
+        double[] x = new double[nodes];
+        double[] y = new double[nodes];
+        lon = new double[nodes];
+        lat = new double[nodes];
+        for (int i = 0; i < nodes; i++) {
+            x[i] = random.nextDouble() * sideMeters;
+            y[i] = random.nextDouble() * sideMeters;
+            lon[i] = ORIGIN_LON + x[i] / METERS_PER_DEGREE_LON;
+            lat[i] = ORIGIN_LAT + y[i] / METERS_PER_DEGREE_LAT;
+        }
+
+        // Celdas de una cuadra: los vecinos más cercanos están en las celdas de alrededor
+        int cells = Math.max(1, (int) Math.ceil(sideMeters / BLOCK_METERS));
+        int[] cellStart = new int[cells * cells + 1];
+        int[] cellOf = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            cellOf[i] = cell(x[i], cells) * cells + cell(y[i], cells);
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < cells * cells; c++) cellStart[c + 1] += cellStart[c];
+        int[] cellNodes = new int[nodes];
+        int[] fill = Arrays.copyOf(cellStart, cellStart.length);
+        for (int i = 0; i < nodes; i++) cellNodes[fill[cellOf[i]]++] = i;
+
+        int[] nearest = new int[nodes * NEAREST_NEIGHBOURS];
+        Arrays.fill(nearest, -1);
+        double[] best = new double[NEAREST_NEIGHBOURS];
+        for (int i = 0; i < nodes; i++) {
+            Arrays.fill(best, Double.MAX_VALUE);
+            int cx = cell(x[i], cells), cy = cell(y[i], cells);
+            for (int radius = 1; radius <= cells; radius++) {
+                for (int gx = Math.max(0, cx - radius); gx <= Math.min(cells - 1, cx + radius); gx++) {
+                    for (int gy = Math.max(0, cy - radius); gy <= Math.min(cells - 1, cy + radius); gy++) {
+                        // Solo el anillo nuevo; el interior ya se revisó
+                        if (radius > 1 && Math.abs(gx - cx) < radius && Math.abs(gy - cy) < radius) continue;
+                        int c = gx * cells + gy;
+                        for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                            int j = cellNodes[k];
+                            if (j == i) continue;
+                            double d = (x[i] - x[j]) * (x[i] - x[j]) + (y[i] - y[j]) * (y[i] - y[j]);
+                            insertNearest(nearest, i, best, j, d);
+                        }
+                    }
+                }
+                // Ningún nodo fuera del cuadrado revisado puede estar más cerca que su borde
+                double covered = radius * BLOCK_METERS;
+                if (best[NEAREST_NEIGHBOURS - 1] <= covered * covered) break;
+            }
+        }
+
+        for (int i = 0; i < nodes; i++) {
+            for (int k = 0; k < NEAREST_NEIGHBOURS; k++) {
+                int j = nearest[i * NEAREST_NEIGHBOURS + k];
+                // Cada par una sola vez, aunque ambos se tengan como vecinos
+                if (j < 0 || (j < i && contains(nearest, j, i))) continue;
+                addGeometricSegment(i, j);
+            }
+        }
+        orientAlongDepthFirstSearch();
+    }
+
+    private static int cell(double coordinate, int cells) {
+        return Math.min(cells - 1, (int) (coordinate / BLOCK_METERS));
+    }
+
+    private static void insertNearest(int[] nearest, int node, double[] best, int candidate, double distance) {
+        int base = node * NEAREST_NEIGHBOURS;
+        int pos = NEAREST_NEIGHBOURS - 1;
+        if (distance >= best[pos]) return;
+        while (pos > 0 && best[pos - 1] > distance) {
+            best[pos] = best[pos - 1];
+            nearest[base + pos] = nearest[base + pos - 1];
+            pos--;
+        }
+        best[pos] = distance;
+        nearest[base + pos] = candidate;
+    }
+
+    private static boolean contains(int[] nearest, int node, int candidate) {
+        for (int k = 0; k < NEAREST_NEIGHBOURS; k++) {
+            if (nearest[node * NEAREST_NEIGHBOURS + k] == candidate) return true;
+        }
+        return false;
+    }
+
+    private void addGeometricSegment(int a, int b) {
+        double r = random.nextDouble();
+        RoadClass cls = r < HIGHWAY_RATIO ? RoadClass.HIGHWAY
+                      : r < HIGHWAY_RATIO + AVENUE_RATIO / 2 ? RoadClass.MAIN_AVENUE
+                      : r < HIGHWAY_RATIO + AVENUE_RATIO ? RoadClass.AVENUE
+                      : r < HIGHWAY_RATIO + AVENUE_RATIO + PASSAGE_RATIO ? RoadClass.PASSAGE
+                      : r < HIGHWAY_RATIO + AVENUE_RATIO + PASSAGE_RATIO + PEDESTRIAN_RATIO ? RoadClass.PEDESTRIAN
+                      : RoadClass.STREET;
+        boolean isOneWay = cls == RoadClass.PEDESTRIAN || (cls != RoadClass.HIGHWAY && random.nextDouble() < oneWayRatio);
+        boolean hasBikeLane = cls == RoadClass.STREET && random.nextDouble() < BIKE_LANE_RATIO;
+        addSegment(a, b, cls, a, 0, isOneWay, hasBikeLane);
+    }
+
+    /**
+     * Orients one-way segments as a depth-first search meets them: tree
+     * segments away from the root, the rest back towards the ancestor. Only
+     * bridges are then left between strongly connected components (Robbins),
+     * whereas a random orientation strands most of the network.
+     */
+    private void orientAlongDepthFirstSearch() {
+        int n = lon.length;
+        int[] start = new int[n + 1];
+        for (int s = 0; s < segmentCount; s++) {
+            start[from[s] + 1]++;
+            start[to[s] + 1]++;
+        }
+        for (int i = 0; i < n; i++) start[i + 1] += start[i];
+        int[] incident = new int[start[n]];
+        int[] fill = Arrays.copyOf(start, n);
+        for (int s = 0; s < segmentCount; s++) {
+            incident[fill[from[s]]++] = s;
+            incident[fill[to[s]]++] = s;
+        }
+
+        int[] depth = new int[n];
+        Arrays.fill(depth, -1);
+        int[] edgePos = new int[n];
+        int[] stack = new int[n];
+        boolean[] oriented = new boolean[segmentCount];
+        for (int root = 0; root < n; root++) {
+            if (depth[root] != -1) continue;
+            int top = 0;
+            stack[top++] = root;
+            depth[root] = 0;
+            edgePos[root] = start[root];
+            while (top > 0) {
+                int v = stack[top - 1];
+                if (edgePos[v] == start[v + 1]) {
+                    top--;
+                    continue;
+                }
+                int s = incident[edgePos[v]++];
+                if (oriented[s]) continue;
+                oriented[s] = true;
+                int w = from[s] == v ? to[s] : from[s];
+                if (depth[w] == -1) {
+                    depth[w] = depth[v] + 1;
+                    edgePos[w] = start[w];
+                    stack[top++] = w;
+                }
+                // Árbol: de v hacia el hijo; retroceso: del descendiente v hacia el ancestro w
+                from[s] = v;
+                to[s] = w;
+                code[s] = v;
+            }
+        }
+    }
+
+    // ===================== CONECTIVIDAD =====================
+
+    /**
+     * Makes two-way every one-way segment whose ends lie in different strongly
+     * connected components. Afterwards any two intersections joined by an
+     * undirected path are mutually reachable.
+     * @return number of segments made two-way
+     */
+    int ensureStronglyConnected() {
+        int n = lon.length;
+        // Adyacencia dirigida en formato CSR
+        int[] start = new int[n + 1];
+        for (int s = 0; s < segmentCount; s++) {
+            start[from[s] + 1]++;
+            if (!oneWay[s]) start[to[s] + 1]++;
+        }
+        for (int i = 0; i < n; i++) start[i + 1] += start[i];
+        int[] targets = new int[start[n]];
+        int[] fill = Arrays.copyOf(start, n);
+        for (int s = 0; s < segmentCount; s++) {
+            targets[fill[from[s]]++] = to[s];
+            if (!oneWay[s]) targets[fill[to[s]]++] = from[s];
+        }
+
+        int[] component = stronglyConnectedComponents(n, start, targets);
+        int converted = 0;
+        for (int s = 0; s < segmentCount; s++) {
+            if (oneWay[s] && component[from[s]] != component[to[s]]) {
+                oneWay[s] = false;
+                converted++;
+            }
+        }
+        return converted;
+    }
+
+    // Tarjan iterativo: con millones de nodos la versión recursiva desborda la pila
+    private static int[] stronglyConnectedComponents(int n, int[] start, int[] targets) {
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] component = new int[n];
+        int[] edgePos = new int[n];
+        int[] callStack = new int[n];
+        int[] sccStack = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(index, -1);
+        int nextIndex = 0, components = 0, sccTop = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] != -1) continue;
+            int callTop = 0;
+            callStack[callTop++] = root;
+            index[root] = low[root] = nextIndex++;
+            edgePos[root] = start[root];
+            sccStack[sccTop++] = root;
+            onStack[root] = true;
+
+            while (callTop > 0) {
+                int v = callStack[callTop - 1];
+                if (edgePos[v] < start[v + 1]) {
+                    int w = targets[edgePos[v]++];
+                    if (index[w] == -1) {
+                        index[w] = low[w] = nextIndex++;
+                        edgePos[w] = start[w];
+                        sccStack[sccTop++] = w;
+                        onStack[w] = true;
+                        callStack[callTop++] = w;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                callTop--;
+                if (callTop > 0) {
+                    int parent = callStack[callTop - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = sccStack[--sccTop];
+                        onStack[w] = false;
+                        component[w] = components;
+                    } while (w != v);
+                    components++;
+                }
+            }
+        }
+        return component;
+    }
+
+    // ===================== SALIDA =====================
+
+    /**
+     * Writes the CSV. Each line is wrapped in quotes and quoted fields use
+     * doubled quotes, as in the published dataset. A bend point in the
+     * middle makes every geometry a real polyline; the length follows it.
+     */
+    void write(Writer out) throws IOException {
+        StringBuilder line = new StringBuilder(256);
+        out.write('"');
+        out.write(HEADER);
+        out.write("\"\n");
+
+        for (int s = 0; s < segmentCount; s++) {
+            RoadClass cls = CLASSES[roadClass[s]];
+            double lon1 = lon[from[s]], lat1 = lat[from[s]];
+            double lon2 = lon[to[s]], lat2 = lat[to[s]];
+            double midLon = (lon1 + lon2) / 2 + jitter() * 0.1 * (lat2 - lat1);
+            double midLat = (lat1 + lat2) / 2 + jitter() * 0.1 * (lon1 - lon2);
+            long length = Math.max(1, Math.round(meters(lon1, lat1, midLon, midLat) + meters(midLon, midLat, lon2, lat2)));
+            String name = cls.prefix + AXES[axis[s]] + " " + code[s];
+            // Una peatonal que la conectividad pasó a doble mano se escribe DOBLE; tipo_c la sigue marcando peatonal
+            String sentido = !oneWay[s] ? "DOBLE" : cls == RoadClass.PEDESTRIAN ? "PEATONAL"
+                           : code[s] % 2 == 0 ? "CRECIENTE" : "DECRECIENTE";
+
+            line.setLength(0);
+            line.append('"').append(s + 1).append(',').append(code[s]).append(",\"\"").append(name)
+                .append("\"\",0,0,0,0,,\"\"").append(name).append("\"\",").append(cls.tipoC).append(',')
+                .append(length).append(',').append(sentido).append(",,").append(bikeLane[s] ? "BICISENDA" : "")
+                .append(',').append(cls.redJerarq).append(",Sin,1.0,1.0,1.0,X,X,X,\"\"LINESTRING (");
+            appendPoint(line, lon1, lat1);
+            line.append(", ");
+            appendPoint(line, midLon, midLat);
+            line.append(", ");
+            appendPoint(line, lon2, lat2);
+            line.append(")\"\"\"\n");
+            out.append(line);
+        }
+    }
+
+    // 7 decimales fijos: el loader identifica las intersecciones por el texto exacto de la coordenada
+    private static void appendPoint(StringBuilder line, double lon, double lat) {
+        appendFixed(line, lon);
+        line.append(' ');
+        appendFixed(line, lat);
+    }
+
+    private static void appendFixed(StringBuilder line, double value) {
+        long scaled = Math.round(value * 1e7);
+        if (scaled < 0) {
+            line.append('-');
+            scaled = -scaled;
+        }
+        line.append(scaled / 10_000_000).append('.');
+        String fraction = Long.toString(scaled % 10_000_000);
+        for (int i = fraction.length(); i < 7; i++) line.append('0');
+        line.append(fraction);
+    }
+
+    private static double meters(double lon1, double lat1, double lon2, double lat2) {
+        double dx = (lon2 - lon1) * METERS_PER_DEGREE_LON;
+        double dy = (lat2 - lat1) * METERS_PER_DEGREE_LAT;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,210 @@
+package benchmark;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import algorithms.*;
+import graph.GraphSimplifier;
+import loader.*;
+import models.*;
+
+/**
+ * Contraction Hierarchies preprocessing benchmark. Contracts the real graph
+ * and synthetic grids of growing size with each ordering strategy, several
+ * times each on a fresh copy of the graph, and reports phase timings,
+ * shortcuts, edges per node, levels, hierarchy depth, upward search space
+ * sizes, peak heap growth and the estimated size of the contracted graph
+ * (MemoryReport). The median run of each case is summarized so
+ * the scaling with graph size and the orderings can be compared.
+ *
+ * Usage: java benchmark.PreprocessingBenchmark [--csv main/rutas.csv|none] [--sizes 1000,4000,16000]
+ *        [--strategies DEFAULT,EDGE_DIFFERENCE,DEGREE] [--runs 3] [--samples 500] [--seed 42] [--out report.csv]
+ */
+public class PreprocessingBenchmark {
+
+    public static class Run {
+        public String graphName;
+        public ContractionHierarchies.OrderingStrategy strategy;
+        public int run;
+        public PreprocessingStats stats;
+        public HierarchyQuality quality;
+        public long peakHeapBytes;
+        public long graphBytes;     // estimación de MemoryReport tras contraer
+    }
+
+    // Fuente de grafos nuevos: el preprocesamiento agrega shortcuts, así que cada corrida parte de una copia limpia
+    interface GraphSource {
+        Node[] load() throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String csv = "main/rutas.csv";
+        int[] sizes = {1000, 4000, 16000};
+        List<ContractionHierarchies.OrderingStrategy> strategies =
+            Arrays.asList(ContractionHierarchies.OrderingStrategy.values());
+        int runs = 3;
+        int samples = 500;
+        long seed = 42;
+        String out = null;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--csv": csv = value; break;
+                case "--sizes":
+                    sizes = value.isEmpty() ? new int[0]
+                          : Arrays.stream(value.split(",")).mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+                    break;
+                case "--strategies":
+                    strategies = new ArrayList<>();
+                    for (String name : value.split(",")) {
+                        strategies.add(ContractionHierarchies.OrderingStrategy.valueOf(name.trim().toUpperCase()));
+                    }
+                    break;
+                case "--runs": runs = Integer.parseInt(value); break;
+                case "--samples": samples = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--out": out = value; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Map<String, GraphSource> sources = new LinkedHashMap<>();
+        if (!csv.equalsIgnoreCase("none")) {
+            String file = csv;
+            sources.put(Paths.get(csv).getFileName().toString(), () -> {
+                MapDataResult data = CSVRouteLoader.loadFromCSV(file);
+                GraphSimplifier.simplify(data.graph, data.geometry);
+                return data.graph;
+            });
+        }
+        for (int size : sizes) {
+            long graphSeed = seed;
+            sources.put("grid-" + size, () -> SyntheticGraph.grid(size, graphSeed));
+        }
+
+        List<Run> results = new ArrayList<>();
+        PrintStream console = System.out;
+        for (Map.Entry<String, GraphSource> source : sources.entrySet()) {
+            for (ContractionHierarchies.OrderingStrategy strategy : strategies) {
+                for (int run = 1; run <= runs; run++) {
+                    System.setOut(RoutingBenchmark.quietStream());
+                    Run result;
+                    try {
+                        result = runOnce(source.getValue().load(), strategy, samples, seed);
+                    } finally {
+                        System.setOut(console);
+                    }
+                    result.graphName = source.getKey();
+                    result.run = run;
+                    results.add(result);
+                    console.println(String.format(Locale.ROOT, "%s %s run %d: %.0f ms, %d shortcuts",
+                        result.graphName, strategy, run, result.stats.totalMs, result.stats.shortcutsAdded));
+                }
+            }
+        }
+
+        printReport(results);
+        if (out != null) {
+            writeCsv(results, out);
+            System.out.println("Report written to " + out);
+        }
+    }
+
+    public static Run runOnce(Node[] graph, ContractionHierarchies.OrderingStrategy strategy, int samples, long seed) {
+        Run result = new Run();
+        result.strategy = strategy;
+
+        // Crecimiento del heap sobre lo que ocupa el grafo cargado
+        System.gc();
+        long baseline = heapUsed();
+        resetPeaks();
+
+        ContractionHierarchies ch = new ContractionHierarchies(graph);
+        ch.setOrderingStrategy(strategy);
+        ch.preprocess();
+
+        result.peakHeapBytes = Math.max(0, heapPeak() - baseline);
+        result.stats = ch.getPreprocessingStats();
+        result.quality = HierarchyQuality.measure(graph, samples, seed);
+        result.graphBytes = MemoryReport.graphBytes(graph);
+        return result;
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) pools.add(pool);
+        }
+        return pools;
+    }
+
+    private static void resetPeaks() {
+        for (MemoryPoolMXBean pool : heapPools()) pool.resetPeakUsage();
+    }
+
+    private static long heapUsed() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools()) used += pool.getUsage().getUsed();
+        return used;
+    }
+
+    // Suma de los picos de cada pool: cota superior, los picos no son simultáneos
+    private static long heapPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools()) peak += pool.getPeakUsage().getUsed();
+        return peak;
+    }
+
+    static void printReport(List<Run> results) {
+        String header = String.format("%-14s %-15s %4s %9s %8s %9s %9s %8s %9s %7s %8s %6s %8s %8s %8s %8s",
+            "graph", "strategy", "run", "total ms", "order", "contract", "witness", "update",
+            "shortcuts", "edge/n", "levels", "depth", "avg up", "max up", "peak MB", "graph MB");
+        System.out.println();
+        System.out.println(header);
+        for (Run r : results) System.out.println(row(r, String.valueOf(r.run)));
+
+        // Mediana por grafo y estrategia según el tiempo total
+        System.out.println();
+        System.out.println("Median runs");
+        System.out.println(header);
+        Map<String, List<Run>> groups = new LinkedHashMap<>();
+        for (Run r : results) {
+            groups.computeIfAbsent(r.graphName + "/" + r.strategy, key -> new ArrayList<>()).add(r);
+        }
+        for (List<Run> group : groups.values()) {
+            group.sort(Comparator.comparingDouble(r -> r.stats.totalMs));
+            System.out.println(row(group.get(group.size() / 2), "med"));
+        }
+    }
+
+    private static String row(Run r, String run) {
+        return String.format(Locale.ROOT, "%-14s %-15s %4s %9.0f %8.0f %9.0f %9.0f %8.0f %9d %7.2f %8d %6d %8.1f %8d %8.1f %8.1f",
+            r.graphName, r.strategy, run, r.stats.totalMs, r.stats.initialOrderingMs, r.stats.contractionMs,
+            r.stats.witnessSearchMs, r.stats.neighborUpdateMs, r.stats.shortcutsAdded,
+            r.quality.edgesPerNode(), r.quality.maxLevel + 1, r.quality.depth,
+            r.quality.avgUpwardSearchSpace, r.quality.maxUpwardSearchSpace, r.peakHeapBytes / (1024.0 * 1024.0),
+            r.graphBytes / (1024.0 * 1024.0));
+    }
+
+    static void writeCsv(List<Run> results, String file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8))) {
+            out.println("graph,nodes,strategy,run,total_ms,ordering_ms,contraction_ms,witness_ms,update_ms,"
+                      + "witness_searches,reinsertions,shortcuts,edges_per_node,levels,depth,"
+                      + "avg_upward_search_space,max_upward_search_space,peak_heap_bytes,graph_bytes");
+            for (Run r : results) {
+                out.println(String.format(Locale.ROOT, "%s,%d,%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d,%d,%.4f,%d,%d,%.2f,%d,%d,%d",
+                    r.graphName, r.stats.nodes, r.strategy, r.run, r.stats.totalMs, r.stats.initialOrderingMs,
+                    r.stats.contractionMs, r.stats.witnessSearchMs, r.stats.neighborUpdateMs,
+                    r.stats.witnessSearches, r.stats.lazyReinsertions, r.stats.shortcutsAdded,
+                    r.quality.edgesPerNode(), r.quality.maxLevel + 1, r.quality.depth,
+                    r.quality.avgUpwardSearchSpace, r.quality.maxUpwardSearchSpace, r.peakHeapBytes, r.graphBytes));
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package benchmark;
+
+import java.io.*;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import algorithms.*;
+import graph.GraphSimplifier;
+import loader.*;
+import metrics.LatencyHistogram;
+import metrics.QueryLog;
+import models.*;
+
+/**
+ * Re-issues a query log recorded by RoutingEngine (see QueryLog) with the
+ * original spacing between queries, N times faster, or as fast as possible,
+ * and reports throughput and latency percentiles next to the latencies
+ * that were logged.
+ *
+ * Response time is measured from the moment the query should have been
+ * issued by the schedule, so time spent waiting for a busy worker counts;
+ * service time is the route() call alone. At max speed there is no
+ * schedule and both are the same.
+ *
+ * Searches keep their labels in the graph nodes, so each worker thread owns
+ * a replica of the graph, loaded and contracted on its own: memory and
+ * start-up time grow with --threads. A worker re-customizes its replica
+ * when the next query is for another profile, as the engine does.
+ *
+ * Usage: java benchmark.QueryReplay --log queries.log [--csv main/rutas.csv]
+ *        [--speed 1|N|max] [--threads 1] [--limit 0] [--warmup false]
+ * With --warmup true every replica is warmed up (WarmUp) before the replay.
+ */
+public class QueryReplay {
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    static class Options {
+        String csv = "main/rutas.csv";
+        String log;
+        double speed = 1;   // 0: máxima velocidad
+        int threads = 1;
+        int limit;
+        boolean warmup;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--csv": options.csv = value; break;
+                    case "--log": options.log = value; break;
+                    case "--speed": options.speed = value.equalsIgnoreCase("max") ? 0 : Double.parseDouble(value); break;
+                    case "--threads": options.threads = Integer.parseInt(value); break;
+                    case "--limit": options.limit = Integer.parseInt(value); break;
+                    case "--warmup": options.warmup = Boolean.parseBoolean(value); break;
+                    default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (options.log == null) throw new IllegalArgumentException("--log is required");
+            if (options.speed < 0) throw new IllegalArgumentException("--speed must be positive or max");
+            return options;
+        }
+    }
+
+    // Grafo propio de un hilo de replay
+    static class Replica {
+        final Node[] graph;
+        final ContractionHierarchies ch;
+        final RoutingEngine engine;
+
+        Replica(String csv, boolean warmup) throws IOException {
+            MapDataResult data = CSVRouteLoader.loadFromCSV(csv);
+            GraphSimplifier.simplify(data.graph, data.geometry);
+            graph = data.graph;
+            ch = new ContractionHierarchies(graph);
+            ch.preprocess();
+            ch.setProfile(VehicleProfile.VEHICULOS);
+            if (warmup) WarmUp.run(graph, data.idToCoord, ch, new WarmUp.Options());
+            engine = new RoutingEngine(graph, data.idToCoord, ch, null, Runnable::run);
+        }
+    }
+
+    static class Task {
+        final QueryLog.Record record;
+        final long dueNanos;
+
+        Task(QueryLog.Record record, long dueNanos) {
+            this.record = record;
+            this.dueNanos = dueNanos;
+        }
+    }
+
+    private static final Task END = new Task(null, -1);
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        PrintStream console = System.out;
+
+        List<Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, options.threads); i++) {
+            console.println("Loading and contracting replica " + (i + 1) + " of " + options.threads + "...");
+            System.setOut(RoutingBenchmark.quietStream());
+            try {
+                replicas.add(new Replica(options.csv, options.warmup));
+            } finally {
+                System.setOut(console);
+            }
+        }
+
+        List<QueryLog.Record> records = new ArrayList<>();
+        int cancelled = 0;
+        for (QueryLog.Record record : QueryLog.readAll(Paths.get(options.log), replicas.get(0).graph.length)) {
+            // Las canceladas no llegaron a responderse: no se repiten
+            if ((record.flags & QueryLog.CANCELLED) != 0) {
+                cancelled++;
+                continue;
+            }
+            records.add(record);
+            if (options.limit > 0 && records.size() == options.limit) break;
+        }
+        if (records.isEmpty()) {
+            console.println("No queries to replay in " + options.log);
+            return;
+        }
+        long spanMs = records.get(records.size() - 1).timestampMs - records.get(0).timestampMs;
+        console.println(String.format(Locale.ROOT, "Replaying %d queries spanning %.1f s (%d cancelled skipped) at %s on %d threads",
+            records.size(), spanMs / 1000.0, cancelled, options.speed == 0 ? "max speed" : options.speed + "x",
+            replicas.size()));
+
+        LatencyHistogram response = new LatencyHistogram();
+        LatencyHistogram service = new LatencyHistogram();
+        LatencyHistogram logged = new LatencyHistogram();
+        for (QueryLog.Record record : records) logged.record(record.latencyMicros * 1000L);
+        Outcome outcome = new Outcome();
+
+        BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+        List<Thread> workers = new ArrayList<>();
+        for (Replica replica : replicas) {
+            Thread worker = new Thread(() -> work(replica, queue, response, service, outcome), "replay-" + workers.size());
+            workers.add(worker);
+        }
+
+        System.setOut(RoutingBenchmark.quietStream());
+        long start = System.nanoTime();
+        try {
+            for (Thread worker : workers) worker.start();
+            long firstMs = records.get(0).timestampMs;
+            for (QueryLog.Record record : records) {
+                long due = 0;
+                if (options.speed > 0) {
+                    due = start + (long) ((record.timestampMs - firstMs) * 1_000_000 / options.speed);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                queue.put(new Task(record, due));
+            }
+            for (int i = 0; i < workers.size(); i++) queue.put(END);
+            for (Thread worker : workers) worker.join();
+        } finally {
+            System.setOut(console);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        console.println();
+        console.println(String.format(Locale.ROOT, "Throughput: %.1f queries/s (%d queries in %.2f s, %d not found, %d profile switches)",
+            records.size() / seconds, records.size(), seconds, outcome.notFound.sum(), outcome.profileSwitches.sum()));
+        if (options.speed > 0 && spanMs > 0) {
+            console.println(String.format(Locale.ROOT, "Offered load: %.1f queries/s", records.size() / (spanMs / 1000.0 / options.speed)));
+        }
+        console.println();
+        console.println(String.format("%-10s %10s %10s %10s %10s %10s %10s", "latency", "mean ms", "p50", "p90", "p99",
+            "p99.9", "max"));
+        printRow(console, "response", response);
+        printRow(console, "service", service);
+        printRow(console, "logged", logged);
+    }
+
+    private static void work(Replica replica, BlockingQueue<Task> queue, LatencyHistogram response,
+                             LatencyHistogram service, Outcome outcome) {
+        try {
+            while (true) {
+                Task task = queue.take();
+                if (task == END) return;
+                QueryLog.Record record = task.record;
+                if (replica.ch.getCurrentProfile() != record.profile) {
+                    replica.ch.setProfile(record.profile);
+                    outcome.profileSwitches.increment();
+                }
+                long serviceStart = System.nanoTime();
+                RoutingEngine.RouteResult result = replica.engine.route(record.algorithm, record.origin, record.destination);
+                long end = System.nanoTime();
+                service.record(end - serviceStart);
+                // A velocidad máxima no hay horario: cuenta desde que el hilo toma la consulta
+                response.record(end - (task.dueNanos != 0 ? task.dueNanos : serviceStart));
+                if (!result.isFound()) outcome.notFound.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void printRow(PrintStream out, String label, LatencyHistogram histogram) {
+        LatencyHistogram.Snapshot s = histogram.snapshot();
+        StringBuilder row = new StringBuilder(String.format(Locale.ROOT, "%-10s %10.3f", label, s.getMeanMs()));
+        for (double q : PERCENTILES) row.append(String.format(Locale.ROOT, " %10.3f", s.percentileMs(q)));
+        row.append(String.format(Locale.ROOT, " %10.3f", s.getMaxMs()));
+        out.println(row);
+    }
+
+    static class Outcome {
+        final LongAdder notFound = new LongAdder();
+        final LongAdder profileSwitches = new LongAdder();
+    }
+}
@@ -0,0 +1,352 @@
+package benchmark;
+
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import algorithms.*;
+import graph.GraphSimplifier;
+import loader.*;
+import models.*;
+
+/**
+ * Query benchmark for every routing algorithm over fixed seeded query sets
+ * (see QuerySet), for each vehicle profile. The graph is loaded and
+ * contracted once. Each case runs time-boxed warm-up iterations and then
+ * measured ones, and reports throughput, average time per query with its
+ * standard deviation across iterations, bytes allocated per query (per
+ * thread allocation counter) and GC activity during the measurement.
+ * Query work (QueryStats) is counted in a separate, untimed pass over the
+ * same pairs so the counters do not disturb the timings. The report ends
+ * with the heap retained by each structure of the graph (MemoryReport).
+ *
+ * Usage: java benchmark.RoutingBenchmark [--csv main/rutas.csv] [--pairs 100] [--seed 42]
+ *        [--warmup 3] [--iterations 5] [--time-ms 1000] [--algorithms DIJKSTRA,ASTAR,ALT,CH]
+ *        [--profiles VEHICULOS,...] [--stats true] [--out results.csv] [--memory-out memory.csv]
+ */
+public class RoutingBenchmark {
+    public enum Algorithm { DIJKSTRA, ASTAR, ALT, CH }
+
+    // Una consulta; devuelve la distancia para que el JIT no la elimine
+    interface Query {
+        long run(int origin, int destination);
+    }
+
+    public static class Measurement {
+        public String profile;
+        public Algorithm algorithm;
+        public QuerySet.Bucket bucket;
+        public long operations;
+        public double opsPerSecond;
+        public double avgMs;
+        public double stdevMs;
+        public double bytesPerOp;
+        public long gcCount;
+        public long gcTimeMs;
+        public QueryStats stats;   // totales de la pasada de conteo; null si no se hizo
+        public int statsQueries;
+    }
+
+    private final Node[] graph;
+    private final Map<Integer, String> idToCoord;
+    private final ContractionHierarchies ch;
+    private final Options options;
+    private long sink;
+
+    static class Options {
+        String csv = "main/rutas.csv";
+        int pairs = 100;
+        long seed = 42;
+        int warmup = 3;
+        int iterations = 5;
+        long timeMs = 1000;
+        List<Algorithm> algorithms = Arrays.asList(Algorithm.values());
+        List<VehicleProfile> profiles = Arrays.asList(VehicleProfile.values());
+        boolean stats = true;
+        String out;
+        String memoryOut;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--csv": options.csv = value; break;
+                    case "--pairs": options.pairs = Integer.parseInt(value); break;
+                    case "--seed": options.seed = Long.parseLong(value); break;
+                    case "--warmup": options.warmup = Integer.parseInt(value); break;
+                    case "--iterations": options.iterations = Integer.parseInt(value); break;
+                    case "--time-ms": options.timeMs = Long.parseLong(value); break;
+                    case "--algorithms":
+                        options.algorithms = new ArrayList<>();
+                        for (String name : value.split(",")) options.algorithms.add(Algorithm.valueOf(name.trim().toUpperCase()));
+                        break;
+                    case "--profiles":
+                        options.profiles = new ArrayList<>();
+                        for (String name : value.split(",")) options.profiles.add(VehicleProfile.valueOf(name.trim().toUpperCase()));
+                        break;
+                    case "--stats": options.stats = Boolean.parseBoolean(value); break;
+                    case "--out": options.out = value; break;
+                    case "--memory-out": options.memoryOut = value; break;
+                    default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            return options;
+        }
+    }
+
+    public RoutingBenchmark(Node[] graph, Map<Integer, String> idToCoord, ContractionHierarchies ch, Options options) {
+        this.graph = graph;
+        this.idToCoord = idToCoord;
+        this.ch = ch;
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Options options = Options.parse(args);
+
+        MapDataResult data = CSVRouteLoader.loadFromCSV(options.csv);
+        GraphSimplifier.simplify(data.graph, data.geometry);
+        ContractionHierarchies ch = new ContractionHierarchies(data.graph);
+        PrintStream console = System.out;
+        System.setOut(quietStream());
+        ch.preprocess();
+        System.setOut(console);
+
+        RoutingBenchmark benchmark = new RoutingBenchmark(data.graph, data.idToCoord, ch, options);
+        List<Measurement> results = benchmark.runAll();
+
+        printTable(results);
+        if (options.out != null) {
+            writeCsv(results, options.out);
+            System.out.println("Results written to " + options.out);
+        }
+
+        // Memoria retenida por estructura, con el grafo contraído
+        List<MemoryReport.Entry> memory = MemoryReport.measure(data, RoutingEngine.defaultLandmarks(data.graph));
+        MemoryReport.print(memory);
+        if (options.memoryOut != null) {
+            MemoryReport.writeCsv(memory, options.memoryOut);
+            System.out.println("Memory report written to " + options.memoryOut);
+        }
+    }
+
+    public List<Measurement> runAll() {
+        List<Measurement> results = new ArrayList<>();
+        PrintStream console = System.out;
+        for (VehicleProfile profile : options.profiles) {
+            System.setOut(quietStream());
+            ch.setProfile(profile);
+            System.setOut(console);
+            QuerySet querySet = QuerySet.build(graph, options.pairs, options.seed);
+
+            for (Algorithm algorithm : options.algorithms) {
+                Query query = newQuery(algorithm, null);
+                for (QuerySet.Bucket bucket : QuerySet.Bucket.values()) {
+                    console.println("Running " + profile.name() + " " + algorithm + " " + bucket + "...");
+                    // Los algoritmos imprimen diagnósticos (p. ej. el fallback de CH): fuera del tiempo medido
+                    System.setOut(quietStream());
+                    try {
+                        int[][] pairs = querySet.getPairs(bucket);
+                        Measurement m = measure(query, pairs);
+                        if (options.stats) {
+                            m.stats = new QueryStats();
+                            m.statsQueries = pairs.length;
+                            Query counted = newQuery(algorithm, m.stats);
+                            // Dos pasadas: la primera compila las ramas de conteo y se descarta
+                            for (int pass = 0; pass < 2; pass++) {
+                                m.stats.clear();
+                                for (int[] pair : pairs) sink += counted.run(pair[0], pair[1]);
+                            }
+                        }
+                        m.profile = profile.name();
+                        m.algorithm = algorithm;
+                        m.bucket = bucket;
+                        results.add(m);
+                    } finally {
+                        System.setOut(console);
+                    }
+                }
+            }
+        }
+        console.println("(checksum " + sink + ")");
+        return results;
+    }
+
+    // stats: contadores a llenar, o null para medir sin contar
+    private Query newQuery(Algorithm algorithm, QueryStats stats) {
+        switch (algorithm) {
+            case DIJKSTRA: {
+                DijkstraSearch search = new DijkstraSearch(graph);
+                search.setStats(stats);
+                return (o, d) -> search.compute(o, d).distance;
+            }
+            case ASTAR: {
+                AStarSearch search = new AStarSearch(graph, idToCoord);
+                search.setStats(stats);
+                return (o, d) -> search.compute(o, d).distance;
+            }
+            case ALT: {
+                ALTSearch search = new ALTSearch(graph, idToCoord, RoutingEngine.defaultLandmarks(graph));
+                search.setStats(stats);
+                return (o, d) -> search.compute(o, d).distance;
+            }
+            case CH: {
+                BidirectionalSearch search = ch.getBidirectionalSearch();
+                search.setStats(stats);
+                int[] queryId = {0};
+                // Igual que la GUI: etiquetas limpias, búsqueda con fallback y desempaquetado del camino
+                return (o, d) -> {
+                    for (Node node : graph) node.distance = new Distance();
+                    BidirectionalSearch.PathResult result = search.computeShortestPathEnhanced(o, d, ++queryId[0]);
+                    if (result.distance != -1) search.reconstructPath(o, d, result.meetingNode);
+                    return result.distance;
+                };
+            }
+            default:
+                throw new IllegalArgumentException(algorithm.toString());
+        }
+    }
+
+    private Measurement measure(Query query, int[][] pairs) {
+        Measurement m = new Measurement();
+        if (pairs.length == 0) return m;
+
+        int[] cursor = {0};
+        for (int i = 0; i < options.warmup; i++) {
+            iteration(query, pairs, cursor);
+        }
+
+        com.sun.management.ThreadMXBean threads = allocationBean();
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = threads != null ? threads.getThreadAllocatedBytes(threadId) : 0;
+        long gcCountBefore = gcCount(), gcTimeBefore = gcTime();
+
+        double[] avgMs = new double[options.iterations];
+        long totalOps = 0;
+        long totalNanos = 0;
+        for (int i = 0; i < options.iterations; i++) {
+            long start = System.nanoTime();
+            long ops = iteration(query, pairs, cursor);
+            long nanos = System.nanoTime() - start;
+            avgMs[i] = nanos / 1e6 / ops;
+            totalOps += ops;
+            totalNanos += nanos;
+        }
+
+        long bytesAfter = threads != null ? threads.getThreadAllocatedBytes(threadId) : 0;
+        m.operations = totalOps;
+        m.opsPerSecond = totalOps / (totalNanos / 1e9);
+        m.avgMs = totalNanos / 1e6 / totalOps;
+        m.stdevMs = stdev(avgMs);
+        m.bytesPerOp = threads != null ? (bytesAfter - bytesBefore) / (double) totalOps : Double.NaN;
+        m.gcCount = gcCount() - gcCountBefore;
+        m.gcTimeMs = gcTime() - gcTimeBefore;
+        return m;
+    }
+
+    // Corre consultas durante time-ms, al menos una; devuelve cuántas
+    private long iteration(Query query, int[][] pairs, int[] cursor) {
+        long deadline = System.nanoTime() + options.timeMs * 1_000_000;
+        long ops = 0;
+        do {
+            int[] pair = pairs[cursor[0]];
+            cursor[0] = (cursor[0] + 1) % pairs.length;
+            sink += query.run(pair[0], pair[1]);
+            ops++;
+        } while (System.nanoTime() < deadline);
+        return ops;
+    }
+
+    private static double stdev(double[] values) {
+        if (values.length < 2) return 0;
+        double mean = 0;
+        for (double v : values) mean += v;
+        mean /= values.length;
+        double sum = 0;
+        for (double v : values) sum += (v - mean) * (v - mean);
+        return Math.sqrt(sum / (values.length - 1));
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        }
+        return null;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    static PrintStream quietStream() {
+        return new PrintStream(OutputStream.nullOutputStream());
+    }
+
+    static void printTable(List<Measurement> results) {
+        System.out.println();
+        System.out.println(String.format("%-10s %-9s %-7s %12s %14s %14s %6s %8s",
+            "profile", "algorithm", "bucket", "ops/s", "avg ms/op", "alloc B/op", "gc", "gc ms"));
+        for (Measurement m : results) {
+            System.out.println(String.format(Locale.ROOT, "%-10s %-9s %-7s %12.1f %8.3f +-%5.3f %14.0f %6d %8d",
+                m.profile, m.algorithm, m.bucket, m.opsPerSecond, m.avgMs, m.stdevMs, m.bytesPerOp,
+                m.gcCount, m.gcTimeMs));
+        }
+
+        System.out.println();
+        System.out.println("Query stats (average per query)");
+        System.out.println(String.format("%-10s %-9s %-7s %10s %10s %10s %10s %10s %10s %10s %10s",
+            "profile", "algorithm", "bucket", "settled", "relaxed", "pushes", "pops", "decr-keys",
+            "stalled", "search ms", "unpack ms"));
+        for (Measurement m : results) {
+            if (m.stats == null || m.statsQueries == 0) continue;
+            double n = m.statsQueries;
+            System.out.println(String.format(Locale.ROOT, "%-10s %-9s %-7s %10.0f %10.0f %10.0f %10.0f %10.0f %10.0f %10.3f %10.3f",
+                m.profile, m.algorithm, m.bucket, m.stats.settled / n, m.stats.relaxed / n, m.stats.pushes / n,
+                m.stats.pops / n, m.stats.decreaseKeys / n, m.stats.stalled / n,
+                m.stats.getSearchMs() / n, m.stats.getUnpackMs() / n));
+        }
+    }
+
+    static void writeCsv(List<Measurement> results, String file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8))) {
+            out.println("profile,algorithm,bucket,operations,ops_per_s,avg_ms,stdev_ms,alloc_bytes_per_op,gc_count,gc_ms,"
+                      + "settled,relaxed,pushes,pops,decrease_keys,stalled,search_ms,unpack_ms");
+            for (Measurement m : results) {
+                StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%s,%s,%s,%d,%.3f,%.6f,%.6f,%.1f,%d,%d",
+                    m.profile, m.algorithm, m.bucket, m.operations, m.opsPerSecond, m.avgMs, m.stdevMs,
+                    m.bytesPerOp, m.gcCount, m.gcTimeMs));
+                if (m.stats != null && m.statsQueries > 0) {
+                    double n = m.statsQueries;
+                    line.append(String.format(Locale.ROOT, ",%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.6f,%.6f",
+                        m.stats.settled / n, m.stats.relaxed / n, m.stats.pushes / n, m.stats.pops / n,
+                        m.stats.decreaseKeys / n, m.stats.stalled / n, m.stats.getSearchMs() / n,
+                        m.stats.getUnpackMs() / n));
+                } else {
+                    line.append(",,,,,,,,");
+                }
+                out.println(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package benchmark;
+
+import java.util.Random;
+import models.*;
+
+/**
+ * In-memory road-like graphs of a given size for scaling benchmarks: a grid
+ * with a few missing blocks, perturbed segment lengths and some one-way
+ * streets. No coordinates or CSV fields are attached, so they only suit
+ * the algorithms that work on the graph alone (preprocessing, Dijkstra, CH).
+ */
+public class SyntheticGraph {
+    private static final double MISSING_EDGE_RATIO = 0.08;
+    private static final double ONE_WAY_RATIO = 0.2;
+    private static final long BLOCK_LENGTH = 100;
+
+    private SyntheticGraph() {
+    }
+
+    /** Grid with about the given number of nodes (rounded to a square). */
+    public static Node[] grid(int nodes, long seed) {
+        int side = Math.max(2, (int) Math.round(Math.sqrt(nodes)));
+        Random random = new Random(seed);
+        Node[] graph = new Node[side * side];
+        for (int id = 0; id < graph.length; id++) graph[id] = new Node(id);
+
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                int id = row * side + col;
+                if (col + 1 < side) connect(graph, random, id, id + 1);
+                if (row + 1 < side) connect(graph, random, id, id + side);
+            }
+        }
+        return graph;
+    }
+
+    private static void connect(Node[] graph, Random random, int a, int b) {
+        if (random.nextDouble() < MISSING_EDGE_RATIO) return;
+        // Cuadras de largo variable: evita empates que no se dan en calles reales
+        long length = (long) (BLOCK_LENGTH * (0.6 + random.nextDouble() * 0.8));
+        boolean oneWay = random.nextDouble() < ONE_WAY_RATIO;
+        boolean forward = random.nextBoolean();
+        if (!oneWay || forward) addEdge(graph, a, b, length);
+        if (!oneWay || !forward) addEdge(graph, b, a, length);
+    }
+
+    private static void addEdge(Node[] graph, int from, int to, long length) {
+        Edge edge = new Edge(from, to, length, "Synthetic");
+        graph[from].outEdges.add(edge);
+        graph[to].inEdges.add(edge);
+    }
+}
@@ -1,6 +1,6 @@
 @echo off
 echo Compilando todos los archivos Java...
-javac -cp . main/Test.java algorithms/*.java models/*.java gui/*.java loader/*.java graph/*.java utils/*.java
+javac -cp . main/*.java algorithms/*.java models/*.java gui/*.java loader/*.java graph/*.java utils/*.java benchmark/*.java metrics/*.java
 
 if %errorlevel% neq 0 (
     echo Error en la compilacion
@@ -0,0 +1,156 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ConcaveHull {
+
+    /**
+     * Computes a concave hull by "digging" into the convex hull (Park & Oh):
+     * every hull edge longer than maxEdgeLength is replaced by two edges through
+     * the closest interior point, as long as the polygon stays simple.
+     * @param xs planar x coordinates (metres)
+     * @param ys planar y coordinates (metres)
+     * @param n number of points to use from the arrays
+     * @param maxEdgeLength hull edges shorter than this are not refined
+     * @return indices of the hull vertices in counter-clockwise order
+     */
+    public static int[] compute(double[] xs, double[] ys, int n, double maxEdgeLength) {
+        int[] convex = convexHull(xs, ys, n);
+        if (convex.length < 3) return convex;
+
+        // Hull como lista enlazada circular sobre los índices de los puntos
+        int[] next = new int[n];
+        int[] prev = new int[n];
+        boolean[] onHull = new boolean[n];
+        Arrays.fill(next, -1);
+        Arrays.fill(prev, -1);
+        for (int i = 0; i < convex.length; i++) {
+            int a = convex[i];
+            int b = convex[(i + 1) % convex.length];
+            next[a] = b;
+            prev[b] = a;
+            onHull[a] = true;
+        }
+        int hullSize = convex.length;
+
+        int[] stack = new int[n * 2 + convex.length];
+        int top = 0;
+        for (int v : convex) stack[top++] = v;
+
+        while (top > 0) {
+            int a = stack[--top];
+            int b = next[a];
+            double len = Math.hypot(xs[b] - xs[a], ys[b] - ys[a]);
+            if (len <= maxEdgeLength) continue;
+
+            int best = -1;
+            double bestDist = Double.MAX_VALUE;
+            double ex = xs[b] - xs[a];
+            double ey = ys[b] - ys[a];
+            double len2 = ex * ex + ey * ey;
+
+            for (int p = 0; p < n; p++) {
+                if (onHull[p]) continue;
+                double px = xs[p] - xs[a];
+                double py = ys[p] - ys[a];
+                double t = (px * ex + py * ey) / len2;
+                if (t <= 0 || t >= 1) continue;
+                double cross = ex * py - ey * px;
+                if (cross <= 0) continue; // debe quedar dentro (lado izquierdo en CCW)
+                double d = cross / len;
+                if (d < bestDist) {
+                    bestDist = d;
+                    best = p;
+                }
+            }
+            if (best == -1) continue;
+
+            double dd = Math.min(Math.hypot(xs[best] - xs[a], ys[best] - ys[a]),
+                                 Math.hypot(xs[best] - xs[b], ys[best] - ys[b]));
+            if (dd <= 0 || len / dd <= 2.0) continue;
+
+            if (crossesHull(xs, ys, next, a, b, best, hullSize)) continue;
+
+            next[a] = best;
+            prev[best] = a;
+            next[best] = b;
+            prev[b] = best;
+            onHull[best] = true;
+            hullSize++;
+            stack[top++] = a;
+            stack[top++] = best;
+        }
+
+        int[] result = new int[hullSize];
+        int current = convex[0];
+        for (int i = 0; i < hullSize; i++) {
+            result[i] = current;
+            current = next[current];
+        }
+        return result;
+    }
+
+    // Verifica que las nuevas aristas a-p y p-b no crucen ninguna otra arista del hull
+    private static boolean crossesHull(double[] xs, double[] ys, int[] next, int a, int b, int p, int hullSize) {
+        int u = b;
+        for (int i = 0; i < hullSize - 1; i++) {
+            int v = next[u];
+            if (segmentsCross(xs, ys, a, p, u, v) || segmentsCross(xs, ys, p, b, u, v)) {
+                return true;
+            }
+            u = v;
+        }
+        return false;
+    }
+
+    private static boolean segmentsCross(double[] xs, double[] ys, int p1, int p2, int q1, int q2) {
+        if (p1 == q1 || p1 == q2 || p2 == q1 || p2 == q2) return false;
+        double d1 = orient(xs, ys, q1, q2, p1);
+        double d2 = orient(xs, ys, q1, q2, p2);
+        double d3 = orient(xs, ys, p1, p2, q1);
+        double d4 = orient(xs, ys, p1, p2, q2);
+        return ((d1 > 0) != (d2 > 0)) && ((d3 > 0) != (d4 > 0));
+    }
+
+    private static double orient(double[] xs, double[] ys, int a, int b, int c) {
+        return (xs[b] - xs[a]) * (ys[c] - ys[a]) - (ys[b] - ys[a]) * (xs[c] - xs[a]);
+    }
+
+    /**
+     * Andrew's monotone chain convex hull.
+     * @return indices of the hull vertices in counter-clockwise order
+     */
+    public static int[] convexHull(double[] xs, double[] ys, int n) {
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (i, j) -> xs[i] != xs[j] ? Double.compare(xs[i], xs[j]) : Double.compare(ys[i], ys[j]));
+
+        if (n < 3) {
+            int[] result = new int[n];
+            for (int i = 0; i < n; i++) result[i] = order[i];
+            return result;
+        }
+
+        List<Integer> hull = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            while (hull.size() >= 2 && orient(xs, ys, hull.get(hull.size() - 2), hull.get(hull.size() - 1), order[i]) <= 0) {
+                hull.remove(hull.size() - 1);
+            }
+            hull.add(order[i]);
+        }
+        int lowerSize = hull.size() + 1;
+        for (int i = n - 2; i >= 0; i--) {
+            while (hull.size() >= lowerSize && orient(xs, ys, hull.get(hull.size() - 2), hull.get(hull.size() - 1), order[i]) <= 0) {
+                hull.remove(hull.size() - 1);
+            }
+            hull.add(order[i]);
+        }
+        hull.remove(hull.size() - 1);
+
+        int[] result = new int[hull.size()];
+        for (int i = 0; i < result.length; i++) result[i] = hull.get(i);
+        return result;
+    }
+}
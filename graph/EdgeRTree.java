@@ -0,0 +1,429 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import models.Edge;
+import models.Node;
+
+/**
+ * Static R-tree over street segments, bulk-loaded with Sort-Tile-Recursive
+ * packing into flat arrays. Coordinates are kept in a local planar projection
+ * in metres so distances can be compared directly.
+ */
+public class EdgeRTree {
+    private static final int NODE_CAPACITY = 16;
+    private static final double METERS_PER_DEGREE = 111_000;
+
+    private final Edge[] edges;
+    private final double originLon;
+    private final double originLat;
+    private final double cosLat;
+
+    // Segmentos (hojas) en orden STR
+    private final int[] segEdge;
+    private final double[] segX1, segY1, segX2, segY2;
+    private final double[] segStart; // fracción de la arista donde empieza el segmento
+    private final double[] segEnd;
+
+    // Cajas de todos los nodos del árbol: nivel 0 = una caja por segmento
+    private final double[] boxMinX, boxMinY, boxMaxX, boxMaxY;
+    private final int[] levelStart;
+
+    private EdgeRTree(Edge[] edges, double originLon, double originLat, int[] segEdge,
+                      double[] segX1, double[] segY1, double[] segX2, double[] segY2,
+                      double[] segStart, double[] segEnd) {
+        this.edges = edges;
+        this.originLon = originLon;
+        this.originLat = originLat;
+        this.cosLat = Math.cos(Math.toRadians(originLat));
+
+        int n = segEdge.length;
+        int[] order = strOrder(segX1, segY1, segX2, segY2);
+
+        this.segEdge = new int[n];
+        this.segX1 = new double[n];
+        this.segY1 = new double[n];
+        this.segX2 = new double[n];
+        this.segY2 = new double[n];
+        this.segStart = new double[n];
+        this.segEnd = new double[n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int s = order[i];
+            this.segEdge[i] = segEdge[s];
+            this.segX1[i] = segX1[s];
+            this.segY1[i] = segY1[s];
+            this.segX2[i] = segX2[s];
+            this.segY2[i] = segY2[s];
+            this.segStart[i] = segStart[s];
+            this.segEnd[i] = segEnd[s];
+        });
+
+        // Niveles: cada caja padre agrupa NODE_CAPACITY cajas consecutivas del nivel inferior
+        List<Integer> starts = new ArrayList<>();
+        int total = n;
+        int count = n;
+        starts.add(0);
+        while (count > 1) {
+            starts.add(total);
+            count = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            total += count;
+        }
+        starts.add(total);
+        this.levelStart = new int[starts.size()];
+        for (int i = 0; i < levelStart.length; i++) levelStart[i] = starts.get(i);
+
+        this.boxMinX = new double[total];
+        this.boxMinY = new double[total];
+        this.boxMaxX = new double[total];
+        this.boxMaxY = new double[total];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            boxMinX[i] = Math.min(this.segX1[i], this.segX2[i]);
+            boxMinY[i] = Math.min(this.segY1[i], this.segY2[i]);
+            boxMaxX[i] = Math.max(this.segX1[i], this.segX2[i]);
+            boxMaxY[i] = Math.max(this.segY1[i], this.segY2[i]);
+        });
+        for (int level = 1; level < levelStart.length - 1; level++) {
+            int childStart = levelStart[level - 1];
+            int childEnd = levelStart[level];
+            int start = levelStart[level];
+            int end = levelStart[level + 1];
+            IntStream.range(start, end).parallel().forEach(b -> {
+                int first = childStart + (b - start) * NODE_CAPACITY;
+                int last = Math.min(first + NODE_CAPACITY, childEnd);
+                double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+                double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+                for (int c = first; c < last; c++) {
+                    minX = Math.min(minX, boxMinX[c]);
+                    minY = Math.min(minY, boxMinY[c]);
+                    maxX = Math.max(maxX, boxMaxX[c]);
+                    maxY = Math.max(maxY, boxMaxY[c]);
+                }
+                boxMinX[b] = minX;
+                boxMinY[b] = minY;
+                boxMaxX[b] = maxX;
+                boxMaxY[b] = maxY;
+            });
+        }
+    }
+
+    /**
+     * Bulk-loads the tree with every real street edge of the graph (CH shortcuts
+     * are skipped, and the reverse twin of a two-way street is indexed once).
+     * Each edge contributes one segment per pair of consecutive vertices of its
+     * polyline, or a single chord between its endpoints if it has no geometry.
+     */
+    public static EdgeRTree build(Node[] graph, double[] nodeLon, double[] nodeLat, PolylineStore geometry) {
+        List<Edge> edgeList = new ArrayList<>();
+        double sumLon = 0, sumLat = 0;
+        for (Node node : graph) {
+            sumLon += nodeLon[node.id];
+            sumLat += nodeLat[node.id];
+            for (Edge edge : node.outEdges) {
+                if (edge.isShortcut()) continue;
+                if (edge.from > edge.to && findTwin(graph, edge) != null) continue;
+                edgeList.add(edge);
+            }
+        }
+        Edge[] edges = edgeList.toArray(new Edge[0]);
+        double originLon = graph.length > 0 ? sumLon / graph.length : 0;
+        double originLat = graph.length > 0 ? sumLat / graph.length : 0;
+        double cos = Math.cos(Math.toRadians(originLat));
+
+        // Primer segmento de cada arista (prefix sum sobre la cantidad de vértices)
+        int[] firstSegment = new int[edges.length + 1];
+        for (int i = 0; i < edges.length; i++) {
+            int geometryId = edges[i].getGeometryId();
+            int segments = geometry != null && geometryId >= 0 ? Math.max(1, geometry.pointCount(geometryId) - 1) : 1;
+            firstSegment[i + 1] = firstSegment[i] + segments;
+        }
+
+        int n = firstSegment[edges.length];
+        int[] segEdge = new int[n];
+        double[] x1 = new double[n], y1 = new double[n], x2 = new double[n], y2 = new double[n];
+        double[] start = new double[n], end = new double[n];
+        IntStream.range(0, edges.length).parallel().forEach(i -> {
+            Edge edge = edges[i];
+            int first = firstSegment[i];
+            int count = firstSegment[i + 1] - first;
+            int geometryId = edge.getGeometryId();
+            boolean reversed = edge.isGeometryReversed();
+
+            if (geometry == null || geometryId < 0 || geometry.pointCount(geometryId) < 2) {
+                segEdge[first] = i;
+                x1[first] = (nodeLon[edge.from] - originLon) * cos * METERS_PER_DEGREE;
+                y1[first] = (nodeLat[edge.from] - originLat) * METERS_PER_DEGREE;
+                x2[first] = (nodeLon[edge.to] - originLon) * cos * METERS_PER_DEGREE;
+                y2[first] = (nodeLat[edge.to] - originLat) * METERS_PER_DEGREE;
+                start[first] = 0;
+                end[first] = 1;
+                return;
+            }
+
+            double total = 0;
+            for (int k = 0; k < count; k++) {
+                int s = first + k;
+                segEdge[s] = i;
+                x1[s] = (geometry.getLon(geometryId, k, reversed) - originLon) * cos * METERS_PER_DEGREE;
+                y1[s] = (geometry.getLat(geometryId, k, reversed) - originLat) * METERS_PER_DEGREE;
+                x2[s] = (geometry.getLon(geometryId, k + 1, reversed) - originLon) * cos * METERS_PER_DEGREE;
+                y2[s] = (geometry.getLat(geometryId, k + 1, reversed) - originLat) * METERS_PER_DEGREE;
+                start[s] = total;
+                total += Math.hypot(x2[s] - x1[s], y2[s] - y1[s]);
+                end[s] = total;
+            }
+            // Normalizar las longitudes acumuladas a fracciones de la arista
+            for (int k = 0; k < count; k++) {
+                int s = first + k;
+                start[s] = total > 0 ? start[s] / total : (double) k / count;
+                end[s] = total > 0 ? end[s] / total : (double) (k + 1) / count;
+            }
+        });
+
+        return new EdgeRTree(edges, originLon, originLat, segEdge, x1, y1, x2, y2, start, end);
+    }
+
+    /**
+     * Returns the reverse edge of a two-way street (same street, opposite
+     * direction), or null if the street is one-way.
+     */
+    public static Edge findTwin(Node[] graph, Edge edge) {
+        for (Edge candidate : graph[edge.to].outEdges) {
+            if (candidate.to == edge.from && !candidate.isShortcut()
+                    && candidate.weight == edge.weight && candidate.streetName.equals(edge.streetName)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    public Edge[] getEdges() {
+        return edges;
+    }
+
+    public int size() {
+        return edges.length;
+    }
+
+    /**
+     * Nearest street segment to a coordinate, or null if the tree is empty.
+     */
+    public EdgeSnap nearest(double lon, double lat) {
+        if (segEdge.length == 0) return null;
+
+        double px = (lon - originLon) * cosLat * METERS_PER_DEGREE;
+        double py = (lat - originLat) * METERS_PER_DEGREE;
+
+        // Best-first: las claves son cotas inferiores, exactas para los segmentos
+        int root = levelStart[levelStart.length - 1] - 1;
+        int rootLevel = levelStart.length - 2;
+        MinHeap heap = new MinHeap();
+        heap.push(boxDistSq(root, px, py), root, rootLevel);
+
+        while (!heap.isEmpty()) {
+            int box = heap.topBox();
+            int level = heap.topLevel();
+            heap.pop();
+
+            if (level == 0) {
+                return project(box, px, py);
+            }
+
+            int childStart = levelStart[level - 1];
+            int childEnd = levelStart[level];
+            int first = childStart + (box - levelStart[level]) * NODE_CAPACITY;
+            int last = Math.min(first + NODE_CAPACITY, childEnd);
+            for (int c = first; c < last; c++) {
+                double d = level - 1 == 0 ? segmentDistSq(c, px, py) : boxDistSq(c, px, py);
+                heap.push(d, c, level - 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Visits the edge id of every segment whose bounding box intersects the
+     * given lon/lat rectangle. An edge may be reported once per segment.
+     */
+    public void search(double minLon, double minLat, double maxLon, double maxLat, IntConsumer visitor) {
+        if (segEdge.length == 0) return;
+
+        double minX = (minLon - originLon) * cosLat * METERS_PER_DEGREE;
+        double maxX = (maxLon - originLon) * cosLat * METERS_PER_DEGREE;
+        double minY = (minLat - originLat) * METERS_PER_DEGREE;
+        double maxY = (maxLat - originLat) * METERS_PER_DEGREE;
+
+        int[] stack = new int[NODE_CAPACITY * levelStart.length * 2];
+        int top = 0;
+        stack[top++] = levelStart[levelStart.length - 1] - 1;
+        stack[top++] = levelStart.length - 2;
+
+        while (top > 0) {
+            int level = stack[--top];
+            int box = stack[--top];
+            if (boxMaxX[box] < minX || boxMinX[box] > maxX || boxMaxY[box] < minY || boxMinY[box] > maxY) {
+                continue;
+            }
+            if (level == 0) {
+                visitor.accept(segEdge[box]);
+                continue;
+            }
+            int childStart = levelStart[level - 1];
+            int childEnd = levelStart[level];
+            int first = childStart + (box - levelStart[level]) * NODE_CAPACITY;
+            int last = Math.min(first + NODE_CAPACITY, childEnd);
+            for (int c = first; c < last; c++) {
+                stack[top++] = c;
+                stack[top++] = level - 1;
+            }
+        }
+    }
+
+    private EdgeSnap project(int seg, double px, double py) {
+        double dx = segX2[seg] - segX1[seg];
+        double dy = segY2[seg] - segY1[seg];
+        double len2 = dx * dx + dy * dy;
+        double t = len2 > 0 ? ((px - segX1[seg]) * dx + (py - segY1[seg]) * dy) / len2 : 0;
+        t = Math.max(0, Math.min(1, t));
+
+        double x = segX1[seg] + dx * t;
+        double y = segY1[seg] + dy * t;
+        double distance = Math.hypot(px - x, py - y);
+        double fraction = segStart[seg] + (segEnd[seg] - segStart[seg]) * t;
+
+        double lon = x / (cosLat * METERS_PER_DEGREE) + originLon;
+        double lat = y / METERS_PER_DEGREE + originLat;
+        int edgeId = segEdge[seg];
+        return new EdgeSnap(edges[edgeId], edgeId, fraction, lon, lat, distance);
+    }
+
+    private double segmentDistSq(int seg, double px, double py) {
+        double dx = segX2[seg] - segX1[seg];
+        double dy = segY2[seg] - segY1[seg];
+        double len2 = dx * dx + dy * dy;
+        double t = len2 > 0 ? ((px - segX1[seg]) * dx + (py - segY1[seg]) * dy) / len2 : 0;
+        t = Math.max(0, Math.min(1, t));
+        double ex = segX1[seg] + dx * t - px;
+        double ey = segY1[seg] + dy * t - py;
+        return ex * ex + ey * ey;
+    }
+
+    private double boxDistSq(int box, double px, double py) {
+        double dx = Math.max(0, Math.max(boxMinX[box] - px, px - boxMaxX[box]));
+        double dy = Math.max(0, Math.max(boxMinY[box] - py, py - boxMaxY[box]));
+        return dx * dx + dy * dy;
+    }
+
+    // Sort-Tile-Recursive: ordenar por x, cortar en franjas verticales y ordenar cada franja por y
+    private static int[] strOrder(double[] x1, double[] y1, double[] x2, double[] y2) {
+        int n = x1.length;
+        if (n == 0) return new int[0];
+
+        double[] cx = new double[n];
+        double[] cy = new double[n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            cx[i] = (x1[i] + x2[i]) / 2;
+            cy[i] = (y1[i] + y2[i]) / 2;
+        });
+
+        long[] keys = new long[n];
+        fillKeys(keys, cx, 0, n, null);
+        Arrays.parallelSort(keys);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = (int) keys[i];
+
+        int leafCount = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int sliceCount = (int) Math.ceil(Math.sqrt(leafCount));
+        int sliceSize = sliceCount * NODE_CAPACITY;
+        int slices = (n + sliceSize - 1) / sliceSize;
+        IntStream.range(0, slices).parallel().forEach(s -> {
+            int from = s * sliceSize;
+            int to = Math.min(from + sliceSize, n);
+            fillKeys(keys, cy, from, to, order);
+            Arrays.sort(keys, from, to);
+            for (int i = from; i < to; i++) order[i] = (int) keys[i];
+        });
+        return order;
+    }
+
+    // Clave ordenable: coordenada cuantizada en los 32 bits altos, índice en los bajos
+    private static void fillKeys(long[] keys, double[] values, int from, int to, int[] order) {
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            int idx = order == null ? i : order[i];
+            min = Math.min(min, values[idx]);
+            max = Math.max(max, values[idx]);
+        }
+        double range = max > min ? max - min : 1;
+        for (int i = from; i < to; i++) {
+            int idx = order == null ? i : order[i];
+            long q = (long) ((values[idx] - min) / range * Integer.MAX_VALUE);
+            keys[i] = (q << 32) | idx;
+        }
+    }
+
+    // Heap mínimo de (distancia, caja, nivel) sin objetos por entrada
+    private static class MinHeap {
+        private double[] keys = new double[64];
+        private int[] boxes = new int[64];
+        private int[] levels = new int[64];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int topBox() {
+            return boxes[0];
+        }
+
+        int topLevel() {
+            return levels[0];
+        }
+
+        void push(double key, int box, int level) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                boxes = Arrays.copyOf(boxes, size * 2);
+                levels = Arrays.copyOf(levels, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) break;
+                keys[i] = keys[parent];
+                boxes[i] = boxes[parent];
+                levels[i] = levels[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            boxes[i] = box;
+            levels[i] = level;
+        }
+
+        void pop() {
+            size--;
+            if (size == 0) return;
+            double key = keys[size];
+            int box = boxes[size];
+            int level = levels[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+                if (key <= keys[child]) break;
+                keys[i] = keys[child];
+                boxes[i] = boxes[child];
+                levels[i] = levels[child];
+                i = child;
+            }
+            keys[i] = key;
+            boxes[i] = box;
+            levels[i] = level;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package graph;
+
+import models.Edge;
+
+/**
+ * Projection of an arbitrary coordinate onto the closest street segment.
+ */
+public class EdgeSnap {
+    public Edge edge;
+    public int edgeId;          // posición de la arista en el EdgeRTree
+    public double fraction;     // 0 = edge.from, 1 = edge.to
+    public double lon;          // punto proyectado sobre la arista
+    public double lat;
+    public double distanceMeters;
+
+    public EdgeSnap(Edge edge, int edgeId, double fraction, double lon, double lat, double distanceMeters) {
+        this.edge = edge;
+        this.edgeId = edgeId;
+        this.fraction = fraction;
+        this.lon = lon;
+        this.lat = lat;
+        this.distanceMeters = distanceMeters;
+    }
+}
@@ -0,0 +1,191 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import models.Edge;
+import models.Node;
+
+/**
+ * Collapses degree-2 chains of the road graph into single edges. A node is a
+ * pass-through node when it has exactly one way in and one way out, or is the
+ * middle of a simple two-way street (two neighbours, both directions). Merged
+ * edges keep the removed node sequence for unpacking, their concatenated
+ * geometry, and are only built from edges with identical CSV attributes so
+ * every vehicle profile weighs them exactly like the original chain.
+ *
+ * Node ids are preserved: removed nodes stay in the array without edges, so
+ * coordinates, the spatial index and the GUI keep working unchanged while the
+ * searches never touch them.
+ */
+public class GraphSimplifier {
+
+    public static class Result {
+        public int removedNodes;
+        public int edgesBefore;
+        public int edgesAfter;
+
+        public Result(int removedNodes, int edgesBefore, int edgesAfter) {
+            this.removedNodes = removedNodes;
+            this.edgesBefore = edgesBefore;
+            this.edgesAfter = edgesAfter;
+        }
+    }
+
+    public static Result simplify(Node[] graph, PolylineStore geometry) {
+        int edgesBefore = countEdges(graph);
+
+        // Partes de geometría (id * 2 + invertida) y pares de ida/vuelta de las aristas fusionadas
+        Map<Edge, int[]> mergedParts = new IdentityHashMap<>();
+        Map<Edge, Edge> mergedTwins = new IdentityHashMap<>();
+        int removed = 0;
+
+        for (Node node : graph) {
+            if (node.inEdges.size() == 1 && node.outEdges.size() == 1) {
+                Edge in = node.inEdges.get(0);
+                Edge out = node.outEdges.get(0);
+                if (in.from == node.id || out.to == node.id || in.from == out.to) continue;
+                if (!in.hasSameAttributes(out)) continue;
+
+                merge(graph, node, in, out, mergedParts);
+                removed++;
+            } else if (node.inEdges.size() == 2 && node.outEdges.size() == 2) {
+                Edge outToX = node.outEdges.get(0);
+                Edge outToY = node.outEdges.get(1);
+                int x = outToX.to;
+                int y = outToY.to;
+                if (x == y || x == node.id || y == node.id) continue;
+
+                Edge inFromX = null, inFromY = null;
+                for (Edge in : node.inEdges) {
+                    if (in.from == x) inFromX = in;
+                    else if (in.from == y) inFromY = in;
+                }
+                if (inFromX == null || inFromY == null) continue;
+                if (!areTwins(inFromX, outToX, mergedTwins) || !areTwins(inFromY, outToY, mergedTwins)) continue;
+                if (!inFromX.hasSameAttributes(outToY) || !inFromY.hasSameAttributes(outToX)
+                        || !inFromX.hasSameAttributes(inFromY)) continue;
+
+                Edge xy = merge(graph, node, inFromX, outToY, mergedParts);
+                Edge yx = merge(graph, node, inFromY, outToX, mergedParts);
+                mergedTwins.put(xy, yx);
+                mergedTwins.put(yx, xy);
+                removed++;
+            }
+        }
+
+        // Geometría final solo para las aristas fusionadas que quedaron en el grafo
+        if (geometry != null) {
+            for (Node node : graph) {
+                for (Edge edge : node.outEdges) {
+                    int[] parts = mergedParts.get(edge);
+                    if (parts == null || parts.length == 0) continue;
+
+                    Edge twin = mergedTwins.get(edge);
+                    if (twin != null && twin.getGeometryId() >= 0) {
+                        edge.setGeometry(twin.getGeometryId(), !twin.isGeometryReversed());
+                        continue;
+                    }
+                    int[] ids = new int[parts.length];
+                    boolean[] reversed = new boolean[parts.length];
+                    for (int i = 0; i < parts.length; i++) {
+                        ids[i] = parts[i] >> 1;
+                        reversed[i] = (parts[i] & 1) == 1;
+                    }
+                    edge.setGeometry(geometry.addConcatenation(ids, reversed), false);
+                }
+            }
+            geometry.trim();
+        }
+
+        return new Result(removed, edgesBefore, countEdges(graph));
+    }
+
+    // Reemplaza a: x -> node y b: node -> y por una sola arista x -> y
+    private static Edge merge(Node[] graph, Node node, Edge a, Edge b, Map<Edge, int[]> mergedParts) {
+        Edge merged = new Edge(a.from, b.to, a.weight + b.weight, a.streetName,
+                               a.getSentido(), a.getTipoC(), a.getRedJerarq(), a.getBicisenda());
+
+        int[] viaA = a.getViaNodes() != null ? a.getViaNodes() : new int[0];
+        int[] viaB = b.getViaNodes() != null ? b.getViaNodes() : new int[0];
+        int[] via = new int[viaA.length + 1 + viaB.length];
+        System.arraycopy(viaA, 0, via, 0, viaA.length);
+        via[viaA.length] = node.id;
+        System.arraycopy(viaB, 0, via, viaA.length + 1, viaB.length);
+        merged.setViaNodes(via);
+
+        int[] partsA = partsOf(a, mergedParts);
+        int[] partsB = partsOf(b, mergedParts);
+        int[] parts = new int[partsA.length + partsB.length];
+        System.arraycopy(partsA, 0, parts, 0, partsA.length);
+        System.arraycopy(partsB, 0, parts, partsA.length, partsB.length);
+        mergedParts.put(merged, parts);
+
+        graph[a.from].outEdges.remove(a);
+        node.inEdges.remove(a);
+        node.outEdges.remove(b);
+        graph[b.to].inEdges.remove(b);
+        graph[a.from].outEdges.add(merged);
+        graph[b.to].inEdges.add(merged);
+        return merged;
+    }
+
+    private static int[] partsOf(Edge edge, Map<Edge, int[]> mergedParts) {
+        int[] parts = mergedParts.get(edge);
+        if (parts != null) return parts;
+        if (edge.getGeometryId() < 0) return new int[0];
+        return new int[]{edge.getGeometryId() * 2 + (edge.isGeometryReversed() ? 1 : 0)};
+    }
+
+    // Ida y vuelta de la misma calle: comparten geometría (originales) o se fusionaron juntas
+    private static boolean areTwins(Edge a, Edge b, Map<Edge, Edge> mergedTwins) {
+        if (a.from != b.to || a.to != b.from) return false;
+        if (mergedTwins.get(a) == b) return true;
+        return a.getViaNodes() == null && b.getViaNodes() == null
+            && a.getGeometryId() >= 0 && a.getGeometryId() == b.getGeometryId();
+    }
+
+    /**
+     * True for nodes collapsed into a chain edge (they no longer have edges).
+     */
+    public static boolean isRemoved(Node node) {
+        return node.outEdges.isEmpty() && node.inEdges.isEmpty();
+    }
+
+    /**
+     * Re-inserts the collapsed pass-through nodes into a path computed on the
+     * simplified graph.
+     */
+    public static List<Integer> expandPath(Node[] graph, List<Integer> path) {
+        if (path == null || path.size() < 2) return path;
+
+        List<Integer> expanded = new ArrayList<>();
+        expanded.add(path.get(0));
+        for (int i = 0; i < path.size() - 1; i++) {
+            int from = path.get(i);
+            int to = path.get(i + 1);
+
+            // Entre aristas paralelas, la que usaría la búsqueda (menor peso)
+            Edge best = null;
+            for (Edge edge : graph[from].outEdges) {
+                if (edge.to == to && !edge.isShortcut()
+                        && (best == null || edge.getCustomWeight() < best.getCustomWeight())) {
+                    best = edge;
+                }
+            }
+            if (best != null && best.getViaNodes() != null) {
+                for (int via : best.getViaNodes()) expanded.add(via);
+            }
+            expanded.add(to);
+        }
+        return expanded;
+    }
+
+    private static int countEdges(Node[] graph) {
+        int count = 0;
+        for (Node node : graph) count += node.outEdges.size();
+        return count;
+    }
+}
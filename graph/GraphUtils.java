@@ -9,40 +9,20 @@ import models.Node;
 
 public class GraphUtils {
   // Método para encontrar el nodo más cercano a una coordenada dada
-    public static int findNearestNode(String targetCoord, Map<String, Integer> nodeIndex, Map<Integer, String> idToCoord) {
+    public static int findNearestNode(String targetCoord, Map<String, Integer> nodeIndex, NodeSpatialIndex spatialIndex) {
         // Buscar coincidencia exacta primero
         if (nodeIndex.containsKey(targetCoord)) {
             return nodeIndex.get(targetCoord);
         }
         
-        // Si no hay coincidencia exacta, buscar por proximidad
+        // Si no hay coincidencia exacta, buscar por proximidad en el índice espacial
         String[] targetParts = targetCoord.split(" ");
         if (targetParts.length != 2) return -1;
         
         try {
             double targetLon = Double.parseDouble(targetParts[0]);
             double targetLat = Double.parseDouble(targetParts[1]);
-            
-            int nearestNode = -1;
-            double minDistance = Double.MAX_VALUE;
-            
-            for (Map.Entry<Integer, String> entry : idToCoord.entrySet()) {
-                String[] coordParts = entry.getValue().split(" ");
-                if (coordParts.length == 2) {
-                    double lon = Double.parseDouble(coordParts[0]);
-                    double lat = Double.parseDouble(coordParts[1]);
-                    
-                    // Calcular distancia euclidiana simple
-                    double distance = Math.sqrt(Math.pow(lon - targetLon, 2) + Math.pow(lat - targetLat, 2));
-                    
-                    if (distance < minDistance) {
-                        minDistance = distance;
-                        nearestNode = entry.getKey();
-                    }
-                }
-            }
-            
-            return nearestNode;
+            return spatialIndex.nearest(targetLon, targetLat);
         } catch (NumberFormatException e) {
             return -1;
         }
@@ -0,0 +1,267 @@
+package graph;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Static k-d tree over node coordinates, packed into flat arrays (no node
+ * objects). Distances are Euclidean in (lon, lat) degrees, the same metric
+ * used by the screen transform, so a pixel radius maps to a degree radius.
+ */
+public class NodeSpatialIndex {
+    private static final int LEAF_SIZE = 16;
+
+    private final double[] lon; // coordenadas originales indexadas por id de nodo
+    private final double[] lat;
+    private final int[] ids;    // ids en orden del árbol
+    private final double[] xs;  // coordenadas en orden del árbol
+    private final double[] ys;
+
+    public NodeSpatialIndex(double[] lon, double[] lat) {
+        this.lon = lon;
+        this.lat = lat;
+        int n = lon.length;
+        this.ids = new int[n];
+        for (int i = 0; i < n; i++) ids[i] = i;
+        this.xs = new double[n];
+        this.ys = new double[n];
+        build(0, n - 1, 0);
+        for (int i = 0; i < n; i++) {
+            xs[i] = lon[ids[i]];
+            ys[i] = lat[ids[i]];
+        }
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public double getLon(int nodeId) {
+        return lon[nodeId];
+    }
+
+    public double getLat(int nodeId) {
+        return lat[nodeId];
+    }
+
+    /**
+     * Nearest node to a coordinate, or -1 if the index is empty.
+     */
+    public int nearest(double x, double y) {
+        return nearest(x, y, Double.MAX_VALUE, null);
+    }
+
+    /**
+     * Nearest accepted node strictly within maxDist degrees, or -1 if there is none.
+     * @param accept optional filter on node ids (null accepts every node)
+     */
+    public int nearest(double x, double y, double maxDist, IntPredicate accept) {
+        int[] result = kNearest(x, y, 1, maxDist, accept);
+        return result.length > 0 ? result[0] : -1;
+    }
+
+    /**
+     * The k nearest nodes to a coordinate, closest first.
+     */
+    public int[] kNearest(double x, double y, int k) {
+        return kNearest(x, y, k, Double.MAX_VALUE, null);
+    }
+
+    public int[] kNearest(double x, double y, int k, double maxDist, IntPredicate accept) {
+        if (k <= 0 || ids.length == 0) return new int[0];
+
+        // Max-heap acotado de los k mejores candidatos (por distancia al cuadrado)
+        int[] heapIds = new int[k];
+        double[] heapDist = new double[k];
+        int heapSize = 0;
+        double bound = maxDist == Double.MAX_VALUE ? Double.MAX_VALUE : maxDist * maxDist;
+
+        int[] stack = new int[3 * 64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = ids.length - 1;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int axis = stack[--top];
+            int right = stack[--top];
+            int left = stack[--top];
+
+            if (right - left <= LEAF_SIZE) {
+                for (int i = left; i <= right; i++) {
+                    double dx = xs[i] - x;
+                    double dy = ys[i] - y;
+                    double d = dx * dx + dy * dy;
+                    if (d >= bound || (accept != null && !accept.test(ids[i]))) continue;
+                    if (heapSize < k) {
+                        heapSize = heapPush(heapIds, heapDist, heapSize, ids[i], d);
+                    } else {
+                        heapReplaceTop(heapIds, heapDist, heapSize, ids[i], d);
+                    }
+                    if (heapSize == k) bound = heapDist[0];
+                }
+                continue;
+            }
+
+            int m = (left + right) >>> 1;
+            double dx = xs[m] - x;
+            double dy = ys[m] - y;
+            double d = dx * dx + dy * dy;
+            if (d < bound && (accept == null || accept.test(ids[m]))) {
+                if (heapSize < k) {
+                    heapSize = heapPush(heapIds, heapDist, heapSize, ids[m], d);
+                } else {
+                    heapReplaceTop(heapIds, heapDist, heapSize, ids[m], d);
+                }
+                if (heapSize == k) bound = heapDist[0];
+            }
+
+            double diff = axis == 0 ? x - xs[m] : y - ys[m];
+            int nextAxis = 1 - axis;
+            // Apilar primero el lado lejano para visitar antes el cercano
+            if (diff < 0) {
+                if (diff * diff < bound) {
+                    stack[top++] = m + 1; stack[top++] = right; stack[top++] = nextAxis;
+                }
+                stack[top++] = left; stack[top++] = m - 1; stack[top++] = nextAxis;
+            } else {
+                if (diff * diff < bound) {
+                    stack[top++] = left; stack[top++] = m - 1; stack[top++] = nextAxis;
+                }
+                stack[top++] = m + 1; stack[top++] = right; stack[top++] = nextAxis;
+            }
+        }
+
+        // Vaciar el max-heap de atrás hacia adelante para ordenar de menor a mayor
+        int[] result = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = heapIds[0];
+            heapIds[0] = heapIds[i];
+            heapDist[0] = heapDist[i];
+            siftDown(heapIds, heapDist, i);
+        }
+        return result;
+    }
+
+    /**
+     * Visits every node inside the rectangle [minX, maxX] x [minY, maxY].
+     */
+    public void range(double minX, double minY, double maxX, double maxY, IntConsumer visitor) {
+        if (ids.length == 0) return;
+
+        int[] stack = new int[3 * 64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = ids.length - 1;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int axis = stack[--top];
+            int right = stack[--top];
+            int left = stack[--top];
+
+            if (right - left <= LEAF_SIZE) {
+                for (int i = left; i <= right; i++) {
+                    if (xs[i] >= minX && xs[i] <= maxX && ys[i] >= minY && ys[i] <= maxY) {
+                        visitor.accept(ids[i]);
+                    }
+                }
+                continue;
+            }
+
+            int m = (left + right) >>> 1;
+            double x = xs[m];
+            double y = ys[m];
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                visitor.accept(ids[m]);
+            }
+
+            int nextAxis = 1 - axis;
+            if (axis == 0 ? minX <= x : minY <= y) {
+                stack[top++] = left; stack[top++] = m - 1; stack[top++] = nextAxis;
+            }
+            if (axis == 0 ? maxX >= x : maxY >= y) {
+                stack[top++] = m + 1; stack[top++] = right; stack[top++] = nextAxis;
+            }
+        }
+    }
+
+    // Construcción: mediana por quickselect alternando eje, igual que un k-d tree implícito
+    private void build(int left, int right, int axis) {
+        if (right - left <= LEAF_SIZE) return;
+        int m = (left + right) >>> 1;
+        select(m, left, right, axis);
+        build(left, m - 1, 1 - axis);
+        build(m + 1, right, 1 - axis);
+    }
+
+    private void select(int k, int left, int right, int axis) {
+        double[] coords = axis == 0 ? lon : lat;
+        while (right > left) {
+            double pivot = coords[ids[k]];
+            int i = left;
+            int j = right;
+            swap(left, k);
+            if (coords[ids[right]] > pivot) swap(left, right);
+            while (i < j) {
+                swap(i, j);
+                i++;
+                j--;
+                while (coords[ids[i]] < pivot) i++;
+                while (coords[ids[j]] > pivot) j--;
+            }
+            if (coords[ids[left]] == pivot) {
+                swap(left, j);
+            } else {
+                j++;
+                swap(j, right);
+            }
+            if (j <= k) left = j + 1;
+            if (k <= j) right = j - 1;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int tmp = ids[i];
+        ids[i] = ids[j];
+        ids[j] = tmp;
+    }
+
+    private static int heapPush(int[] heapIds, double[] heapDist, int size, int id, double d) {
+        int i = size;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapDist[parent] >= d) break;
+            heapIds[i] = heapIds[parent];
+            heapDist[i] = heapDist[parent];
+            i = parent;
+        }
+        heapIds[i] = id;
+        heapDist[i] = d;
+        return size + 1;
+    }
+
+    private static void heapReplaceTop(int[] heapIds, double[] heapDist, int size, int id, double d) {
+        heapIds[0] = id;
+        heapDist[0] = d;
+        siftDown(heapIds, heapDist, size);
+    }
+
+    private static void siftDown(int[] heapIds, double[] heapDist, int size) {
+        if (size == 0) return;
+        int id = heapIds[0];
+        double d = heapDist[0];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heapDist[child + 1] > heapDist[child]) child++;
+            if (d >= heapDist[child]) break;
+            heapIds[i] = heapIds[child];
+            heapDist[i] = heapDist[child];
+            i = child;
+        }
+        heapIds[i] = id;
+        heapDist[i] = d;
+    }
+}
@@ -0,0 +1,243 @@
+package graph;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Packed pool holding the full LINESTRING geometry of every street segment.
+ * All vertices live in one float[] (lon/lat interleaved, stored as offsets
+ * from a base point so float precision stays at millimetre level) and each
+ * polyline is a range of that pool given by offsets[id]..offsets[id + 1].
+ */
+public class PolylineStore {
+    private double baseLon;
+    private double baseLat;
+    private boolean hasBase;
+
+    private float[] coords;
+    private int[] offsets;
+    private int pointCount;
+    private int polylineCount;
+
+    public PolylineStore() {
+        this.coords = new float[1024];
+        this.offsets = new int[256];
+        this.offsets[0] = 0;
+    }
+
+    /**
+     * Appends a polyline given as interleaved lon/lat values.
+     * @return the id of the new polyline
+     */
+    public int add(double[] lonLat, int points) {
+        if (!hasBase && points > 0) {
+            baseLon = lonLat[0];
+            baseLat = lonLat[1];
+            hasBase = true;
+        }
+        ensureCapacity(points);
+        for (int i = 0; i < points; i++) {
+            coords[2 * pointCount] = (float) (lonLat[2 * i] - baseLon);
+            coords[2 * pointCount + 1] = (float) (lonLat[2 * i + 1] - baseLat);
+            pointCount++;
+        }
+        offsets[++polylineCount] = pointCount;
+        return polylineCount - 1;
+    }
+
+    /**
+     * Appends the concatenation of several existing polylines, each walked in
+     * the given direction. The shared vertex between consecutive parts is kept once.
+     * @return the id of the new polyline
+     */
+    public int addConcatenation(int[] ids, boolean[] reversed) {
+        int total = 0;
+        for (int id : ids) total += pointCount(id);
+        double[] lonLat = new double[2 * total];
+        int points = 0;
+        for (int p = 0; p < ids.length; p++) {
+            int count = pointCount(ids[p]);
+            for (int k = (p == 0 ? 0 : 1); k < count; k++) {
+                lonLat[2 * points] = getLon(ids[p], k, reversed[p]);
+                lonLat[2 * points + 1] = getLat(ids[p], k, reversed[p]);
+                points++;
+            }
+        }
+        return add(lonLat, points);
+    }
+
+    /**
+     * Point at the given fraction of the polyline length, as {lon, lat}.
+     */
+    public double[] interpolate(int id, boolean reversed, double fraction) {
+        int count = pointCount(id);
+        double cosLat = Math.cos(Math.toRadians(getLat(id, 0, reversed)));
+        double total = 0;
+        for (int k = 0; k < count - 1; k++) {
+            total += segmentLength(id, k, reversed, cosLat);
+        }
+        double target = total * Math.max(0, Math.min(1, fraction));
+        for (int k = 0; k < count - 1; k++) {
+            double length = segmentLength(id, k, reversed, cosLat);
+            if (target <= length || k == count - 2) {
+                double t = length > 0 ? Math.min(1, target / length) : 0;
+                double lon = getLon(id, k, reversed) + (getLon(id, k + 1, reversed) - getLon(id, k, reversed)) * t;
+                double lat = getLat(id, k, reversed) + (getLat(id, k + 1, reversed) - getLat(id, k, reversed)) * t;
+                return new double[]{lon, lat};
+            }
+            target -= length;
+        }
+        return new double[]{getLon(id, 0, reversed), getLat(id, 0, reversed)};
+    }
+
+    private double segmentLength(int id, int k, boolean reversed, double cosLat) {
+        double dx = (getLon(id, k + 1, reversed) - getLon(id, k, reversed)) * cosLat;
+        double dy = getLat(id, k + 1, reversed) - getLat(id, k, reversed);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private void ensureCapacity(int extraPoints) {
+        if (2 * (pointCount + extraPoints) > coords.length) {
+            coords = Arrays.copyOf(coords, Math.max(coords.length * 2, 2 * (pointCount + extraPoints)));
+        }
+        if (polylineCount + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+    }
+
+    /**
+     * Releases the spare capacity once loading is done.
+     */
+    public void trim() {
+        coords = Arrays.copyOf(coords, 2 * pointCount);
+        offsets = Arrays.copyOf(offsets, polylineCount + 1);
+    }
+
+    public int size() {
+        return polylineCount;
+    }
+
+    public int totalPoints() {
+        return pointCount;
+    }
+
+    public int pointCount(int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    /**
+     * Longitude of the k-th vertex, walking backwards when reversed is true
+     * (the reverse edge of a two-way street shares its twin's polyline).
+     */
+    public double getLon(int id, int k, boolean reversed) {
+        int index = reversed ? offsets[id + 1] - 1 - k : offsets[id] + k;
+        return coords[2 * index] + baseLon;
+    }
+
+    public double getLat(int id, int k, boolean reversed) {
+        int index = reversed ? offsets[id + 1] - 1 - k : offsets[id] + k;
+        return coords[2 * index + 1] + baseLat;
+    }
+
+    // Offsets crudos respecto del punto base, para los bucles de dibujo
+    public float getRawLon(int index) {
+        return coords[2 * index];
+    }
+
+    public float getRawLat(int index) {
+        return coords[2 * index + 1];
+    }
+
+    public int getStart(int id) {
+        return offsets[id];
+    }
+
+    public int getEnd(int id) {
+        return offsets[id + 1];
+    }
+
+    public double getBaseLon() {
+        return baseLon;
+    }
+
+    public double getBaseLat() {
+        return baseLat;
+    }
+
+    /**
+     * Writes the pool delta-encoded: every vertex is stored as the zig-zag
+     * varint difference from the previous one in 1e-7 degree units. The
+     * format is lossy: vertices are rounded to that unit (about 1 cm), so
+     * readFrom gives back the same polylines with every vertex within 1e-7
+     * degrees of the original, not bit-identical coordinates.
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeDouble(baseLon);
+        out.writeDouble(baseLat);
+        out.writeInt(polylineCount);
+        out.writeInt(pointCount);
+        for (int i = 1; i <= polylineCount; i++) {
+            writeVarInt(out, offsets[i] - offsets[i - 1]);
+        }
+        long prevLon = 0, prevLat = 0;
+        for (int i = 0; i < pointCount; i++) {
+            long lon = Math.round(coords[2 * i] * 1e7);
+            long lat = Math.round(coords[2 * i + 1] * 1e7);
+            writeVarInt(out, zigZag(lon - prevLon));
+            writeVarInt(out, zigZag(lat - prevLat));
+            prevLon = lon;
+            prevLat = lat;
+        }
+    }
+
+    public static PolylineStore readFrom(DataInputStream in) throws IOException {
+        PolylineStore store = new PolylineStore();
+        store.baseLon = in.readDouble();
+        store.baseLat = in.readDouble();
+        store.hasBase = true;
+        store.polylineCount = in.readInt();
+        store.pointCount = in.readInt();
+        store.offsets = new int[store.polylineCount + 1];
+        store.coords = new float[2 * store.pointCount];
+        for (int i = 1; i <= store.polylineCount; i++) {
+            store.offsets[i] = store.offsets[i - 1] + (int) readVarInt(in);
+        }
+        long lon = 0, lat = 0;
+        for (int i = 0; i < store.pointCount; i++) {
+            lon += unZigZag(readVarInt(in));
+            lat += unZigZag(readVarInt(in));
+            store.coords[2 * i] = (float) (lon / 1e7);
+            store.coords[2 * i + 1] = (float) (lat / 1e7);
+        }
+        return store;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarInt(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            shift += 7;
+        }
+    }
+}
@@ -1,37 +1,21 @@
 package gui;
 
 import java.awt.geom.Point2D;
-import java.util.Map;
+import java.util.function.IntPredicate;
+import graph.NodeSpatialIndex;
 
 public class CoordTransformer {
-    public static Point2D.Double coordToScreen(String coord, double minLon, double maxLat, double scale, double offsetX, double offsetY) {
-        try {
-            String[] parts = coord.split(" ");
-            double lon = Double.parseDouble(parts[0]);
-            double lat = Double.parseDouble(parts[1]);
-
-            double x = (lon - minLon) * scale + offsetX;
-            double y = (maxLat - lat) * scale + offsetY;
-            return new Point2D.Double(x, y);
-        } catch (Exception e) {
-            return null;
-        }
+    // Punto de pantalla a (lon, lat)
+    public static Point2D.Double screenToMap(double x, double y, double minLon, double maxLat, double scale, double offsetX, double offsetY) {
+        return new Point2D.Double((x - offsetX) / scale + minLon, maxLat - (y - offsetY) / scale);
     }
 
-    public static Integer screenToNodeId(double x, double y, Map<Integer, String> idToCoord, double minLon, double maxLat, double scale, double offsetX, double offsetY) {
-        double minDist = 10.0;
-        Integer nearest = null;
+    public static Integer screenToNodeId(double x, double y, NodeSpatialIndex spatialIndex, double minLon, double maxLat, double scale, double offsetX, double offsetY, IntPredicate accept) {
+        // Llevar el punto y el radio de 10 px a coordenadas del mapa y consultar el índice
+        Point2D.Double point = screenToMap(x, y, minLon, maxLat, scale, offsetX, offsetY);
+        double maxDist = 10.0 / scale;
 
-        for (Map.Entry<Integer, String> entry : idToCoord.entrySet()) {
-            Point2D.Double pos = coordToScreen(entry.getValue(), minLon, maxLat, scale, offsetX, offsetY);
-            if (pos != null) {
-                double dist = pos.distance(x, y);
-                if (dist < minDist) {
-                    minDist = dist;
-                    nearest = entry.getKey();
-                }
-            }
-        }
-        return nearest;
+        int nearest = spatialIndex.nearest(point.x, point.y, maxDist, accept);
+        return nearest >= 0 ? nearest : null;
     }
 }
@@ -2,7 +2,7 @@ package gui;
 
 import java.awt.event.*;
 import java.awt.geom.Point2D;
-import java.util.Map;
+import graph.GraphSimplifier;
 import models.*;
 
 public class MapInteractionHandler {
@@ -69,25 +69,34 @@ public class MapInteractionHandler {
     }
 
     private void handleMapClick(double x, double y) {
-        Integer nodeId = screenToNodeId(x, y);
+        // Con puntos libres cualquier clic vale; el nodo queda como la intersección más cercana
+        Integer nodeId = panel.snapToStreets ? nearestNodeId(x, y) : screenToNodeId(x, y);
 
         if (nodeId != null) {
+            Point2D.Double point = CoordTransformer.screenToMap(x, y, panel.minLon, panel.maxLat, panel.scale,
+                                                               panel.offsetX, panel.offsetY);
             if (panel.selectedOrigin == null) {
                 panel.selectedOrigin = nodeId;
+                panel.originPoint = point;
                 panel.statusLabel.setText("Origin selected: Node " + nodeId + ". Click another node for destination.");
             } else if (panel.selectedDestination == null && !nodeId.equals(panel.selectedOrigin)) {
                 panel.selectedDestination = nodeId;
+                panel.destinationPoint = point;
                 panel.statusLabel.setText("Destination selected: Node " + nodeId + ". Press 'Find Route' to calculate path.");
                 panel.findRouteButton.setEnabled(true);
             } else {
                 // Reset and start over
                 panel.selectedOrigin = nodeId;
                 panel.selectedDestination = null;
+                panel.originPoint = point;
+                panel.destinationPoint = null;
                 panel.currentRoute.clear();
+                panel.currentVirtualRoute = null;
                 panel.statusLabel.setText("Origin selected: Node " + nodeId + ". Click another node for destination.");
                 panel.findRouteButton.setEnabled(false);
             }
 
+            if (panel.selectionListener != null) panel.selectionListener.run();
             panel.repaint();
         }
     }
@@ -109,30 +118,28 @@ public class MapInteractionHandler {
         }
     }
 
-    private Integer screenToNodeId(double screenX, double screenY) {
-        double threshold = 10.0;
-        Integer nearestNode = null;
-        double minDistance = threshold;
-
-        for (Map.Entry<Integer, String> entry : panel.idToCoordData.entrySet()) {
-            Point2D.Double pos = CoordTransformer.coordToScreen(
-                entry.getValue(),
-                panel.minLon,
-                panel.maxLat,
-                panel.scale,
-                panel.offsetX,
-                panel.offsetY
-            );
-
-            if (pos != null) {
-                double distance = pos.distance(screenX, screenY);
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    nearestNode = entry.getKey();
-                }
-            }
-        }
+    private Integer nearestNodeId(double screenX, double screenY) {
+        if (panel.spatialIndex == null) return null;
+        Point2D.Double point = CoordTransformer.screenToMap(screenX, screenY, panel.minLon, panel.maxLat, panel.scale,
+                                                           panel.offsetX, panel.offsetY);
+        int nearest = panel.spatialIndex.nearest(point.x, point.y, Double.MAX_VALUE,
+                                                 id -> !GraphSimplifier.isRemoved(panel.graphData[id]));
+        return nearest >= 0 ? nearest : null;
+    }
 
-        return nearestNode;
+    private Integer screenToNodeId(double screenX, double screenY) {
+        if (panel.spatialIndex == null) return null;
+
+        return CoordTransformer.screenToNodeId(
+            screenX,
+            screenY,
+            panel.spatialIndex,
+            panel.minLon,
+            panel.maxLat,
+            panel.scale,
+            panel.offsetX,
+            panel.offsetY,
+            id -> !GraphSimplifier.isRemoved(panel.graphData[id]) // los nodos colapsados no se pueden elegir
+        );
     }
 }
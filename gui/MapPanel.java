@@ -3,10 +3,17 @@ package gui;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.geom.Point2D;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
+import java.util.Arrays;
 
+import algorithms.IsochroneSearch;
+import algorithms.SearchSpaceRecorder;
+import algorithms.VirtualNodeSearch;
+import graph.NodeSpatialIndex;
+import graph.PolylineStore;
 import models.*;
 
 public class MapPanel extends JPanel {
@@ -15,9 +22,22 @@ public class MapPanel extends JPanel {
 
     public Node[] graphData;
     public Map<Integer, String> idToCoordData;
+    public double[] nodeLon, nodeLat;
+    public ProjectedNodes projected;
+    public NodeSpatialIndex spatialIndex;
+    public PolylineStore geometry;
+    public StreetRenderIndex streetIndex;
+    public StreetLevelOfDetail levelOfDetail;
     public List<Integer> currentRoute;
     public Integer selectedOrigin;
     public Integer selectedDestination;
+    public Point2D.Double originPoint, destinationPoint; // (lon, lat) exactos de los clics
+    public VirtualNodeSearch.Result currentVirtualRoute; // ruta entre coordenadas, con sus tramos parciales
+    public boolean snapToStreets; // los clics eligen puntos libres, no solo intersecciones
+    public IsochroneSearch.Result currentIsochrone;
+    public SearchSpaceRecorder currentSearchSpace; // nodos explorados por la última consulta
+    public final RenderStats renderStats = new RenderStats();
+    public boolean showRenderStats;
     public double scale, offsetX, offsetY;
     public double minLat, maxLat, minLon, maxLon;
     public VehicleProfile currentProfile = VehicleProfile.VEHICULOS;
@@ -25,11 +45,15 @@ public class MapPanel extends JPanel {
 
     public JLabel statusLabel;
     public JButton findRouteButton;
+    public Runnable selectionListener; // avisado cuando un clic cambia origen o destino
 
     public static final Color STREET_COLOR = new Color(200, 200, 200);
     public static final Color ORIGIN_COLOR = Color.GREEN;
     public static final Color DESTINATION_COLOR = Color.BLUE;
     public static final Color SELECTED_ROUTE_COLOR = Color.RED;
+    public static final Color ISOCHRONE_COLOR = new Color(255, 140, 0);
+    public static final Color FORWARD_SEARCH_COLOR = new Color(130, 0, 200);
+    public static final Color BACKWARD_SEARCH_COLOR = new Color(230, 110, 0);
 
     public MapPanel() {
         setPreferredSize(new Dimension(1200, 800));
@@ -65,6 +89,8 @@ public class MapPanel extends JPanel {
         double BA_MIN_LON = -58.7, BA_MAX_LON = -58.3;
         double BA_MIN_LAT = -34.8, BA_MAX_LAT = -34.4;
 
+        ensureNodeCoordinates();
+
         minLat = BA_MAX_LAT;
         maxLat = BA_MIN_LAT;
         minLon = BA_MAX_LON;
@@ -72,24 +98,17 @@ public class MapPanel extends JPanel {
 
         int validCoords = 0;
 
-        for (String coord : idToCoordData.values()) {
-            String[] parts = coord.split(" ");
-            if (parts.length == 2) {
-                try {
-                    double lon = Double.parseDouble(parts[0]);
-                    double lat = Double.parseDouble(parts[1]);
-
-                    if (lon >= BA_MIN_LON && lon <= BA_MAX_LON &&
-                        lat >= BA_MIN_LAT && lat <= BA_MAX_LAT) {
-                        minLon = Math.min(minLon, lon);
-                        maxLon = Math.max(maxLon, lon);
-                        minLat = Math.min(minLat, lat);
-                        maxLat = Math.max(maxLat, lat);
-                        validCoords++;
-                    }
-                } catch (NumberFormatException e) {
-                    // skip
-                }
+        for (int i = 0; i < nodeLon.length; i++) {
+            double lon = nodeLon[i];
+            double lat = nodeLat[i];
+
+            if (lon >= BA_MIN_LON && lon <= BA_MAX_LON &&
+                lat >= BA_MIN_LAT && lat <= BA_MAX_LAT) {
+                minLon = Math.min(minLon, lon);
+                maxLon = Math.max(maxLon, lon);
+                minLat = Math.min(minLat, lat);
+                maxLat = Math.max(maxLat, lat);
+                validCoords++;
             }
         }
 
@@ -120,6 +139,30 @@ public class MapPanel extends JPanel {
             minLat = -34.7;
             maxLat = -34.5;
         }
+
+        // Posiciones proyectadas una sola vez respecto del nuevo origen
+        projected = new ProjectedNodes(nodeLon, nodeLat, minLon, maxLat,
+                                       BA_MIN_LON, BA_MAX_LON, BA_MIN_LAT, BA_MAX_LAT);
+    }
+
+    // Sin arreglos del loader, se parsean los "lon lat" una única vez
+    private void ensureNodeCoordinates() {
+        if (nodeLon != null && nodeLat != null) return;
+
+        nodeLon = new double[graphData.length];
+        nodeLat = new double[graphData.length];
+        Arrays.fill(nodeLon, Double.NaN);
+        Arrays.fill(nodeLat, Double.NaN);
+        for (Map.Entry<Integer, String> entry : idToCoordData.entrySet()) {
+            String[] parts = entry.getValue().split(" ");
+            if (parts.length != 2) continue;
+            try {
+                nodeLon[entry.getKey()] = Double.parseDouble(parts[0]);
+                nodeLat[entry.getKey()] = Double.parseDouble(parts[1]);
+            } catch (NumberFormatException e) {
+                // skip
+            }
+        }
     }
 
     public void fitMapToWindow() {
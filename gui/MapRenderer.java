@@ -3,16 +3,34 @@ package gui;
 import java.awt.*;
 import java.awt.geom.*;
 import java.util.List;
+import java.util.BitSet;
+import algorithms.IsochroneSearch;
+import algorithms.SearchSpaceRecorder;
+import algorithms.VirtualNodeSearch;
+import graph.EdgeSnap;
+import graph.GraphSimplifier;
+import graph.NodeSpatialIndex;
 import models.Edge;
 import models.Node;
 import models.VehicleProfile;
-import models.EdgeWeightCustomizer;
 
 public class MapRenderer {
+    // Presupuesto de memoria de los tiles: un octavo del heap, hasta 256 MB
+    private static final long TILE_CACHE_BYTES = Math.min(256L << 20, Runtime.getRuntime().maxMemory() / 8);
+
+    private static final Font NODE_LABEL_FONT = new Font("Arial", Font.BOLD, 12);
+
     private final MapPanel panel;
+    private final StreetPainter painter;
+    private TileCache tileCache;
+    private int nodesDrawn; // del último drawAllNodes
+    // Nodos que se pueden dibujar (válidos y no colapsados), contados una vez por proyección
+    private ProjectedNodes countedNodes;
+    private int drawableNodes;
 
     public MapRenderer(MapPanel panel) {
         this.panel = panel;
+        this.painter = new StreetPainter(panel);
     }
 
     public void render(Graphics2D g2d) {
@@ -28,124 +46,113 @@ public class MapRenderer {
             panel.fitMapToWindow();
         }
 
+        RenderStats stats = panel.renderStats;
+        stats.beginFrame();
         drawStreets(g2d);
+        stats.endPhase(RenderStats.Phase.STREETS);
+        drawIsochrone(g2d, panel.currentIsochrone);
+        stats.endPhase(RenderStats.Phase.OVERLAYS);
         drawAllNodes(g2d);
+        stats.endPhase(RenderStats.Phase.NODES);
+        drawSearchSpace(g2d, panel.currentSearchSpace);
+        stats.endPhase(RenderStats.Phase.OVERLAYS);
         drawRoute(g2d, panel.currentRoute);
+        drawVirtualEnds(g2d, panel.currentVirtualRoute);
         drawSelectedNodes(g2d);
+        stats.endPhase(RenderStats.Phase.ROUTE);
         drawLegend(g2d);
-    }
-
-    private void drawStreets(Graphics2D g2d) {
-        for (Node node : panel.graphData) {
-            for (Edge edge : node.outEdges) {
-                Point2D.Double start = coordToScreen(panel.idToCoordData.get(edge.from));
-                Point2D.Double end = coordToScreen(panel.idToCoordData.get(edge.to));
+        stats.endPhase(RenderStats.Phase.LEGEND);
+        stats.endFrame();
 
-                if (start != null && end != null) {
-                    drawStreetSegment(g2d, start, end, edge);
-                }
-            }
+        if (panel.showRenderStats) {
+            stats.drawOverlay(g2d, panel.getWidth());
         }
     }
 
-    private void drawStreetSegment(Graphics2D g2d, Point2D.Double start, Point2D.Double end, Edge edge) {
-        boolean isBidirectional = false;
-        for (Edge reverseEdge : panel.graphData[edge.to].outEdges) {
-            if (reverseEdge.to == edge.from && reverseEdge.streetName.equals(edge.streetName)) {
-                isBidirectional = true;
-                break;
+    private void drawStreets(Graphics2D g2d) {
+        // Con índice de calles se pintan tiles pre-renderizados; sin él, dibujo directo
+        if (panel.streetIndex != null) {
+            if (tileCache == null || !tileCache.hasOrigin(panel.minLon, panel.maxLat)) {
+                if (tileCache != null) tileCache.shutdown();
+                tileCache = new TileCache(panel, panel.minLon, panel.maxLat, TILE_CACHE_BYTES);
             }
+            tileCache.paint(g2d, panel.scale, panel.offsetX, panel.offsetY,
+                            panel.getWidth(), panel.getHeight(), panel.currentProfile);
+            panel.renderStats.count(RenderStats.Counter.TILES_DRAWN, tileCache.getLastTilesDrawn());
+            panel.renderStats.count(RenderStats.Counter.TILES_MISSING, tileCache.getLastTilesMissing());
+            // El dibujo real de las calles ocurre en los workers de los tiles
+            tileCache.drainRenderStats(panel.renderStats);
+            return;
         }
 
-        double scale = panel.scale;
-        float baseThickness = Math.max(1.0f, (float)(scale / 50000));
-        if (scale > 100000) baseThickness = Math.max(2.0f, (float)(scale / 100000));
-
-        // Determine edge color based on profile suitability
-        Color edgeColor = getEdgeColorForProfile(edge, panel.currentProfile);
-        
-        if (isBidirectional) {
-            g2d.setColor(edgeColor);
-            g2d.setStroke(new BasicStroke(baseThickness * 1.5f));
-        } else {
-            g2d.setColor(edgeColor.darker());
-            g2d.setStroke(new BasicStroke(baseThickness));
-        }
+        painter.setView(panel.minLon, panel.maxLat, panel.scale, panel.offsetX, panel.offsetY,
+                        panel.getWidth(), panel.getHeight());
+        painter.paint(g2d, panel.currentProfile);
+        panel.renderStats.count(RenderStats.Counter.STREETS_DRAWN, painter.getStreetsDrawn());
+        panel.renderStats.count(RenderStats.Counter.STREETS_CULLED, painter.getStreetsCulled());
+        panel.renderStats.count(RenderStats.Counter.SEGMENTS_DRAWN, painter.getSegmentsDrawn());
+    }
 
-        g2d.drawLine((int) start.x, (int) start.y, (int) end.x, (int) end.y);
+    private void drawIsochrone(Graphics2D g2d, IsochroneSearch.Result isochrone) {
+        if (isochrone == null || isochrone.polygon.size() < 3) return;
 
-        if (!isBidirectional && scale > 2000) {
-            drawDirectionArrow(g2d, start, end);
+        Path2D.Double area = new Path2D.Double();
+        for (double[] vertex : isochrone.polygon) {
+            Point2D.Double p = lonLatToScreen(vertex[0], vertex[1]);
+            if (area.getCurrentPoint() == null) {
+                area.moveTo(p.x, p.y);
+            } else {
+                area.lineTo(p.x, p.y);
+            }
+        }
+        area.closePath();
+
+        Color color = MapPanel.ISOCHRONE_COLOR;
+        g2d.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), 60));
+        g2d.fill(area);
+        g2d.setColor(color);
+        g2d.setStroke(new BasicStroke(2.0f));
+        g2d.draw(area);
+
+        // Cortes del presupuesto sobre las aristas de borde
+        int size = Math.max(3, Math.min(8, (int)(panel.scale / 20000)));
+        for (IsochroneSearch.BoundaryEdge cut : isochrone.boundaryEdges) {
+            Point2D.Double p = lonLatToScreen(cut.lon, cut.lat);
+            g2d.fillOval((int) p.x - size / 2, (int) p.y - size / 2, size, size);
         }
     }
-    
+
     /**
-     * Determines the color of an edge based on its suitability for the current profile
+     * Heat overlay of the nodes a query explored: translucent dots that add
+     * up where the search was dense. Forward and backward directions get
+     * their own colour; nodes only relaxed are fainter than settled ones.
      */
-    private Color getEdgeColorForProfile(Edge edge, VehicleProfile profile) {
-        // Calculate custom weight for this edge with the current profile
-        double defaultWeight = edge.getDistance();
-        double profileWeight = EdgeWeightCustomizer.calculateWeight(edge, profile);
-        
-        // Debug: Print some sample edges for testing
-        if (Math.random() < 0.001) { // Print 0.1% of edges for debugging
-            System.out.println("DEBUG: Edge " + edge.from + "->" + edge.to + 
-                " | Profile: " + profile + 
-                " | Default: " + defaultWeight + 
-                " | Profile: " + profileWeight +
-                " | Sentido: " + edge.getSentido() +
-                " | TipoC: " + edge.getTipoC() +
-                " | RedJerarq: " + edge.getRedJerarq() +
-                " | Bicisenda: " + edge.getBicisenda());
-        }
-        
-        if (profileWeight == Double.POSITIVE_INFINITY || profileWeight == Double.MAX_VALUE) {
-            // Completely prohibited - dark red
-            return new Color(150, 0, 0); // Dark red
-        } else if (profileWeight > defaultWeight * 5.0) {
-            // Heavily discouraged - blue
-            return new Color(0, 100, 200); // Blue
-        } else if (profileWeight > defaultWeight * 2.0) {
-            // Discouraged - blue
-            return new Color(0, 100, 200); // Blue
-        } else if (profileWeight < defaultWeight * 0.9) {
-            // Preferred route - green
-            return new Color(0, 150, 0); // Green
-        } else {
-            // Normal route - standard gray
-            return MapPanel.STREET_COLOR; // Gray
-        }
+    private void drawSearchSpace(Graphics2D g2d, SearchSpaceRecorder searchSpace) {
+        if (searchSpace == null) return;
+
+        int size = Math.max(4, Math.min(10, (int) (panel.scale / 8000)));
+        drawNodeSet(g2d, searchSpace.forwardRelaxed, withAlpha(MapPanel.FORWARD_SEARCH_COLOR, 50), size);
+        drawNodeSet(g2d, searchSpace.backwardRelaxed, withAlpha(MapPanel.BACKWARD_SEARCH_COLOR, 50), size);
+        drawNodeSet(g2d, searchSpace.forwardSettled, withAlpha(MapPanel.FORWARD_SEARCH_COLOR, 120), size);
+        drawNodeSet(g2d, searchSpace.backwardSettled, withAlpha(MapPanel.BACKWARD_SEARCH_COLOR, 120), size);
     }
 
-    private void drawDirectionArrow(Graphics2D g2d, Point2D.Double start, Point2D.Double end) {
-        double dx = end.x - start.x;
-        double dy = end.y - start.y;
-        double length = Math.sqrt(dx * dx + dy * dy);
-
-        if (length < 20) return;
-
-        double unitX = dx / length;
-        double unitY = dy / length;
-
-        double scale = panel.scale;
-        double arrowSize = Math.min(15, Math.max(3, scale / 10000));
-        if (scale > 100000) arrowSize = Math.min(25, scale / 50000);
-
-        double arrowX = start.x + dx * 0.7;
-        double arrowY = start.y + dy * 0.7;
-
-        double angle = Math.PI / 6;
-        double arrowX1 = arrowX - arrowSize * (unitX * Math.cos(angle) - unitY * Math.sin(angle));
-        double arrowY1 = arrowY - arrowSize * (unitX * Math.sin(angle) + unitY * Math.cos(angle));
-        double arrowX2 = arrowX - arrowSize * (unitX * Math.cos(-angle) - unitY * Math.sin(-angle));
-        double arrowY2 = arrowY - arrowSize * (unitX * Math.sin(-angle) + unitY * Math.cos(-angle));
-
-        float arrowThickness = Math.max(0.8f, (float)(scale / 100000));
-        if (scale > 200000) arrowThickness = Math.max(1.5f, (float)(scale / 200000));
+    private void drawNodeSet(Graphics2D g2d, BitSet nodeSet, Color color, int size) {
+        ProjectedNodes nodes = panel.projected;
+        int width = panel.getWidth();
+        int height = panel.getHeight();
+        g2d.setColor(color);
+        for (int id = nodeSet.nextSetBit(0); id >= 0; id = nodeSet.nextSetBit(id + 1)) {
+            if (!nodes.isValid(id)) continue;
+            int x = (int) nodes.screenX(id, panel.scale, panel.offsetX) - size / 2;
+            int y = (int) nodes.screenY(id, panel.scale, panel.offsetY) - size / 2;
+            if (x < -size || y < -size || x > width || y > height) continue;
+            g2d.fillRect(x, y, size, size);
+        }
+    }
 
-        g2d.setStroke(new BasicStroke(arrowThickness));
-        g2d.drawLine((int) arrowX, (int) arrowY, (int) arrowX1, (int) arrowY1);
-        g2d.drawLine((int) arrowX, (int) arrowY, (int) arrowX2, (int) arrowY2);
+    private static Color withAlpha(Color color, int alpha) {
+        return new Color(color.getRed(), color.getGreen(), color.getBlue(), alpha);
     }
 
     private void drawRoute(Graphics2D g2d, List<Integer> route) {
@@ -155,17 +162,75 @@ public class MapRenderer {
         float thickness = Math.max(3.0f, (float)(panel.scale / 20000));
         if (panel.scale > 100000) thickness = Math.max(5.0f, (float)(panel.scale / 50000));
         g2d.setStroke(new BasicStroke(thickness));
+        painter.setView(panel.minLon, panel.maxLat, panel.scale, panel.offsetX, panel.offsetY,
+                        panel.getWidth(), panel.getHeight());
 
         for (int i = 0; i < route.size() - 1; i++) {
-            Point2D.Double start = coordToScreen(panel.idToCoordData.get(route.get(i)));
-            Point2D.Double end = coordToScreen(panel.idToCoordData.get(route.get(i + 1)));
+            int from = route.get(i);
+            int to = route.get(i + 1);
+
+            // Seguir la geometría de la calle cuando el tramo es una arista real
+            Edge street = null;
+            for (Edge edge : panel.graphData[from].outEdges) {
+                if (edge.to == to && !edge.isShortcut()) {
+                    street = edge;
+                    break;
+                }
+            }
+            int points = street != null ? painter.projectEdge(street) : 0;
+            if (points >= 2) {
+                double[] polylineX = painter.getX();
+                double[] polylineY = painter.getY();
+                for (int k = 0; k < points - 1; k++) {
+                    g2d.drawLine((int) polylineX[k], (int) polylineY[k], (int) polylineX[k + 1], (int) polylineY[k + 1]);
+                }
+                continue;
+            }
 
-            if (start != null && end != null) {
-                g2d.drawLine((int) start.x, (int) start.y, (int) end.x, (int) end.y);
+            ProjectedNodes nodes = panel.projected;
+            if (nodes.isValid(from) && nodes.isValid(to)) {
+                g2d.drawLine((int) nodes.screenX(from, panel.scale, panel.offsetX),
+                             (int) nodes.screenY(from, panel.scale, panel.offsetY),
+                             (int) nodes.screenX(to, panel.scale, panel.offsetX),
+                             (int) nodes.screenY(to, panel.scale, panel.offsetY));
             }
         }
     }
 
+    // Tramos parciales entre los puntos proyectados sobre las calles y la primera/última intersección
+    private void drawVirtualEnds(Graphics2D g2d, VirtualNodeSearch.Result route) {
+        if (route == null || route.path == null) return;
+        ProjectedNodes nodes = panel.projected;
+        Point2D.Double source = snapToScreen(route.source);
+        Point2D.Double target = snapToScreen(route.target);
+        g2d.setColor(MapPanel.SELECTED_ROUTE_COLOR);
+        if (route.path.isEmpty()) {
+            g2d.drawLine((int) source.x, (int) source.y, (int) target.x, (int) target.y);
+        } else {
+            int first = route.path.get(0), last = route.path.get(route.path.size() - 1);
+            if (nodes.isValid(first)) {
+                g2d.drawLine((int) source.x, (int) source.y, (int) nodes.screenX(first, panel.scale, panel.offsetX),
+                             (int) nodes.screenY(first, panel.scale, panel.offsetY));
+            }
+            if (nodes.isValid(last)) {
+                g2d.drawLine((int) nodes.screenX(last, panel.scale, panel.offsetX),
+                             (int) nodes.screenY(last, panel.scale, panel.offsetY), (int) target.x, (int) target.y);
+            }
+        }
+        int size = 8;
+        for (Point2D.Double point : new Point2D.Double[]{source, target}) {
+            g2d.setColor(Color.WHITE);
+            g2d.fillOval((int) point.x - size / 2, (int) point.y - size / 2, size, size);
+            g2d.setColor(MapPanel.SELECTED_ROUTE_COLOR);
+            g2d.drawOval((int) point.x - size / 2, (int) point.y - size / 2, size, size);
+        }
+    }
+
+    private Point2D.Double snapToScreen(EdgeSnap snap) {
+        return new Point2D.Double((snap.lon - panel.minLon) * panel.scale + panel.offsetX,
+                                  (panel.maxLat - snap.lat) * panel.scale + panel.offsetY);
+    }
+
     private void drawSelectedNodes(Graphics2D g2d) {
         double scale = panel.scale;
         int size = Math.max(8, Math.min(25, (int)(scale / 4000)));
@@ -181,14 +246,16 @@ public class MapRenderer {
     }
 
     private void drawNode(Graphics2D g2d, int nodeId, Color color, String label, int size) {
-        Point2D.Double pos = coordToScreen(panel.idToCoordData.get(nodeId));
-        if (pos != null) {
+        ProjectedNodes nodes = panel.projected;
+        if (nodes.isValid(nodeId)) {
+            int x = (int) nodes.screenX(nodeId, panel.scale, panel.offsetX);
+            int y = (int) nodes.screenY(nodeId, panel.scale, panel.offsetY);
             g2d.setColor(color);
-            g2d.fillOval((int) pos.x - size / 2, (int) pos.y - size / 2, size, size);
+            g2d.fillOval(x - size / 2, y - size / 2, size, size);
             g2d.setColor(Color.BLACK);
-            g2d.drawOval((int) pos.x - size / 2, (int) pos.y - size / 2, size, size);
-            g2d.setFont(new Font("Arial", Font.BOLD, 12));
-            g2d.drawString(label, (int) pos.x + size / 2 + 5, (int) pos.y - size / 2 - 5);
+            g2d.drawOval(x - size / 2, y - size / 2, size, size);
+            g2d.setFont(NODE_LABEL_FONT);
+            g2d.drawString(label, x + size / 2 + 5, y - size / 2 - 5);
         }
     }
 
@@ -272,6 +339,36 @@ public class MapRenderer {
     }
 
     private void drawAllNodes(Graphics2D g2d) {
+        nodesDrawn = 0;
+        drawVisibleNodes(g2d);
+        panel.renderStats.count(RenderStats.Counter.NODES_DRAWN, nodesDrawn);
+        // Origen y destino se dibujan aparte: no son candidatos ni cuentan como descartados
+        int candidates = drawableNodes() - (isDrawable(panel.selectedOrigin) ? 1 : 0);
+        if (isDrawable(panel.selectedDestination) && !panel.selectedDestination.equals(panel.selectedOrigin)) {
+            candidates--;
+        }
+        panel.renderStats.count(RenderStats.Counter.NODES_CULLED, Math.max(0, candidates - nodesDrawn));
+    }
+
+    private int drawableNodes() {
+        ProjectedNodes nodes = panel.projected;
+        if (nodes != countedNodes) {
+            int count = 0;
+            for (int nodeId = 0; nodeId < nodes.size(); nodeId++) {
+                if (isDrawable(nodeId)) count++;
+            }
+            countedNodes = nodes;
+            drawableNodes = count;
+        }
+        return drawableNodes;
+    }
+
+    private boolean isDrawable(Integer nodeId) {
+        return nodeId != null && panel.projected.isValid(nodeId)
+            && !GraphSimplifier.isRemoved(panel.graphData[nodeId]);
+    }
+
+    private void drawVisibleNodes(Graphics2D g2d) {
         if (panel.scale < 500) return;
 
         int nodeSize = Math.max(2, Math.min(20, (int)(panel.scale / 5000)));
@@ -279,37 +376,51 @@ public class MapRenderer {
 
         g2d.setColor(Color.WHITE);
 
-        for (Integer nodeId : panel.idToCoordData.keySet()) {
-            if (nodeId.equals(panel.selectedOrigin) || nodeId.equals(panel.selectedDestination)) continue;
-
-            Point2D.Double pos = coordToScreen(panel.idToCoordData.get(nodeId));
-            if (pos != null && pos.x >= -nodeSize && pos.x <= panel.getWidth() + nodeSize
-                    && pos.y >= -nodeSize && pos.y <= panel.getHeight() + nodeSize) {
-                g2d.fillOval((int) pos.x - nodeSize / 2, (int) pos.y - nodeSize / 2, nodeSize, nodeSize);
-                g2d.setColor(Color.BLACK);
-                g2d.drawOval((int) pos.x - nodeSize / 2, (int) pos.y - nodeSize / 2, nodeSize, nodeSize);
-                g2d.setColor(Color.WHITE);
+        ProjectedNodes nodes = panel.projected;
+        double scale = panel.scale;
+        NodeSpatialIndex index = panel.spatialIndex;
+        if (index == null) {
+            for (int nodeId = 0; nodeId < nodes.size(); nodeId++) {
+                if (!nodes.isValid(nodeId)) continue;
+                double x = nodes.screenX(nodeId, scale, panel.offsetX);
+                double y = nodes.screenY(nodeId, scale, panel.offsetY);
+                if (x >= -nodeSize && x <= panel.getWidth() + nodeSize
+                        && y >= -nodeSize && y <= panel.getHeight() + nodeSize) {
+                    drawAvailableNode(g2d, nodeId, (int) x, (int) y, nodeSize);
+                }
             }
+            return;
         }
-    }
 
-    private Point2D.Double coordToScreen(String coord) {
-        if (coord == null) return null;
-
-        String[] parts = coord.split(" ");
-        if (parts.length != 2) return null;
+        // Solo los nodos dentro del rectángulo visible
+        double margin = nodeSize / scale;
+        double minLon = panel.minLon - panel.offsetX / scale - margin;
+        double maxLon = panel.minLon + (panel.getWidth() - panel.offsetX) / scale + margin;
+        double maxLat = panel.maxLat + panel.offsetY / scale + margin;
+        double minLat = panel.maxLat - (panel.getHeight() - panel.offsetY) / scale - margin;
+        final int size = nodeSize;
+        index.range(minLon, minLat, maxLon, maxLat, nodeId -> {
+            if (!nodes.isValid(nodeId)) return;
+            drawAvailableNode(g2d, nodeId, (int) nodes.screenX(nodeId, scale, panel.offsetX),
+                              (int) nodes.screenY(nodeId, scale, panel.offsetY), size);
+        });
+    }
 
-        try {
-            double lon = Double.parseDouble(parts[0]);
-            double lat = Double.parseDouble(parts[1]);
+    private void drawAvailableNode(Graphics2D g2d, int nodeId, int x, int y, int nodeSize) {
+        if (panel.selectedOrigin != null && panel.selectedOrigin == nodeId) return;
+        if (panel.selectedDestination != null && panel.selectedDestination == nodeId) return;
+        if (GraphSimplifier.isRemoved(panel.graphData[nodeId])) return;
 
-            if (lon < -58.7 || lon > -58.3 || lat < -34.8 || lat > -34.4) return null;
+        nodesDrawn++;
+        g2d.fillOval(x - nodeSize / 2, y - nodeSize / 2, nodeSize, nodeSize);
+        g2d.setColor(Color.BLACK);
+        g2d.drawOval(x - nodeSize / 2, y - nodeSize / 2, nodeSize, nodeSize);
+        g2d.setColor(Color.WHITE);
+    }
 
-            double x = (lon - panel.minLon) * panel.scale + panel.offsetX;
-            double y = (panel.maxLat - lat) * panel.scale + panel.offsetY;
-            return new Point2D.Double(x, y);
-        } catch (NumberFormatException e) {
-            return null;
-        }
+    private Point2D.Double lonLatToScreen(double lon, double lat) {
+        double x = (lon - panel.minLon) * panel.scale + panel.offsetX;
+        double y = (panel.maxLat - lat) * panel.scale + panel.offsetY;
+        return new Point2D.Double(x, y);
     }
 }
@@ -0,0 +1,66 @@
+package gui;
+
+/**
+ * Node positions projected once into the map plane: x grows east and y grows
+ * south, in degrees from the map origin (minLon, maxLat), stored as floats
+ * (millimetre precision at city extent). A screen position is then a single
+ * scale and offset, with no string handling or allocation, and panning only
+ * changes the offset. Nodes outside the valid map area are NaN.
+ */
+public class ProjectedNodes {
+    private final double originLon;
+    private final double originLat;
+    private final float[] x;
+    private final float[] y;
+
+    public ProjectedNodes(double[] nodeLon, double[] nodeLat, double originLon, double originLat,
+                          double minValidLon, double maxValidLon, double minValidLat, double maxValidLat) {
+        this.originLon = originLon;
+        this.originLat = originLat;
+        this.x = new float[nodeLon.length];
+        this.y = new float[nodeLon.length];
+        for (int i = 0; i < nodeLon.length; i++) {
+            double lon = nodeLon[i];
+            double lat = nodeLat[i];
+            if (lon < minValidLon || lon > maxValidLon || lat < minValidLat || lat > maxValidLat) {
+                x[i] = Float.NaN;
+                y[i] = Float.NaN;
+            } else {
+                x[i] = (float) (lon - originLon);
+                y[i] = (float) (originLat - lat);
+            }
+        }
+    }
+
+    public int size() {
+        return x.length;
+    }
+
+    public double getOriginLon() {
+        return originLon;
+    }
+
+    public double getOriginLat() {
+        return originLat;
+    }
+
+    public boolean isValid(int id) {
+        return id >= 0 && id < x.length && !Float.isNaN(x[id]);
+    }
+
+    public float getX(int id) {
+        return x[id];
+    }
+
+    public float getY(int id) {
+        return y[id];
+    }
+
+    public double screenX(int id, double scale, double offsetX) {
+        return x[id] * scale + offsetX;
+    }
+
+    public double screenY(int id, double scale, double offsetY) {
+        return y[id] * scale + offsetY;
+    }
+}
@@ -0,0 +1,239 @@
+package gui;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Per-frame render timings broken down by phase, plus how much of the map
+ * was drawn versus culled, kept for the last WINDOW frames. Timing a phase
+ * is one System.nanoTime() call, so the stats are always collected; the
+ * overlay and the CSV export are opt-in.
+ *
+ * With the tile cache the streets are rendered by background workers: the
+ * street and segment counters and the tile render time of a frame cover the
+ * tiles finished since the previous frame, and that time is not part of the
+ * frame's phases.
+ */
+public class RenderStats {
+    public enum Phase { STREETS, OVERLAYS, NODES, ROUTE, LEGEND }
+
+    public enum Counter {
+        STREETS_DRAWN, STREETS_CULLED, SEGMENTS_DRAWN, TILES_DRAWN, TILES_MISSING, TILES_RENDERED,
+        NODES_DRAWN, NODES_CULLED
+    }
+
+    public static final int WINDOW = 300;
+    // Límites superiores (ms) de los buckets del histograma; el último es abierto
+    private static final double[] HISTOGRAM_BOUNDS = {2, 4, 8, 16, 33, 66};
+
+    private static final int PHASES = Phase.values().length;
+    private static final int COUNTERS = Counter.values().length;
+
+    private final long[][] phaseNanos = new long[WINDOW][PHASES];
+    private final int[][] counts = new int[WINDOW][COUNTERS];
+    private final long[] tileRenderNanos = new long[WINDOW];
+    private long frames;
+
+    // Cuadro en curso
+    private final long[] currentNanos = new long[PHASES];
+    private final int[] currentCounts = new int[COUNTERS];
+    private long currentTileRenderNanos;
+    private long lapStart;
+
+    public void beginFrame() {
+        Arrays.fill(currentNanos, 0);
+        Arrays.fill(currentCounts, 0);
+        currentTileRenderNanos = 0;
+        lapStart = System.nanoTime();
+    }
+
+    /**
+     * Charges the time since the previous phase (or the frame start) to a phase.
+     */
+    public void endPhase(Phase phase) {
+        long now = System.nanoTime();
+        currentNanos[phase.ordinal()] += now - lapStart;
+        lapStart = now;
+    }
+
+    public void count(Counter counter, int amount) {
+        currentCounts[counter.ordinal()] += amount;
+    }
+
+    // Tiempo de los workers que renderizaron tiles desde el cuadro anterior; fuera de las fases
+    public void addTileRender(long nanos) {
+        currentTileRenderNanos += nanos;
+    }
+
+    public void endFrame() {
+        int slot = (int) (frames % WINDOW);
+        System.arraycopy(currentNanos, 0, phaseNanos[slot], 0, PHASES);
+        System.arraycopy(currentCounts, 0, counts[slot], 0, COUNTERS);
+        tileRenderNanos[slot] = currentTileRenderNanos;
+        frames++;
+    }
+
+    public long getFrameCount() {
+        return frames;
+    }
+
+    private int windowSize() {
+        return (int) Math.min(frames, WINDOW);
+    }
+
+    // Índice en el buffer del i-ésimo cuadro de la ventana, del más viejo al más nuevo
+    private int slot(int i) {
+        return (int) ((frames - windowSize() + i) % WINDOW);
+    }
+
+    private static long total(long[] frame) {
+        long sum = 0;
+        for (long nanos : frame) sum += nanos;
+        return sum;
+    }
+
+    /**
+     * Percentile of a phase over the window in milliseconds; a null phase
+     * means the whole frame.
+     */
+    public double percentileMs(Phase phase, double percentile) {
+        int n = windowSize();
+        if (n == 0) return 0;
+        long[] values = new long[n];
+        for (int i = 0; i < n; i++) {
+            long[] frame = phaseNanos[slot(i)];
+            values[i] = phase == null ? total(frame) : frame[phase.ordinal()];
+        }
+        Arrays.sort(values);
+        int rank = (int) Math.ceil(percentile / 100.0 * n) - 1;
+        return values[Math.max(0, Math.min(n - 1, rank))] / 1e6;
+    }
+
+    public double lastMs(Phase phase) {
+        if (frames == 0) return 0;
+        long[] frame = phaseNanos[(int) ((frames - 1) % WINDOW)];
+        return (phase == null ? total(frame) : frame[phase.ordinal()]) / 1e6;
+    }
+
+    public double lastTileRenderMs() {
+        return frames == 0 ? 0 : tileRenderNanos[(int) ((frames - 1) % WINDOW)] / 1e6;
+    }
+
+    public int lastCount(Counter counter) {
+        return frames == 0 ? 0 : counts[(int) ((frames - 1) % WINDOW)][counter.ordinal()];
+    }
+
+    /**
+     * Frame time histogram over the window: one bucket per bound in
+     * HISTOGRAM_BOUNDS plus one for slower frames.
+     */
+    public int[] frameHistogram() {
+        int[] buckets = new int[HISTOGRAM_BOUNDS.length + 1];
+        for (int i = 0; i < windowSize(); i++) {
+            double ms = total(phaseNanos[slot(i)]) / 1e6;
+            int b = 0;
+            while (b < HISTOGRAM_BOUNDS.length && ms >= HISTOGRAM_BOUNDS[b]) b++;
+            buckets[b]++;
+        }
+        return buckets;
+    }
+
+    private static String bucketLabel(int b) {
+        if (b == HISTOGRAM_BOUNDS.length) return ">=" + (int) HISTOGRAM_BOUNDS[b - 1];
+        return "<" + (int) HISTOGRAM_BOUNDS[b];
+    }
+
+    /**
+     * Writes the frames in the window as CSV, one row per frame, phases in
+     * milliseconds followed by the counters and the background tile render
+     * time.
+     */
+    public void exportCsv(Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            StringBuilder header = new StringBuilder("frame");
+            for (Phase phase : Phase.values()) header.append(',').append(phase.name().toLowerCase()).append("_ms");
+            header.append(",total_ms");
+            for (Counter counter : Counter.values()) header.append(',').append(counter.name().toLowerCase());
+            header.append(",tile_render_ms");
+            out.println(header);
+
+            int n = windowSize();
+            for (int i = 0; i < n; i++) {
+                int s = slot(i);
+                StringBuilder row = new StringBuilder().append(frames - n + i);
+                for (long nanos : phaseNanos[s]) row.append(',').append(String.format(Locale.ROOT, "%.3f", nanos / 1e6));
+                row.append(',').append(String.format(Locale.ROOT, "%.3f", total(phaseNanos[s]) / 1e6));
+                for (int value : counts[s]) row.append(',').append(value);
+                row.append(',').append(String.format(Locale.ROOT, "%.3f", tileRenderNanos[s] / 1e6));
+                out.println(row);
+            }
+        }
+    }
+
+    /**
+     * Draws the stats box in the top right corner of the panel.
+     */
+    public void drawOverlay(Graphics2D g2d, int panelWidth) {
+        int boxWidth = 260;
+        int lineHeight = 14;
+        int[] histogram = frameHistogram();
+        int lines = 4 + PHASES + 4 + histogram.length;
+        int x = panelWidth - boxWidth - 10;
+        int y = 10;
+
+        g2d.setColor(new Color(255, 255, 255, 220));
+        g2d.fillRect(x, y, boxWidth, lines * lineHeight + 10);
+        g2d.setColor(Color.GRAY);
+        g2d.setStroke(new BasicStroke(1));
+        g2d.drawRect(x, y, boxWidth, lines * lineHeight + 10);
+
+        g2d.setColor(Color.BLACK);
+        g2d.setFont(new Font("Monospaced", Font.PLAIN, 11));
+        int tx = x + 6;
+        int ty = y + lineHeight;
+        g2d.drawString(String.format(Locale.ROOT, "Frame %.1f ms  p50 %.1f  p95 %.1f", lastMs(null),
+                       percentileMs(null, 50), percentileMs(null, 95)), tx, ty);
+        ty += lineHeight;
+        g2d.drawString(String.format("Last %d of %d frames", windowSize(), frames), tx, ty);
+        ty += lineHeight;
+        g2d.drawString("phase        last   p50   p95", tx, ty);
+        ty += lineHeight;
+        for (Phase phase : Phase.values()) {
+            g2d.drawString(String.format(Locale.ROOT, "%-10s %6.1f %5.1f %5.1f", phase.name().toLowerCase(),
+                           lastMs(phase), percentileMs(phase, 50), percentileMs(phase, 95)), tx, ty);
+            ty += lineHeight;
+        }
+        ty += lineHeight / 2;
+        g2d.drawString(String.format("streets %d drawn / %d culled", lastCount(Counter.STREETS_DRAWN),
+                       lastCount(Counter.STREETS_CULLED)), tx, ty);
+        ty += lineHeight;
+        g2d.drawString(String.format("segments %d  tiles %d (+%d missing)", lastCount(Counter.SEGMENTS_DRAWN),
+                       lastCount(Counter.TILES_DRAWN), lastCount(Counter.TILES_MISSING)), tx, ty);
+        ty += lineHeight;
+        g2d.drawString(String.format(Locale.ROOT, "tiles rendered %d in %.1f ms (workers)",
+                       lastCount(Counter.TILES_RENDERED), lastTileRenderMs()), tx, ty);
+        ty += lineHeight;
+        g2d.drawString(String.format("nodes %d drawn / %d culled", lastCount(Counter.NODES_DRAWN),
+                       lastCount(Counter.NODES_CULLED)), tx, ty);
+        ty += lineHeight;
+
+        // Histograma de tiempos de cuadro
+        int max = 1;
+        for (int value : histogram) max = Math.max(max, value);
+        int barMax = boxWidth - 90;
+        for (int b = 0; b < histogram.length; b++) {
+            g2d.setColor(Color.BLACK);
+            g2d.drawString(String.format("%5s ms", bucketLabel(b)), tx, ty);
+            g2d.setColor(b < 4 ? new Color(0, 150, 0) : b < 5 ? new Color(220, 150, 0) : new Color(200, 0, 0));
+            int barWidth = histogram[b] * barMax / max;
+            g2d.fillRect(tx + 70, ty - 9, barWidth, 9);
+            ty += lineHeight;
+        }
+    }
+}
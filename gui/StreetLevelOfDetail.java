@@ -0,0 +1,292 @@
+package gui;
+
+import java.util.*;
+import java.util.function.Predicate;
+import graph.NodeSpatialIndex;
+import graph.PolylineStore;
+import models.Edge;
+import models.VehicleProfile;
+
+/**
+ * Generalized street layers for zoomed-out views, built once at load time.
+ * Each layer keeps only the streets of the road hierarchy that are still
+ * readable below its scale, merged into one polyline per street stretch and
+ * simplified with Douglas-Peucker to half a pixel at the layer's largest
+ * scale. Above the last layer the painter draws the full street network.
+ */
+public class StreetLevelOfDetail {
+    // Escala (píxeles por grado) a partir de la cual se pasa al siguiente nivel
+    public static final double ARTERIAL_SCALE = 8000;
+    public static final double FULL_DETAIL_SCALE = 20000;
+
+    public static class Layer {
+        public final double maxScale;
+        public final PolylineStore lines;
+        public final boolean[] bidirectional;
+        private final byte[][] colorClasses; // [perfil][polilínea]
+        private final float[] minLon, minLat, maxLon, maxLat;
+
+        Layer(double maxScale, PolylineStore lines, boolean[] bidirectional, byte[][] colorClasses,
+              float[] minLon, float[] minLat, float[] maxLon, float[] maxLat) {
+            this.maxScale = maxScale;
+            this.lines = lines;
+            this.bidirectional = bidirectional;
+            this.colorClasses = colorClasses;
+            this.minLon = minLon;
+            this.minLat = minLat;
+            this.maxLon = maxLon;
+            this.maxLat = maxLat;
+        }
+
+        public int size() {
+            return lines.size();
+        }
+
+        public byte getColorClass(int id, VehicleProfile profile) {
+            return colorClasses[profile.ordinal()][id];
+        }
+
+        public boolean intersects(int id, double west, double south, double east, double north) {
+            return maxLon[id] >= west && minLon[id] <= east && maxLat[id] >= south && minLat[id] <= north;
+        }
+    }
+
+    private final Layer[] layers;
+
+    private StreetLevelOfDetail(Layer[] layers) {
+        this.layers = layers;
+    }
+
+    /**
+     * Generalized layer for the given scale, or null when the full street
+     * network should be drawn.
+     */
+    public Layer layerFor(double scale) {
+        for (Layer layer : layers) {
+            if (scale < layer.maxScale) return layer;
+        }
+        return null;
+    }
+
+    public static StreetLevelOfDetail build(StreetRenderIndex index, PolylineStore geometry, NodeSpatialIndex nodes) {
+        return new StreetLevelOfDetail(new Layer[] {
+            buildLayer(index, geometry, nodes, ARTERIAL_SCALE, StreetLevelOfDetail::isMajor),
+            buildLayer(index, geometry, nodes, FULL_DETAIL_SCALE,
+                       edge -> isMajor(edge) || isArterial(edge))
+        });
+    }
+
+    // Red troncal: visible a escala de ciudad
+    private static boolean isMajor(Edge edge) {
+        return "VIA TRONCAL".equals(edge.getRedJerarq())
+            || "VIA DISTRIBUIDORA PRINCIPAL".equals(edge.getRedJerarq())
+            || "AUTOPISTA".equals(edge.getTipoC());
+    }
+
+    private static boolean isArterial(Edge edge) {
+        return "VIA DISTRIBUIDORA COMPLEMENTARIA".equals(edge.getRedJerarq())
+            || "AVENIDA".equals(edge.getTipoC());
+    }
+
+    private static Layer buildLayer(StreetRenderIndex index, PolylineStore geometry, NodeSpatialIndex nodes,
+                                    double maxScale, Predicate<Edge> keep) {
+        // Agrupar por calle y atributos: todo tramo de un grupo se dibuja igual con cualquier perfil
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int id = 0; id < index.size(); id++) {
+            Edge edge = index.getEdge(id);
+            if (!keep.test(edge)) continue;
+            String key = edge.streetName + '|' + edge.getSentido() + '|' + edge.getTipoC() + '|'
+                       + edge.getRedJerarq() + '|' + edge.getBicisenda() + '|' + index.isBidirectional(id);
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(id);
+        }
+
+        PolylineStore lines = new PolylineStore();
+        List<Integer> firstEdge = new ArrayList<>();
+        double tolerance = 0.5 / maxScale;
+
+        for (List<Integer> group : groups.values()) {
+            for (List<int[]> chain : chains(index, group)) {
+                double[] points = chainPoints(index, geometry, nodes, chain);
+                double[] simplified = simplify(points, tolerance);
+                lines.add(simplified, simplified.length / 2);
+                firstEdge.add(chain.get(0)[0]);
+            }
+        }
+        lines.trim();
+
+        int count = lines.size();
+        boolean[] bidirectional = new boolean[count];
+        byte[][] colorClasses = new byte[VehicleProfile.values().length][count];
+        float[] minLon = new float[count], minLat = new float[count];
+        float[] maxLon = new float[count], maxLat = new float[count];
+        for (int i = 0; i < count; i++) {
+            int edgeId = firstEdge.get(i);
+            bidirectional[i] = index.isBidirectional(edgeId);
+            for (VehicleProfile profile : VehicleProfile.values()) {
+                colorClasses[profile.ordinal()][i] = index.getColorClass(edgeId, profile);
+            }
+
+            double west = Double.MAX_VALUE, south = Double.MAX_VALUE;
+            double east = -Double.MAX_VALUE, north = -Double.MAX_VALUE;
+            for (int k = 0; k < lines.pointCount(i); k++) {
+                double lon = lines.getLon(i, k, false);
+                double lat = lines.getLat(i, k, false);
+                west = Math.min(west, lon);
+                east = Math.max(east, lon);
+                south = Math.min(south, lat);
+                north = Math.max(north, lat);
+            }
+            // Redondeo hacia afuera para no recortar el borde por la precisión del float
+            minLon[i] = Math.nextDown((float) west);
+            minLat[i] = Math.nextDown((float) south);
+            maxLon[i] = Math.nextUp((float) east);
+            maxLat[i] = Math.nextUp((float) north);
+        }
+
+        return new Layer(maxScale, lines, bidirectional, colorClasses, minLon, minLat, maxLon, maxLat);
+    }
+
+    /**
+     * Splits a group of edges into chains joined end to end. Each element is
+     * {edgeId, 1 if walked against the edge direction}. Chains start at
+     * nodes that are not simple continuations, then the remaining loops.
+     */
+    private static List<List<int[]>> chains(StreetRenderIndex index, List<Integer> group) {
+        Map<Integer, List<Integer>> incident = new HashMap<>();
+        for (int id : group) {
+            Edge edge = index.getEdge(id);
+            incident.computeIfAbsent(edge.from, k -> new ArrayList<>()).add(id);
+            incident.computeIfAbsent(edge.to, k -> new ArrayList<>()).add(id);
+        }
+
+        Set<Integer> used = new HashSet<>();
+        List<List<int[]>> chains = new ArrayList<>();
+        for (int pass = 0; pass < 2; pass++) {
+            for (int id : group) {
+                if (used.contains(id)) continue;
+                Edge edge = index.getEdge(id);
+                int start;
+                if (incident.get(edge.from).size() != 2) {
+                    start = edge.from;
+                } else if (incident.get(edge.to).size() != 2) {
+                    start = edge.to;
+                } else if (pass == 1) {
+                    start = edge.from; // lazo cerrado
+                } else {
+                    continue;
+                }
+
+                List<int[]> chain = new ArrayList<>();
+                int node = start;
+                int current = id;
+                while (true) {
+                    used.add(current);
+                    Edge step = index.getEdge(current);
+                    boolean against = step.from != node;
+                    chain.add(new int[]{current, against ? 1 : 0});
+                    node = against ? step.from : step.to;
+
+                    List<Integer> next = incident.get(node);
+                    if (next.size() != 2) break;
+                    int candidate = next.get(0) == current ? next.get(1) : next.get(0);
+                    if (used.contains(candidate)) break;
+                    current = candidate;
+                }
+                chains.add(chain);
+            }
+        }
+        return chains;
+    }
+
+    private static double[] chainPoints(StreetRenderIndex index, PolylineStore geometry, NodeSpatialIndex nodes,
+                                        List<int[]> chain) {
+        List<double[]> points = new ArrayList<>();
+        for (int[] part : chain) {
+            Edge edge = index.getEdge(part[0]);
+            boolean against = part[1] == 1;
+            int geometryId = edge.getGeometryId();
+
+            if (geometry == null || geometryId < 0) {
+                int a = against ? edge.to : edge.from;
+                int b = against ? edge.from : edge.to;
+                if (points.isEmpty()) points.add(new double[]{nodes.getLon(a), nodes.getLat(a)});
+                points.add(new double[]{nodes.getLon(b), nodes.getLat(b)});
+                continue;
+            }
+
+            boolean reversed = edge.isGeometryReversed() != against;
+            int count = geometry.pointCount(geometryId);
+            for (int k = points.isEmpty() ? 0 : 1; k < count; k++) {
+                points.add(new double[]{geometry.getLon(geometryId, k, reversed),
+                                        geometry.getLat(geometryId, k, reversed)});
+            }
+        }
+
+        double[] lonLat = new double[points.size() * 2];
+        for (int i = 0; i < points.size(); i++) {
+            lonLat[2 * i] = points.get(i)[0];
+            lonLat[2 * i + 1] = points.get(i)[1];
+        }
+        return lonLat;
+    }
+
+    /**
+     * Douglas-Peucker over interleaved lon/lat; the screen uses the same
+     * scale on both axes, so the tolerance is in degrees.
+     */
+    static double[] simplify(double[] lonLat, double tolerance) {
+        int n = lonLat.length / 2;
+        if (n <= 2) return lonLat;
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        int[] stack = new int[2 * n];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        double toleranceSq = tolerance * tolerance;
+
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double maxDistSq = -1;
+            int farthest = -1;
+            for (int i = first + 1; i < last; i++) {
+                double d = segmentDistSq(lonLat, i, first, last);
+                if (d > maxDistSq) {
+                    maxDistSq = d;
+                    farthest = i;
+                }
+            }
+            if (farthest != -1 && maxDistSq > toleranceSq) {
+                keep[farthest] = true;
+                stack[top++] = first;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+
+        int kept = 0;
+        for (boolean k : keep) if (k) kept++;
+        double[] result = new double[2 * kept];
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            if (!keep[i]) continue;
+            result[j++] = lonLat[2 * i];
+            result[j++] = lonLat[2 * i + 1];
+        }
+        return result;
+    }
+
+    private static double segmentDistSq(double[] p, int i, int a, int b) {
+        double x = p[2 * i], y = p[2 * i + 1];
+        double x1 = p[2 * a], y1 = p[2 * a + 1];
+        double dx = p[2 * b] - x1, dy = p[2 * b + 1] - y1;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq > 0 ? Math.max(0, Math.min(1, ((x - x1) * dx + (y - y1) * dy) / lengthSq)) : 0;
+        double ex = x1 + t * dx - x, ey = y1 + t * dy - y;
+        return ex * ex + ey * ey;
+    }
+}
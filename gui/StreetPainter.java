@@ -0,0 +1,364 @@
+package gui;
+
+import java.awt.*;
+import java.util.Arrays;
+import graph.PolylineStore;
+import models.Edge;
+import models.Node;
+import models.VehicleProfile;
+
+/**
+ * Draws the street layer for an explicit view (origin, scale, offset and
+ * size), so the same code paints the panel directly and the background map
+ * tiles. A painter keeps reusable buffers and is meant for one thread; the
+ * tile workers each have their own.
+ */
+public class StreetPainter {
+    private static final Color[] STREET_CLASS_COLORS = {
+        MapPanel.STREET_COLOR,     // NORMAL
+        new Color(0, 150, 0),      // PREFERRED
+        new Color(0, 100, 200),    // DISCOURAGED
+        new Color(150, 0, 0)       // PROHIBITED
+    };
+    private static final Color[] STREET_CLASS_COLORS_ONE_WAY = {
+        STREET_CLASS_COLORS[0].darker(),
+        STREET_CLASS_COLORS[1].darker(),
+        STREET_CLASS_COLORS[2].darker(),
+        STREET_CLASS_COLORS[3].darker()
+    };
+
+    private final MapPanel panel;
+    private StreetRenderIndex.Visible visible;
+
+    // Vista actual: pantalla = (lon - minLon) * scale + offsetX, (maxLat - lat) * scale + offsetY
+    private double minLon, maxLat, scale, offsetX, offsetY;
+    private int width, height;
+
+    // Trazos y tamaño de flecha recreados solo cuando cambia el zoom
+    private double strokeScale = -1;
+    private BasicStroke twoWayStroke;
+    private BasicStroke oneWayStroke;
+    private BasicStroke arrowStroke;
+    private double arrowSize;
+
+    /**
+     * Segments of one drawing class (colour and stroke), collected during a
+     * frame and drawn together so Graphics2D state changes once per class.
+     * A single Path2D per class was measured slower with antialiasing: the
+     * software rasterizer walks the whole bounding box of the path, which for
+     * a class spread over the screen is the full viewport.
+     */
+    private static class SegmentBatch {
+        private float[] coords = new float[4 * 1024];
+        private int count;
+
+        void reset() {
+            count = 0;
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        void add(double x1, double y1, double x2, double y2) {
+            if (4 * (count + 1) > coords.length) {
+                coords = Arrays.copyOf(coords, coords.length * 2);
+            }
+            int i = 4 * count++;
+            coords[i] = (float) x1;
+            coords[i + 1] = (float) y1;
+            coords[i + 2] = (float) x2;
+            coords[i + 3] = (float) y2;
+        }
+
+        void draw(Graphics2D g2d) {
+            for (int i = 0; i < 4 * count; i += 4) {
+                g2d.drawLine(pixel(coords[i]), pixel(coords[i + 1]), pixel(coords[i + 2]), pixel(coords[i + 3]));
+            }
+        }
+    }
+
+    // Un lote por clase de calle (color y sentido) y otro por color de flecha, reutilizados entre cuadros
+    private final SegmentBatch[] streetBatches = new SegmentBatch[2 * STREET_CLASS_COLORS.length];
+    private final SegmentBatch[] arrowBatches = new SegmentBatch[STREET_CLASS_COLORS.length];
+    private static final double ARROW_COS = Math.cos(Math.PI / 6);
+    private static final double ARROW_SIN = Math.sin(Math.PI / 6);
+
+    // Calles dibujadas y descartadas por el recorte en el último paint
+    private int streetsDrawn;
+    private int streetsCulled;
+
+    // Buffers reutilizados para proyectar polilíneas sin crear objetos por arista
+    private double[] polylineX = new double[64];
+    private double[] polylineY = new double[64];
+
+    public StreetPainter(MapPanel panel) {
+        this.panel = panel;
+        for (int i = 0; i < streetBatches.length; i++) streetBatches[i] = new SegmentBatch();
+        for (int i = 0; i < arrowBatches.length; i++) arrowBatches[i] = new SegmentBatch();
+    }
+
+    public void setView(double minLon, double maxLat, double scale, double offsetX, double offsetY,
+                        int width, int height) {
+        this.minLon = minLon;
+        this.maxLat = maxLat;
+        this.scale = scale;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        this.width = width;
+        this.height = height;
+    }
+
+    public void paint(Graphics2D g2d, VehicleProfile profile) {
+        updateStrokes();
+        for (SegmentBatch batch : streetBatches) batch.reset();
+        for (SegmentBatch batch : arrowBatches) batch.reset();
+        streetsDrawn = 0;
+        streetsCulled = 0;
+        collect(profile);
+        flush(g2d);
+    }
+
+    public int getStreetsDrawn() {
+        return streetsDrawn;
+    }
+
+    public int getStreetsCulled() {
+        return streetsCulled;
+    }
+
+    public int getSegmentsDrawn() {
+        int segments = 0;
+        for (SegmentBatch batch : streetBatches) segments += batch.count;
+        return segments;
+    }
+
+    private void collect(VehicleProfile profile) {
+        // Alejado: capa generalizada en lugar de la red completa
+        StreetLevelOfDetail levelOfDetail = panel.levelOfDetail;
+        StreetLevelOfDetail.Layer layer = levelOfDetail != null ? levelOfDetail.layerFor(scale) : null;
+        if (layer != null) {
+            collectLayer(layer, profile);
+            return;
+        }
+
+        StreetRenderIndex index = panel.streetIndex;
+        if (index == null) {
+            for (Node node : panel.graphData) {
+                for (Edge edge : node.outEdges) {
+                    if (edge.isShortcut()) continue; // los atajos de CH no son calles
+                    addStreetSegment(edge, isBidirectional(edge), StreetRenderIndex.classify(edge, profile));
+                    streetsDrawn++;
+                }
+            }
+            return;
+        }
+        if (visible == null) {
+            visible = index.newVisible();
+        }
+
+        // Solo las aristas que tocan el rectángulo visible (con margen para trazos y flechas)
+        double margin = 20.0 / scale;
+        int count = index.query(viewMinLon(margin), viewMinLat(margin), viewMaxLon(margin), viewMaxLat(margin), visible);
+        for (int i = 0; i < count; i++) {
+            int id = visible.get(i);
+            addStreetSegment(index.getEdge(id), index.isBidirectional(id), index.getColorClass(id, profile));
+        }
+        streetsDrawn = count;
+        streetsCulled = index.size() - count;
+    }
+
+    private void collectLayer(StreetLevelOfDetail.Layer layer, VehicleProfile profile) {
+        double margin = 4.0 / scale;
+        double west = viewMinLon(margin), south = viewMinLat(margin);
+        double east = viewMaxLon(margin), north = viewMaxLat(margin);
+
+        for (int id = 0; id < layer.size(); id++) {
+            if (!layer.intersects(id, west, south, east, north)) continue;
+
+            // Sin flechas: a esta escala no se distinguen
+            SegmentBatch batch = streetBatches[batchIndex(layer.getColorClass(id, profile), layer.bidirectional[id])];
+            appendPolyline(batch, project(layer.lines, id, false));
+            streetsDrawn++;
+        }
+        streetsCulled = layer.size() - streetsDrawn;
+    }
+
+    private static int batchIndex(byte colorClass, boolean isBidirectional) {
+        return 2 * colorClass + (isBidirectional ? 1 : 0);
+    }
+
+    // Doble sentido primero (trazo más ancho), después mano única y al final las flechas
+    private void flush(Graphics2D g2d) {
+        for (int c = 0; c < STREET_CLASS_COLORS.length; c++) {
+            drawBatch(g2d, streetBatches[batchIndex((byte) c, true)], STREET_CLASS_COLORS[c], twoWayStroke);
+        }
+        for (int c = 0; c < STREET_CLASS_COLORS.length; c++) {
+            drawBatch(g2d, streetBatches[batchIndex((byte) c, false)], STREET_CLASS_COLORS_ONE_WAY[c], oneWayStroke);
+        }
+        for (int c = 0; c < STREET_CLASS_COLORS.length; c++) {
+            drawBatch(g2d, arrowBatches[c], STREET_CLASS_COLORS_ONE_WAY[c], arrowStroke);
+        }
+    }
+
+    private static void drawBatch(Graphics2D g2d, SegmentBatch batch, Color color, Stroke stroke) {
+        if (batch.isEmpty()) return;
+        g2d.setColor(color);
+        g2d.setStroke(stroke);
+        batch.draw(g2d);
+    }
+
+    private void appendPolyline(SegmentBatch batch, int points) {
+        for (int k = 0; k < points - 1; k++) {
+            batch.add(polylineX[k], polylineY[k], polylineX[k + 1], polylineY[k + 1]);
+        }
+    }
+
+    private double viewMinLon(double margin) {
+        return minLon - offsetX / scale - margin;
+    }
+
+    private double viewMaxLon(double margin) {
+        return minLon + (width - offsetX) / scale + margin;
+    }
+
+    private double viewMinLat(double margin) {
+        return maxLat - (height - offsetY) / scale - margin;
+    }
+
+    private double viewMaxLat(double margin) {
+        return maxLat + offsetY / scale + margin;
+    }
+
+    private void updateStrokes() {
+        if (scale == strokeScale) return;
+
+        float baseThickness = Math.max(1.0f, (float)(scale / 50000));
+        if (scale > 100000) baseThickness = Math.max(2.0f, (float)(scale / 100000));
+        twoWayStroke = new BasicStroke(baseThickness * 1.5f);
+        oneWayStroke = new BasicStroke(baseThickness);
+
+        float arrowThickness = Math.max(0.8f, (float)(scale / 100000));
+        if (scale > 200000) arrowThickness = Math.max(1.5f, (float)(scale / 200000));
+        arrowStroke = new BasicStroke(arrowThickness);
+        arrowSize = Math.min(15, Math.max(3, scale / 10000));
+        if (scale > 100000) arrowSize = Math.min(25, scale / 50000);
+
+        strokeScale = scale;
+    }
+
+    private boolean isBidirectional(Edge edge) {
+        for (Edge reverseEdge : panel.graphData[edge.to].outEdges) {
+            if (reverseEdge.to == edge.from && !reverseEdge.isShortcut()
+                    && reverseEdge.streetName.equals(edge.streetName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Projects the full polyline of an edge to view coordinates (in edge
+     * direction) into getX()/getY() and returns the number of points, or 0
+     * if the edge has no stored geometry.
+     */
+    public int projectEdge(Edge edge) {
+        PolylineStore geometry = panel.geometry;
+        int geometryId = edge.getGeometryId();
+        if (geometry == null || geometryId < 0) return 0;
+        return project(geometry, geometryId, edge.isGeometryReversed());
+    }
+
+    private int project(PolylineStore geometry, int geometryId, boolean reversed) {
+        int count = geometry.pointCount(geometryId);
+        if (count > polylineX.length) {
+            polylineX = new double[count];
+            polylineY = new double[count];
+        }
+        // Los vértices se guardan relativos al punto base del pool: una escala y un desplazamiento
+        double baseX = (geometry.getBaseLon() - minLon) * scale + offsetX;
+        double baseY = (maxLat - geometry.getBaseLat()) * scale + offsetY;
+        int start = geometry.getStart(geometryId);
+        int last = geometry.getEnd(geometryId) - 1;
+        for (int k = 0; k < count; k++) {
+            int index = reversed ? last - k : start + k;
+            polylineX[k] = baseX + geometry.getRawLon(index) * scale;
+            polylineY[k] = baseY - geometry.getRawLat(index) * scale;
+        }
+        return count;
+    }
+
+    public double[] getX() {
+        return polylineX;
+    }
+
+    public double[] getY() {
+        return polylineY;
+    }
+
+    private void addStreetSegment(Edge edge, boolean isBidirectional, byte colorClass) {
+        SegmentBatch batch = streetBatches[batchIndex(colorClass, isBidirectional)];
+        boolean arrow = !isBidirectional && scale > 2000;
+
+        int points = projectEdge(edge);
+        if (points < 2) {
+            ProjectedNodes nodes = panel.projected;
+            if (!nodes.isValid(edge.from) || !nodes.isValid(edge.to)) return;
+            double baseX = (nodes.getOriginLon() - minLon) * scale + offsetX;
+            double baseY = (maxLat - nodes.getOriginLat()) * scale + offsetY;
+            double startX = baseX + nodes.getX(edge.from) * scale;
+            double startY = baseY + nodes.getY(edge.from) * scale;
+            double endX = baseX + nodes.getX(edge.to) * scale;
+            double endY = baseY + nodes.getY(edge.to) * scale;
+            batch.add(startX, startY, endX, endY);
+
+            if (arrow) {
+                addDirectionArrow(arrowBatches[colorClass], startX, startY, endX, endY);
+            }
+            return;
+        }
+
+        // La geometría real; la flecha va sobre el tramo más largo
+        appendPolyline(batch, points);
+        if (arrow) {
+            int longest = 0;
+            double longestLength = -1;
+            for (int k = 0; k < points - 1; k++) {
+                double length = Math.hypot(polylineX[k + 1] - polylineX[k], polylineY[k + 1] - polylineY[k]);
+                if (length > longestLength) {
+                    longestLength = length;
+                    longest = k;
+                }
+            }
+            addDirectionArrow(arrowBatches[colorClass], polylineX[longest], polylineY[longest],
+                              polylineX[longest + 1], polylineY[longest + 1]);
+        }
+    }
+
+    private void addDirectionArrow(SegmentBatch batch, double startX, double startY, double endX, double endY) {
+        double dx = endX - startX;
+        double dy = endY - startY;
+        double length = Math.sqrt(dx * dx + dy * dy);
+
+        if (length < 20) return;
+
+        double unitX = dx / length;
+        double unitY = dy / length;
+
+        double arrowX = startX + dx * 0.7;
+        double arrowY = startY + dy * 0.7;
+
+        double arrowX1 = arrowX - arrowSize * (unitX * ARROW_COS - unitY * ARROW_SIN);
+        double arrowY1 = arrowY - arrowSize * (unitX * ARROW_SIN + unitY * ARROW_COS);
+        double arrowX2 = arrowX - arrowSize * (unitX * ARROW_COS + unitY * ARROW_SIN);
+        double arrowY2 = arrowY - arrowSize * (-unitX * ARROW_SIN + unitY * ARROW_COS);
+
+        batch.add(arrowX, arrowY, arrowX1, arrowY1);
+        batch.add(arrowX, arrowY, arrowX2, arrowY2);
+    }
+
+    // Redondeo hacia abajo: una calle que cruza dos tiles cae en el mismo píxel en ambos
+    private static int pixel(double value) {
+        return (int) Math.floor(value);
+    }
+}
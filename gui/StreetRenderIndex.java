@@ -0,0 +1,136 @@
+package gui;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import graph.EdgeRTree;
+import models.Edge;
+import models.EdgeWeightCustomizer;
+import models.Node;
+import models.VehicleProfile;
+
+/**
+ * Street data prepared once for drawing. The edge R-tree answers which
+ * streets intersect the visible rectangle, and everything the renderer used
+ * to recompute per edge and per repaint (two-way detection, profile colour)
+ * is stored by edge id of the tree. The index is read-only once built, so
+ * several threads can query it, each with its own Visible buffer.
+ */
+public class StreetRenderIndex {
+    public static final byte NORMAL = 0;
+    public static final byte PREFERRED = 1;
+    public static final byte DISCOURAGED = 2;
+    public static final byte PROHIBITED = 3;
+
+    private final EdgeRTree tree;
+    private final Edge[] edges;
+    private final boolean[] bidirectional;
+    private final Map<VehicleProfile, byte[]> colorClasses = new EnumMap<>(VehicleProfile.class);
+
+    /**
+     * Result buffer of a query. Per-query stamps make an edge with several
+     * visible segments appear only once.
+     */
+    public static class Visible {
+        private final int[] stamps;
+        private int frame;
+        private int[] ids = new int[1024];
+        private int count;
+
+        public Visible(int edgeCount) {
+            this.stamps = new int[edgeCount];
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public int get(int i) {
+            return ids[i];
+        }
+    }
+
+    public StreetRenderIndex(Node[] graph, EdgeRTree tree) {
+        this.tree = tree;
+        this.edges = tree.getEdges();
+        this.bidirectional = new boolean[edges.length];
+
+        for (int i = 0; i < edges.length; i++) {
+            Edge edge = edges[i];
+            for (Edge reverseEdge : graph[edge.to].outEdges) {
+                if (reverseEdge.to == edge.from && !reverseEdge.isShortcut()
+                        && reverseEdge.streetName.equals(edge.streetName)) {
+                    bidirectional[i] = true;
+                    break;
+                }
+            }
+        }
+
+        for (VehicleProfile profile : VehicleProfile.values()) {
+            byte[] classes = new byte[edges.length];
+            for (int i = 0; i < edges.length; i++) {
+                classes[i] = classify(edges[i], profile);
+            }
+            colorClasses.put(profile, classes);
+        }
+    }
+
+    public Visible newVisible() {
+        return new Visible(edges.length);
+    }
+
+    /**
+     * Collects into out the ids of the edges intersecting the given rectangle.
+     */
+    public int query(double minLon, double minLat, double maxLon, double maxLat, Visible out) {
+        if (++out.frame == Integer.MAX_VALUE) {
+            Arrays.fill(out.stamps, 0);
+            out.frame = 1;
+        }
+        out.count = 0;
+        tree.search(minLon, minLat, maxLon, maxLat, id -> {
+            if (out.stamps[id] == out.frame) return;
+            out.stamps[id] = out.frame;
+            if (out.count == out.ids.length) {
+                out.ids = Arrays.copyOf(out.ids, out.ids.length * 2);
+            }
+            out.ids[out.count++] = id;
+        });
+        return out.count;
+    }
+
+    public Edge getEdge(int id) {
+        return edges[id];
+    }
+
+    public int size() {
+        return edges.length;
+    }
+
+    public boolean isBidirectional(int id) {
+        return bidirectional[id];
+    }
+
+    public byte getColorClass(int id, VehicleProfile profile) {
+        return colorClasses.get(profile)[id];
+    }
+
+    /**
+     * Suitability of an edge for a profile, comparing the profile weight with
+     * the plain distance.
+     */
+    public static byte classify(Edge edge, VehicleProfile profile) {
+        double defaultWeight = edge.getDistance();
+        double profileWeight = EdgeWeightCustomizer.calculateWeight(edge, profile);
+
+        if (profileWeight == Double.POSITIVE_INFINITY || profileWeight == Double.MAX_VALUE) {
+            return PROHIBITED;
+        } else if (profileWeight > defaultWeight * 2.0) {
+            return DISCOURAGED;
+        } else if (profileWeight < defaultWeight * 0.9) {
+            return PREFERRED;
+        }
+        return NORMAL;
+    }
+}
@@ -0,0 +1,309 @@
+package gui;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import models.VehicleProfile;
+
+/**
+ * Pyramid of pre-rendered street tiles. Tiles are TILE_SIZE pixel images
+ * keyed by (zoom level, x, y, profile), rendered by background workers and
+ * kept under an LRU memory budget, so panning only costs a few drawImage
+ * calls. Zoom levels are quarter octaves of the panel scale; a tile from the
+ * nearest level is stretched to the exact scale while painting.
+ */
+public class TileCache {
+    public static final int TILE_SIZE = 256;
+    private static final int LEVELS_PER_OCTAVE = 4;
+    private static final int FALLBACK_LEVELS = 4;
+    private static final long TILE_BYTES = (long) TILE_SIZE * TILE_SIZE * 4;
+
+    private static final class TileKey {
+        final int level, x, y;
+        final VehicleProfile profile;
+
+        TileKey(int level, int x, int y, VehicleProfile profile) {
+            this.level = level;
+            this.x = x;
+            this.y = y;
+            this.profile = profile;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TileKey)) return false;
+            TileKey other = (TileKey) o;
+            return level == other.level && x == other.x && y == other.y && profile == other.profile;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((level * 31 + x) * 31 + y) * 31 + profile.ordinal();
+        }
+    }
+
+    private final MapPanel panel;
+    private final double originLon;
+    private final double originLat;
+    private final long budgetBytes;
+
+    // Orden de acceso: el primero es el menos usado recientemente
+    private final LinkedHashMap<TileKey, BufferedImage> tiles = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<TileKey, Future<?>> pending = new HashMap<>();
+    // Pedidos que un worker ya está dibujando: cancelarlos no los detiene
+    private final Set<TileKey> started = new HashSet<>();
+    // Tiles que fallaron al renderizar: no se vuelven a pedir hasta el próximo clear()
+    private final Set<TileKey> failed = new HashSet<>();
+    private final ExecutorService executor;
+    private final ThreadLocal<StreetPainter> painters;
+
+    // Tiles del último paint (solo desde el EDT)
+    private int lastTilesDrawn;
+    private int lastTilesMissing;
+
+    // Trabajo de los workers desde el último drainRenderStats (bajo el lock del cache)
+    private int renderedTiles;
+    private int renderedStreets;
+    private int culledStreets;
+    private int renderedSegments;
+    private long renderNanos;
+
+    public TileCache(MapPanel panel, double originLon, double originLat, long budgetBytes) {
+        this.panel = panel;
+        this.originLon = originLon;
+        this.originLat = originLat;
+        this.budgetBytes = Math.max(budgetBytes, 64 * TILE_BYTES);
+        this.painters = ThreadLocal.withInitial(() -> new StreetPainter(panel));
+
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "map-tile-renderer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    public boolean hasOrigin(double lon, double lat) {
+        return lon == originLon && lat == originLat;
+    }
+
+    /**
+     * Paints the street layer of the current view from cached tiles and
+     * queues the missing ones. Until they arrive, cached tiles from nearby
+     * levels are stretched over the gap.
+     */
+    public void paint(Graphics2D g2d, double scale, double offsetX, double offsetY,
+                      int width, int height, VehicleProfile profile) {
+        int level = levelFor(scale);
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+
+        List<TileKey> wanted = visibleTiles(level, scale, offsetX, offsetY, width, height, profile);
+        List<TileKey> missing = new ArrayList<>();
+        synchronized (this) {
+            for (TileKey key : wanted) {
+                if (!tiles.containsKey(key) && !failed.contains(key)) missing.add(key);
+            }
+            cancelStale(wanted);
+        }
+
+        if (!missing.isEmpty()) {
+            // De la más lejana a la más cercana, para que la mejor quede encima
+            for (int distance = FALLBACK_LEVELS; distance >= 1; distance--) {
+                drawLevel(g2d, level + distance, scale, offsetX, offsetY, width, height, profile);
+                drawLevel(g2d, level - distance, scale, offsetX, offsetY, width, height, profile);
+            }
+        }
+
+        lastTilesDrawn = 0;
+        for (TileKey key : wanted) {
+            BufferedImage image;
+            synchronized (this) {
+                image = tiles.get(key);
+            }
+            if (image != null) {
+                drawTile(g2d, key, image, scale, offsetX, offsetY);
+                lastTilesDrawn++;
+            }
+        }
+        lastTilesMissing = wanted.size() - lastTilesDrawn;
+
+        for (TileKey key : missing) {
+            request(key);
+        }
+    }
+
+    private List<TileKey> visibleTiles(int level, double scale, double offsetX, double offsetY,
+                                       int width, int height, VehicleProfile profile) {
+        double ratio = scale / scaleOf(level);
+        int minX = Math.floorDiv((int) Math.floor(-offsetX / ratio), TILE_SIZE);
+        int maxX = Math.floorDiv((int) Math.floor((width - offsetX) / ratio), TILE_SIZE);
+        int minY = Math.floorDiv((int) Math.floor(-offsetY / ratio), TILE_SIZE);
+        int maxY = Math.floorDiv((int) Math.floor((height - offsetY) / ratio), TILE_SIZE);
+
+        List<TileKey> keys = new ArrayList<>();
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                keys.add(new TileKey(level, x, y, profile));
+            }
+        }
+        return keys;
+    }
+
+    // Solo tiles ya en cache: sirven de relleno mientras se renderizan los del nivel actual
+    private void drawLevel(Graphics2D g2d, int level, double scale, double offsetX, double offsetY,
+                           int width, int height, VehicleProfile profile) {
+        for (TileKey key : visibleTiles(level, scale, offsetX, offsetY, width, height, profile)) {
+            BufferedImage image;
+            synchronized (this) {
+                image = tiles.get(key);
+            }
+            if (image != null) {
+                drawTile(g2d, key, image, scale, offsetX, offsetY);
+            }
+        }
+    }
+
+    private void drawTile(Graphics2D g2d, TileKey key, BufferedImage image, double scale,
+                          double offsetX, double offsetY) {
+        double size = TILE_SIZE * scale / scaleOf(key.level);
+        int x0 = (int) Math.floor(key.x * size + offsetX);
+        int y0 = (int) Math.floor(key.y * size + offsetY);
+        int x1 = (int) Math.floor((key.x + 1) * size + offsetX);
+        int y1 = (int) Math.floor((key.y + 1) * size + offsetY);
+        if (x1 - x0 == TILE_SIZE && y1 - y0 == TILE_SIZE) {
+            g2d.drawImage(image, x0, y0, null);
+        } else {
+            g2d.drawImage(image, x0, y0, x1, y1, 0, 0, TILE_SIZE, TILE_SIZE, null);
+        }
+    }
+
+    // Descarta los pedidos en cola que ya no se ven (otro zoom, otro perfil o fuera de pantalla).
+    // Los que ya se están dibujando siguen en pending para no encolar el mismo tile dos veces.
+    private void cancelStale(List<TileKey> wanted) {
+        Set<TileKey> keep = new HashSet<>(wanted);
+        Iterator<Map.Entry<TileKey, Future<?>>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<TileKey, Future<?>> entry = it.next();
+            if (!keep.contains(entry.getKey()) && !started.contains(entry.getKey())) {
+                entry.getValue().cancel(false);
+                it.remove();
+            }
+        }
+    }
+
+    private synchronized void request(TileKey key) {
+        if (pending.containsKey(key) || tiles.containsKey(key) || failed.contains(key)) return;
+        pending.put(key, executor.submit(() -> render(key)));
+    }
+
+    private void render(TileKey key) {
+        synchronized (this) {
+            started.add(key);
+        }
+        long start = System.nanoTime();
+        StreetPainter painter = painters.get();
+        BufferedImage image = null;
+        Graphics2D g2d = null;
+        boolean rendered = false;
+        try {
+            image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+            g2d = image.createGraphics();
+            g2d.setColor(panel.getBackground());
+            g2d.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            painter.setView(originLon, originLat, scaleOf(key.level),
+                            -key.x * (double) TILE_SIZE, -key.y * (double) TILE_SIZE, TILE_SIZE, TILE_SIZE);
+            painter.paint(g2d, key.profile);
+            rendered = true;
+        } catch (RuntimeException e) {
+            // submit() se tragaría la excepción: se informa una vez y el tile no se vuelve a pedir
+            System.err.println("Could not render tile level " + key.level + " (" + key.x + ", " + key.y + ") for "
+                + key.profile + ": " + e);
+        } finally {
+            if (g2d != null) g2d.dispose();
+            // También ante un Error: si no, el pedido quedaría en pending para siempre.
+            // Aunque se haya cancelado mientras se dibujaba, el tile es válido y se guarda.
+            synchronized (this) {
+                pending.remove(key);
+                started.remove(key);
+                if (rendered) {
+                    tiles.put(key, image);
+                    evict();
+                    renderedTiles++;
+                    renderedStreets += painter.getStreetsDrawn();
+                    culledStreets += painter.getStreetsCulled();
+                    renderedSegments += painter.getSegmentsDrawn();
+                    renderNanos += System.nanoTime() - start;
+                } else {
+                    failed.add(key);
+                }
+            }
+        }
+        if (rendered) panel.repaint();
+    }
+
+    private void evict() {
+        Iterator<TileKey> it = tiles.keySet().iterator();
+        while ((long) tiles.size() * TILE_BYTES > budgetBytes && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Charges the tiles rendered since the last call (streets drawn and
+     * culled, segments, worker time) to the current frame, and resets them.
+     */
+    public synchronized void drainRenderStats(RenderStats stats) {
+        stats.count(RenderStats.Counter.TILES_RENDERED, renderedTiles);
+        stats.count(RenderStats.Counter.STREETS_DRAWN, renderedStreets);
+        stats.count(RenderStats.Counter.STREETS_CULLED, culledStreets);
+        stats.count(RenderStats.Counter.SEGMENTS_DRAWN, renderedSegments);
+        stats.addTileRender(renderNanos);
+        renderedTiles = renderedStreets = culledStreets = renderedSegments = 0;
+        renderNanos = 0;
+    }
+
+    public int getLastTilesDrawn() {
+        return lastTilesDrawn;
+    }
+
+    public int getLastTilesMissing() {
+        return lastTilesMissing;
+    }
+
+    public synchronized int size() {
+        return tiles.size();
+    }
+
+    public synchronized long getUsedBytes() {
+        return tiles.size() * TILE_BYTES;
+    }
+
+    public synchronized void clear() {
+        for (Future<?> future : pending.values()) {
+            future.cancel(false);
+        }
+        pending.clear();
+        started.clear();
+        failed.clear();
+        tiles.clear();
+    }
+
+    public void shutdown() {
+        clear();
+        executor.shutdownNow();
+    }
+
+    private static int levelFor(double scale) {
+        return (int) Math.round(Math.log(scale) / Math.log(2) * LEVELS_PER_OCTAVE);
+    }
+
+    private static double scaleOf(int level) {
+        return Math.pow(2, level / (double) LEVELS_PER_OCTAVE);
+    }
+}
@@ -0,0 +1,249 @@
+package gui;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import models.VehicleProfile;
+
+/**
+ * Renders the street network to a static PNG tile pyramid, one per
+ * profile, laid out as profile/z/x/y.png. Level 0 fits the whole map into
+ * one TILE_SIZE tile and each level doubles the scale. Tiles are painted by
+ * a worker pool with the same StreetPainter as the GUI, each worker reusing
+ * its own image and Graphics2D. Tiles without streets are not written, and
+ * a manifest of content hashes skips re-encoding tiles that did not change
+ * since the previous export.
+ */
+public class TileExporter {
+    public static final int TILE_SIZE = TileCache.TILE_SIZE;
+    public static final String MANIFEST = "manifest.csv";
+
+    public static class Result {
+        public int rendered;   // tiles con calles
+        public int written;    // nuevos o con contenido distinto
+        public int unchanged;  // mismo hash que la exportación anterior
+        public int empty;      // sin calles, no se dibujan
+        public int removed;    // de la exportación anterior que ya no existen
+        public long elapsedMs;
+    }
+
+    // Estado por worker: un único lienzo y un único Graphics2D reutilizados
+    private final class Worker {
+        final BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g2d = image.createGraphics();
+        final StreetPainter painter = new StreetPainter(panel);
+        final StreetRenderIndex.Visible visible = panel.streetIndex.newVisible();
+        final MessageDigest digest = newDigest();
+
+        Worker() {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        }
+    }
+
+    private final MapPanel panel;
+    private final int workers;
+
+    /**
+     * @param panel Holds the map data (graph, street index, geometry, level
+     *        of detail); it does not need to be shown
+     */
+    public TileExporter(MapPanel panel, int workers) {
+        if (panel.streetIndex == null) {
+            throw new IllegalArgumentException("Tile export needs the street index");
+        }
+        this.panel = panel;
+        this.workers = Math.max(1, workers);
+        if (panel.projected == null) {
+            panel.calculateMapBounds();
+        }
+    }
+
+    /** Scale (pixels per degree) at which the whole map fits in one tile. */
+    public double baseScale() {
+        return TILE_SIZE / Math.max(panel.maxLon - panel.minLon, panel.maxLat - panel.minLat);
+    }
+
+    /** Smallest level at least as detailed as the given scale. */
+    public int levelFor(double scale) {
+        return Math.max(0, (int) Math.ceil(Math.log(scale / baseScale()) / Math.log(2)));
+    }
+
+    public Result export(Path outputDir, int maxLevel, List<VehicleProfile> profiles) throws IOException {
+        long startTime = System.currentTimeMillis();
+        Files.createDirectories(outputDir);
+        Map<String, String> previous = readManifest(outputDir.resolve(MANIFEST));
+        Map<String, String> current = new ConcurrentHashMap<>();
+        Result result = new Result();
+        AtomicInteger rendered = new AtomicInteger(), written = new AtomicInteger();
+        AtomicInteger unchanged = new AtomicInteger(), empty = new AtomicInteger();
+
+        List<Worker> allWorkers = Collections.synchronizedList(new ArrayList<>());
+        ThreadLocal<Worker> worker = ThreadLocal.withInitial(() -> {
+            Worker w = new Worker();
+            allWorkers.add(w);
+            return w;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "tile-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int level = 0; level <= maxLevel; level++) {
+                double scale = baseScale() * Math.pow(2, level);
+                int columns = (int) Math.ceil((panel.maxLon - panel.minLon) * scale / TILE_SIZE);
+                int rows = (int) Math.ceil((panel.maxLat - panel.minLat) * scale / TILE_SIZE);
+
+                for (VehicleProfile profile : profiles) {
+                    for (int x = 0; x < columns; x++) {
+                        // Una tarea por columna: suficiente para repartir sin saturar la cola
+                        final int level0 = level, column = x;
+                        tasks.add(executor.submit(() -> {
+                            for (int y = 0; y < rows; y++) {
+                                String name = profile.name().toLowerCase() + "/" + level0 + "/" + column + "/" + y + ".png";
+                                TileStatus status = renderTile(worker.get(), outputDir, name, previous, current,
+                                                               profile, scale, column, y);
+                                switch (status) {
+                                    case EMPTY: empty.incrementAndGet(); break;
+                                    case UNCHANGED: unchanged.incrementAndGet(); rendered.incrementAndGet(); break;
+                                    case WRITTEN: written.incrementAndGet(); rendered.incrementAndGet(); break;
+                                }
+                            }
+                            return null;
+                        }));
+                    }
+                }
+            }
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    throw new IOException("Tile export failed", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Tile export interrupted", e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            for (Worker w : allWorkers) w.g2d.dispose();
+        }
+
+        // Tiles anteriores que quedaron sin calles; los de niveles o perfiles no exportados se conservan
+        for (Map.Entry<String, String> entry : previous.entrySet()) {
+            String name = entry.getKey();
+            if (current.containsKey(name)) continue;
+            String[] parts = name.split("/");
+            boolean covered = parts.length == 4 && profileNames(profiles).contains(parts[0])
+                              && Integer.parseInt(parts[1]) <= maxLevel;
+            if (!covered) {
+                current.put(name, entry.getValue());
+            } else if (Files.deleteIfExists(outputDir.resolve(name))) {
+                result.removed++;
+            }
+        }
+        writeManifest(outputDir.resolve(MANIFEST), current);
+
+        result.rendered = rendered.get();
+        result.written = written.get();
+        result.unchanged = unchanged.get();
+        result.empty = empty.get();
+        result.elapsedMs = System.currentTimeMillis() - startTime;
+        return result;
+    }
+
+    private enum TileStatus { EMPTY, UNCHANGED, WRITTEN }
+
+    private static Set<String> profileNames(List<VehicleProfile> profiles) {
+        Set<String> names = new HashSet<>();
+        for (VehicleProfile profile : profiles) names.add(profile.name().toLowerCase());
+        return names;
+    }
+
+    private TileStatus renderTile(Worker w, Path outputDir, String name, Map<String, String> previous,
+                                  Map<String, String> current, VehicleProfile profile, double scale,
+                                  int x, int y) throws IOException {
+        // Sin aristas en el tile (con margen para trazos y flechas) no hay nada que pintar
+        double margin = 20.0 / scale;
+        double west = panel.minLon + x * TILE_SIZE / scale - margin;
+        double east = panel.minLon + (x + 1) * TILE_SIZE / scale + margin;
+        double north = panel.maxLat - y * TILE_SIZE / scale + margin;
+        double south = panel.maxLat - (y + 1) * TILE_SIZE / scale - margin;
+        if (panel.streetIndex.query(west, south, east, north, w.visible) == 0) {
+            return TileStatus.EMPTY;
+        }
+
+        w.g2d.setColor(panel.getBackground());
+        w.g2d.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+        w.painter.setView(panel.minLon, panel.maxLat, scale, -x * (double) TILE_SIZE, -y * (double) TILE_SIZE,
+                          TILE_SIZE, TILE_SIZE);
+        w.painter.paint(w.g2d, profile);
+
+        String hash = hash(w);
+        current.put(name, hash);
+        Path file = outputDir.resolve(name);
+        if (hash.equals(previous.get(name)) && Files.exists(file)) {
+            return TileStatus.UNCHANGED;
+        }
+        Files.createDirectories(file.getParent());
+        ImageIO.write(w.image, "png", file.toFile());
+        return TileStatus.WRITTEN;
+    }
+
+    // Hash de los píxeles, no del PNG: no hace falta codificar para saber si cambió
+    private static String hash(Worker w) {
+        int[] pixels = ((DataBufferInt) w.image.getRaster().getDataBuffer()).getData();
+        byte[] bytes = new byte[pixels.length * 4];
+        for (int i = 0, j = 0; i < pixels.length; i++) {
+            int p = pixels[i];
+            bytes[j++] = (byte) (p >>> 24);
+            bytes[j++] = (byte) (p >>> 16);
+            bytes[j++] = (byte) (p >>> 8);
+            bytes[j++] = (byte) p;
+        }
+        byte[] digest = w.digest.digest(bytes);
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, String> readManifest(Path file) throws IOException {
+        Map<String, String> manifest = new HashMap<>();
+        if (!Files.exists(file)) return manifest;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            int comma = line.lastIndexOf(',');
+            if (comma > 0) manifest.put(line.substring(0, comma), line.substring(comma + 1));
+        }
+        return manifest;
+    }
+
+    private static void writeManifest(Path file, Map<String, String> manifest) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, String> entry : new TreeMap<>(manifest).entrySet()) {
+                out.println(entry.getKey() + "," + entry.getValue());
+            }
+        }
+    }
+}
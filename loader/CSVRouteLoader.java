@@ -1,5 +1,9 @@
 package loader;
 
+import graph.NodeSpatialIndex;
+import graph.PolylineStore;
+import metrics.MetricsRegistry;
+import metrics.RoutingEvents;
 import models.*;
 import utils.CSVUtils;
 
@@ -11,6 +15,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class CSVRouteLoader {
 
     public static MapDataResult loadFromCSV(String dirpath) throws IOException {
+        long startNanos = System.nanoTime();
+        RoutingEvents.CsvLoadStage stage = RoutingEvents.CsvLoadStage.start(dirpath, "parse");
         BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(dirpath), StandardCharsets.UTF_8));
 
         String line;
@@ -18,6 +24,8 @@ public class CSVRouteLoader {
         Map<String, Integer> nodeIndex = new HashMap<>();
         Map<Integer, String> idToCoord = new HashMap<>();
         AtomicInteger currentId = new AtomicInteger(0);
+        PolylineStore geometryStore = new PolylineStore();
+        double[] lonLat = new double[64];
 
         br.readLine(); // skip header
         int lineNumber = 1;
@@ -39,6 +47,19 @@ public class CSVRouteLoader {
             String start = points[0].trim();
             String end = points[points.length - 1].trim();
 
+            // Guardar todos los vértices del LINESTRING en el pool compacto
+            if (lonLat.length < points.length * 2) lonLat = new double[points.length * 2];
+            try {
+                for (int i = 0; i < points.length; i++) {
+                    String point = points[i].trim();
+                    int space = point.indexOf(' ');
+                    lonLat[2 * i] = Double.parseDouble(point.substring(0, space));
+                    lonLat[2 * i + 1] = Double.parseDouble(point.substring(space + 1).trim());
+                }
+            } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                continue;
+            }
+
             String street = "Unknown";
             if (fields[7] != null && !fields[7].trim().isEmpty()) {
                 street = fields[7].replace("\"", "").trim();
@@ -90,10 +111,16 @@ public class CSVRouteLoader {
             } catch (NumberFormatException ignored) {}
 
             long cost = (long) length;
-            routes.add(new Route(origin, destination, cost, street, isBidirectional,
-                                sentido, tipoC, redJerarq, bicisenda));
+            Route route = new Route(origin, destination, cost, street, isBidirectional,
+                                    sentido, tipoC, redJerarq, bicisenda);
+            route.geometryId = geometryStore.add(lonLat, points.length);
+            routes.add(route);
         }
         br.close();
+        geometryStore.trim();
+        stage.end(routes.size());
+
+        stage = RoutingEvents.CsvLoadStage.start(dirpath, "graph");
 
         int n = nodeIndex.size();
         Node[] graph = new Node[n];
@@ -109,6 +136,7 @@ public class CSVRouteLoader {
             
             Edge forwardEdge = new Edge(route.origin, route.destination, route.cost, route.street,
                                       routeSentido, routeTipoC, routeRedJerarq, routeBicisenda);
+            forwardEdge.setGeometry(route.geometryId, false);
             graph[route.origin].outEdges.add(forwardEdge);
             graph[route.destination].inEdges.add(forwardEdge);
             totalEdges++;
@@ -116,12 +144,16 @@ public class CSVRouteLoader {
             if (route.isBidirectional) {
                 Edge backwardEdge = new Edge(route.destination, route.origin, route.cost, route.street,
                                            routeSentido, routeTipoC, routeRedJerarq, routeBicisenda);
+                backwardEdge.setGeometry(route.geometryId, true);
                 graph[route.destination].outEdges.add(backwardEdge);
                 graph[route.origin].inEdges.add(backwardEdge);
                 totalEdges++;
             }
         }
 
+        stage.end(totalEdges);
+
+        stage = RoutingEvents.CsvLoadStage.start(dirpath, "streetNames");
         Map<String, String> streetNameMap = new HashMap<>();
         for (Route route : routes) {
             streetNameMap.put(route.origin + "_" + route.destination, route.street);
@@ -130,6 +162,27 @@ public class CSVRouteLoader {
             }
         }
 
-      return new MapDataResult(graph, idToCoord, nodeIndex, streetNameMap, routes);
+        stage.end(streetNameMap.size());
+
+        // Parsear las coordenadas una sola vez e indexarlas espacialmente
+        stage = RoutingEvents.CsvLoadStage.start(dirpath, "coordinates");
+        double[] nodeLon = new double[n];
+        double[] nodeLat = new double[n];
+        for (Map.Entry<Integer, String> entry : idToCoord.entrySet()) {
+            String[] parts = entry.getValue().split(" ");
+            nodeLon[entry.getKey()] = Double.parseDouble(parts[0]);
+            nodeLat[entry.getKey()] = Double.parseDouble(parts[1]);
+        }
+        NodeSpatialIndex spatialIndex = new NodeSpatialIndex(nodeLon, nodeLat);
+        stage.end(n);
+
+        MetricsRegistry metrics = MetricsRegistry.global();
+        metrics.histogram("load.csv").recordSince(startNanos);
+        metrics.counter("load.lines").add(lineNumber - 1);
+        metrics.counter("load.routes").add(routes.size());
+        metrics.counter("load.nodes").add(n);
+
+        return new MapDataResult(graph, idToCoord, nodeIndex, streetNameMap, routes,
+                                 nodeLon, nodeLat, spatialIndex, geometryStore);
     }
 }
@@ -1,5 +1,7 @@
 package loader;
 
+import graph.NodeSpatialIndex;
+import graph.PolylineStore;
 import models.*;
 import java.util.Map;
 import java.util.List;
@@ -10,6 +12,10 @@ public class MapDataResult {
     public Map<String, Integer> nodeIndex;
     public Map<String, String> streetNameMap;
     public List<Route> routes;
+    public double[] nodeLon;
+    public double[] nodeLat;
+    public NodeSpatialIndex spatialIndex;
+    public PolylineStore geometry;
 
     public MapDataResult(Node[] graph, Map<Integer, String> idToCoord, Map<String, Integer> nodeIndex,
                          Map<String, String> streetNameMap, List<Route> routes) {
@@ -19,4 +25,15 @@ public class MapDataResult {
         this.streetNameMap = streetNameMap;
         this.routes = routes;
     }
+
+    public MapDataResult(Node[] graph, Map<Integer, String> idToCoord, Map<String, Integer> nodeIndex,
+                         Map<String, String> streetNameMap, List<Route> routes,
+                         double[] nodeLon, double[] nodeLat, NodeSpatialIndex spatialIndex,
+                         PolylineStore geometry) {
+        this(graph, idToCoord, nodeIndex, streetNameMap, routes);
+        this.nodeLon = nodeLon;
+        this.nodeLat = nodeLat;
+        this.spatialIndex = spatialIndex;
+        this.geometry = geometry;
+    }
 }
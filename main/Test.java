@@ -1,5 +1,6 @@
 package main;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -10,11 +11,14 @@ import java.util.Scanner;
 // Swing imports for GUI
 import javax.swing.*;
 import java.awt.*;
+import java.awt.geom.Point2D;
 import models.*;
 import algorithms.*;
 import graph.*;
 import loader.*;
 import gui.*;
+import metrics.MetricsRegistry;
+import metrics.QueryLog;
 
 public class Test {
     // GUI Components
@@ -24,63 +28,62 @@ public class Test {
     private JButton findRouteButton;
     private JButton clearButton;
     private JButton showGuiButton;
+    private JButton isochroneButton;
+    private JSpinner isochroneMinutesSpinner;
+    private JCheckBox searchSpaceCheckBox;
+    private JCheckBox snapToStreetsCheckBox;
+    private JCheckBox renderStatsCheckBox;
+    private JButton exportStatsButton;
     private JTextArea infoArea;
     private JScrollPane mapScrollPane;
     private JComboBox<VehicleProfile> profileSelector;
     private JLabel profileLabel;
     private JComboBox<Algorithm> algorithmSelector;
     private JLabel algorithmLabel;
+    private JProgressBar progressBar;
+    private RoutingEngine routingEngine;
+    private RoutingEngine.Query<IsochroneSearch.Result> isochroneQuery;
     
     // Map data and state
     private static Node[] graphData;
     private static Map<Integer, String> idToCoordData;
     private static Map<String, String> streetNameMapData;
+    private static double[] nodeLonData;
+    private static double[] nodeLatData;
+    private static NodeSpatialIndex spatialIndexData;
+    private static EdgeRTree edgeRTreeData;
+    private static PolylineStore geometryData;
     private static BidirectionalSearch bidirectionalSearchData;
     private static ContractionHierarchies chInstance;
+    private static IsochroneSearch isochroneSearchData;
+    private static QueryLog queryLogData;
     
     private Integer selectedOrigin = null;
     private Integer selectedDestination = null;
     private List<Integer> currentRoute = new ArrayList<>();
     public static void main(String[] args) throws IOException {       
+        startMetricsReporting();
         MapDataResult result = CSVRouteLoader.loadFromCSV("main/rutas.csv");
         int n = result.nodeIndex.size();
         // System.out.println("Number of nodes: " + n);
         // System.out.println("Number of routes: " + result.routes.size());
         
-        // Initialize graph
-        Node[] graph = new Node[n];
-        for (int i = 0; i < n; i++) {
-            graph[i] = new Node(i);
-        }
+        // El loader ya construye el grafo (con direccionalidad, campos CSV y geometría)
+        Node[] graph = result.graph;
+        Map<String, String> streetNameMap = result.streetNameMap;
         
-        // Add edges to graph considerando direccionalidad
-        int totalEdges = 0;
-        for (Route route : result.routes) {
-            // Siempre añadir la arista en la dirección original, incluyendo campos CSV
-            Edge forwardEdge = new Edge(route.origin, route.destination, route.cost, route.street,
-                                      route.sentido, route.tipoC, route.redJerarq, route.bicisenda);
-            graph[route.origin].outEdges.add(forwardEdge);
-            graph[route.destination].inEdges.add(forwardEdge);
-            totalEdges++;
-            
-            // Si es bidireccional, añadir también la arista inversa
-            if (route.isBidirectional) {
-                Edge backwardEdge = new Edge(route.destination, route.origin, route.cost, route.street,
-                                           route.sentido, route.tipoC, route.redJerarq, route.bicisenda);
-                graph[route.destination].outEdges.add(backwardEdge);
-                graph[route.origin].inEdges.add(backwardEdge);
-                totalEdges++;
-            }
-        }
-            
-        // Crear mapa de aristas para búsqueda rápida
-        Map<String, String> streetNameMap = new HashMap<>();
-        for (Route route : result.routes) {
-            streetNameMap.put(route.origin + "_" + route.destination, route.street);
-            if (route.isBidirectional) {
-                streetNameMap.put(route.destination + "_" + route.origin, route.street);
-            }
-        }
+        // Colapsar cadenas de nodos de grado 2 antes de indexar y contraer
+        long simplifyStartTime = System.currentTimeMillis();
+        GraphSimplifier.Result simplification = GraphSimplifier.simplify(graph, result.geometry);
+        System.out.println("Graph simplified: removed " + simplification.removedNodes + " pass-through nodes, edges " +
+                           simplification.edgesBefore + " -> " + simplification.edgesAfter + " in " +
+                           (System.currentTimeMillis() - simplifyStartTime) + " ms");
+        
+        // R-tree de segmentos para ubicar coordenadas arbitrarias sobre la calle más cercana
+        long rtreeStartTime = System.currentTimeMillis();
+        edgeRTreeData = EdgeRTree.build(graph, result.nodeLon, result.nodeLat, result.geometry);
+        System.out.println("Edge R-tree built with " + edgeRTreeData.size() + " edges in " +
+                           (System.currentTimeMillis() - rtreeStartTime) + " ms");
         
         System.out.println("Preprocessing the graph...");
         long preprocessingStartTime = System.currentTimeMillis();
@@ -90,11 +93,18 @@ public class Test {
         // Initialize with default profile
         chInstance.setProfile(VehicleProfile.VEHICULOS);
         bidirectionalSearchData = ch.getBidirectionalSearch();
+        queryLogData = openQueryLog(graph.length);
         
         long preprocessingTime = System.currentTimeMillis() - preprocessingStartTime;
         System.out.println("Preprocessing complete!");
         System.out.println("Total preprocessing time: " + (preprocessingTime / 1000.0) + " seconds");
         
+        // Calentamiento opcional del JIT antes de aceptar consultas
+        if (Boolean.getBoolean("warmup")) {
+            warmUp(graph, result.idToCoord, ch);
+        }
+        System.out.println("Ready to accept route queries");
+        
         // Análisis de conectividad del grafo
         // System.out.println("Analyzing graph connectivity...");
         Map<Integer, Integer> componentMap = new HashMap<>();
@@ -140,6 +150,7 @@ public class Test {
         
         // Set map data for GUI
         setMapData(graph, result.idToCoord, streetNameMap);
+        setSpatialData(result.nodeLon, result.nodeLat, result.spatialIndex, result.geometry);
         
         // Create and show GUI
         Test guiInstance = new Test();
@@ -173,6 +184,15 @@ public class Test {
         findRouteButton = new JButton("Find Route");
         clearButton = new JButton("Clear Selection");
         showGuiButton = new JButton("Show Console");
+        isochroneButton = new JButton("Isochrone");
+        isochroneMinutesSpinner = new JSpinner(new SpinnerNumberModel(10, 1, 120, 1));
+        searchSpaceCheckBox = new JCheckBox("Search space");
+        searchSpaceCheckBox.setToolTipText("Record and draw the nodes explored by the next route queries");
+        snapToStreetsCheckBox = new JCheckBox("Snap to streets");
+        snapToStreetsCheckBox.setToolTipText("Route between the exact clicked points, projected onto the nearest streets");
+        snapToStreetsCheckBox.setEnabled(edgeRTreeData != null);
+        renderStatsCheckBox = new JCheckBox("Render stats");
+        exportStatsButton = new JButton("Export Stats");
         
         // Profile selector
         profileLabel = new JLabel("Profile:");
@@ -186,13 +206,34 @@ public class Test {
         algorithmSelector.setSelectedItem(Algorithm.CCH);
         algorithmSelector.addActionListener(e -> onAlgorithmChanged());
 
+        // Indicador de consulta en curso
+        progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setVisible(false);
+
         mapPanel = new MapPanel();
         mapPanel.statusLabel = statusLabel;
         mapPanel.findRouteButton = findRouteButton;
+        mapPanel.selectionListener = this::onSelectionChanged;
 
         // Si ya tienes cargado el grafo, pásalo al panel
         mapPanel.graphData = Test.graphData;
         mapPanel.idToCoordData = Test.idToCoordData;
+        mapPanel.nodeLon = Test.nodeLonData;
+        mapPanel.nodeLat = Test.nodeLatData;
+        mapPanel.spatialIndex = Test.spatialIndexData;
+        mapPanel.geometry = Test.geometryData;
+        if (edgeRTreeData != null) {
+            mapPanel.streetIndex = new StreetRenderIndex(mapPanel.graphData, edgeRTreeData);
+            mapPanel.levelOfDetail = StreetLevelOfDetail.build(mapPanel.streetIndex, geometryData, spatialIndexData);
+        }
+
+        // Las búsquedas corren fuera del EDT; los resultados vuelven por invokeLater
+        isochroneSearchData = new IsochroneSearch(graphData, nodeLonData, nodeLatData, geometryData);
+        routingEngine = new RoutingEngine(graphData, idToCoordData, chInstance, isochroneSearchData,
+                                          SwingUtilities::invokeLater);
+        routingEngine.setQueryLog(queryLogData);
+        routingEngine.setEdgeTree(edgeRTreeData);
 
         // Scroll para el mapa
         mapScrollPane = new JScrollPane(mapPanel);
@@ -210,6 +251,14 @@ public class Test {
         findRouteButton.addActionListener(e -> calculateRoute());
         clearButton.addActionListener(e -> clearSelection());
         showGuiButton.addActionListener(e -> toggleConsole());
+        isochroneButton.addActionListener(e -> calculateIsochrone());
+        searchSpaceCheckBox.addActionListener(e -> onSearchSpaceToggled());
+        snapToStreetsCheckBox.addActionListener(e -> mapPanel.snapToStreets = snapToStreetsCheckBox.isSelected());
+        renderStatsCheckBox.addActionListener(e -> {
+            mapPanel.showRenderStats = renderStatsCheckBox.isSelected();
+            mapPanel.repaint();
+        });
+        exportStatsButton.addActionListener(e -> exportRenderStats());
 
         // Cambiar el orden: primero algoritmo, luego perfil
         topPanel.add(algorithmLabel);
@@ -218,7 +267,15 @@ public class Test {
         topPanel.add(profileSelector);
         topPanel.add(statusLabel);
         topPanel.add(findRouteButton);
+        topPanel.add(progressBar);
         topPanel.add(clearButton);
+        topPanel.add(isochroneMinutesSpinner);
+        topPanel.add(new JLabel("min"));
+        topPanel.add(isochroneButton);
+        topPanel.add(searchSpaceCheckBox);
+        topPanel.add(snapToStreetsCheckBox);
+        topPanel.add(renderStatsCheckBox);
+        topPanel.add(exportStatsButton);
         topPanel.add(showGuiButton);
 
         // Area de informacion
@@ -255,63 +312,79 @@ public class Test {
             return;
         }
 
+        if (snapToStreetsCheckBox.isSelected() && mapPanel.originPoint != null && mapPanel.destinationPoint != null) {
+            calculateCoordinateRoute();
+            return;
+        }
+
         Algorithm selectedAlgorithm = (Algorithm) algorithmSelector.getSelectedItem();
         updateInfoArea("Calculating route using " + selectedAlgorithm + " from Node " +
                     mapPanel.selectedOrigin + " to Node " + mapPanel.selectedDestination + "...");
 
-        for (Node node : mapPanel.graphData) {
-            node.distance = new Distance();
-        }
-
-        List<Integer> path = null;
-        long distance = -1;
-        long durationMs = -1;
-
-        try {
-            long startTime = System.nanoTime(); // ⏱ INICIO
-
-            switch (selectedAlgorithm) {
-                case CCH:
-                    BidirectionalSearch.PathResult chResult = bidirectionalSearchData.computeShortestPathEnhanced(
-                        mapPanel.selectedOrigin, mapPanel.selectedDestination, (int)(System.currentTimeMillis() % 1000)
-                    );
-                    if (chResult.distance != -1) {
-                        path = bidirectionalSearchData.reconstructPath(
-                            mapPanel.selectedOrigin, mapPanel.selectedDestination, chResult.meetingNode);
-                        distance = chResult.distance;
-                    }
-                    break;
-
-                case ASTAR:
-                    AStarSearch aStar = new AStarSearch(mapPanel.graphData, mapPanel.idToCoordData);
-                    AStarSearch.Result aStarResult = aStar.compute(mapPanel.selectedOrigin, mapPanel.selectedDestination);
-                    path = aStarResult.path;
-                    distance = aStarResult.distance;
-                    break;
-
-                case ALT:
-                    List<Integer> landmarks = Arrays.asList(0, Math.min(10, mapPanel.graphData.length-1),
-                                                        Math.min(50, mapPanel.graphData.length-1));
-                    ALTSearch alt = new ALTSearch(mapPanel.graphData, mapPanel.idToCoordData, landmarks);
-                    ALTSearch.Result altResult = alt.compute(mapPanel.selectedOrigin, mapPanel.selectedDestination);
-                    path = altResult.path;
-                    distance = altResult.distance;
-                    break;
-            }
+        // Reemplaza cualquier consulta anterior que siga corriendo
+        routingEngine.submitRoute(selectedAlgorithm, mapPanel.selectedOrigin, mapPanel.selectedDestination,
+            this::showRoute,
+            error -> {
+                updateProgress();
+                updateInfoArea("Error calculating route with " + selectedAlgorithm + ": " + error.getMessage());
+            });
+        updateProgress();
+    }
 
-            long endTime = System.nanoTime(); // ⏱ FIN
-            durationMs = (endTime - startTime) / 1_000_000;
+    // Entre los puntos exactos de los clics: cada uno se proyecta sobre su calle más cercana
+    private void calculateCoordinateRoute() {
+        Point2D.Double origin = mapPanel.originPoint, destination = mapPanel.destinationPoint;
+        updateInfoArea(String.format("Calculating route between points %.6f %.6f and %.6f %.6f...",
+            origin.x, origin.y, destination.x, destination.y));
+        routingEngine.submitCoordinateRoute(origin.x, origin.y, destination.x, destination.y,
+            this::showCoordinateRoute,
+            error -> {
+                updateProgress();
+                updateInfoArea("Error calculating route between points: " + error.getMessage());
+            });
+        updateProgress();
+    }
 
-        } catch (Exception e) {
-            updateInfoArea("Error calculating route with " + selectedAlgorithm + ": " + e.getMessage());
-            return;
+    private void showCoordinateRoute(VirtualNodeSearch.Result result) {
+        updateProgress();
+        mapPanel.currentSearchSpace = null;
+        mapPanel.currentRoute.clear();
+        if (result.distance == -1) {
+            mapPanel.currentVirtualRoute = null;
+            updateInfoArea("No route found between the selected points.\n" +
+                "- Street directions or the profile prevent reaching the destination segment");
+        } else {
+            mapPanel.currentVirtualRoute = result;
+            mapPanel.currentRoute.addAll(result.path);
+            VehicleProfile selectedProfile = (VehicleProfile) profileSelector.getSelectedItem();
+            double speedMps = selectedProfile.getSpeedMps();
+            double timeSeconds = (result.distance > 0 && speedMps > 0) ? (result.distance / speedMps) : 0;
+            updateInfoArea(String.format("Route found between points (snapped to streets)!\n" +
+                "Distance: %d meters\nEstimated time: %d min %d sec\n" +
+                "Origin on %s, %.0f m from the click\nDestination on %s, %.0f m from the click\n" +
+                "Intersections on the way: %d",
+                result.distance, (int) (timeSeconds / 60), (int) (timeSeconds % 60),
+                result.source.edge.streetName, result.source.distanceMeters,
+                result.target.edge.streetName, result.target.distanceMeters, result.path.size()));
         }
+        mapPanel.repaint();
+    }
+
+    private void showRoute(RoutingEngine.RouteResult result) {
+        updateProgress();
+        mapPanel.currentVirtualRoute = null;
+        Algorithm selectedAlgorithm = result.algorithm;
+        List<Integer> path = result.path;
+        long distance = result.distance;
+        long durationMs = result.durationMs;
+        mapPanel.currentSearchSpace = result.searchSpace;
 
-        if (path == null || path.isEmpty() || distance == -1) {
+        if (!result.isFound()) {
             updateInfoArea("No route found between the selected nodes using " + selectedAlgorithm + ".\n" +
                 "- Nodes are in different connected components\n" +
                 "- Street directions prevent connection\n" +
-                "- Algorithm-specific limitations");
+                "- Algorithm-specific limitations" +
+                (result.stats != null ? "\n\nQuery stats: " + result.stats : ""));
             mapPanel.currentRoute.clear();
         } else {
             mapPanel.currentRoute.clear();
@@ -319,13 +392,7 @@ public class Test {
 
             // Tiempo estimado según perfil
             VehicleProfile selectedProfile = (VehicleProfile) profileSelector.getSelectedItem();
-            double speedMps;
-            switch (selectedProfile) {
-                case BICICLETA: speedMps = 4.16; break;
-                case PEATONAL:  speedMps = 1.39; break;
-                case VEHICULOS:
-                default:        speedMps = 8.33; break;
-            }
+            double speedMps = selectedProfile.getSpeedMps();
 
             double timeSeconds = (distance > 0 && speedMps > 0) ? (distance / speedMps) : 0;
             int minutes = (int) (timeSeconds / 60);
@@ -334,10 +401,21 @@ public class Test {
             // Mostrar detalles
             StringBuilder routeInfo = new StringBuilder();
             routeInfo.append("Route found using ").append(selectedAlgorithm).append("!\n");
-            routeInfo.append("Time taken: ").append(durationMs).append(" ms\n");
+            routeInfo.append("Time taken: ").append(durationMs).append(" ms");
+            if (result.fromOriginTree) routeInfo.append(" (from origin search tree: exact Dijkstra, not CH)");
+            routeInfo.append("\n");
             routeInfo.append("Distance: ").append(distance).append(" meters\n");
             routeInfo.append("Estimated time: ").append(minutes).append(" min ").append(seconds).append(" sec\n");
-            routeInfo.append("Number of segments: ").append(path.size() - 1).append("\n\n");
+            // El camino corre sobre el grafo simplificado; los segmentos cuentan los nodos colapsados
+            List<Integer> fullPath = GraphSimplifier.expandPath(mapPanel.graphData, path);
+            routeInfo.append("Number of segments: ").append(fullPath.size() - 1).append("\n");
+            if (result.stats != null) {
+                routeInfo.append("Query stats: ").append(result.stats).append("\n");
+            }
+            if (result.searchSpace != null) {
+                routeInfo.append("Search space: ").append(result.searchSpace).append("\n");
+            }
+            routeInfo.append("\n");
 
             if (path.size() > 1) {
                 routeInfo.append("Route details:\n");
@@ -357,8 +435,8 @@ public class Test {
                         i + 1, from, to, streetName));
                 }
 
-                routeInfo.append("\nOrigin: ").append(mapPanel.idToCoordData.get(mapPanel.selectedOrigin)).append("\n");
-                routeInfo.append("Destination: ").append(mapPanel.idToCoordData.get(mapPanel.selectedDestination));
+                routeInfo.append("\nOrigin: ").append(mapPanel.idToCoordData.get(result.origin)).append("\n");
+                routeInfo.append("Destination: ").append(mapPanel.idToCoordData.get(result.destination));
             }
 
             updateInfoArea(routeInfo.toString());
@@ -369,7 +447,75 @@ public class Test {
 
 
     
+    private void calculateIsochrone() {
+        if (mapPanel.selectedOrigin == null) {
+            updateInfoArea("Please select an origin node to compute the isochrone.");
+            return;
+        }
+
+        VehicleProfile selectedProfile = (VehicleProfile) profileSelector.getSelectedItem();
+        int minutes = (Integer) isochroneMinutesSpinner.getValue();
+
+        isochroneQuery = routingEngine.submitIsochrone(
+            mapPanel.selectedOrigin, minutes * 60.0, IsochroneSearch.BudgetType.SECONDS, selectedProfile,
+            isochrone -> {
+                updateProgress();
+                mapPanel.currentIsochrone = isochrone;
+                updateInfoArea("Isochrone from Node " + isochrone.origin + " (" + minutes + " min, " +
+                    selectedProfile + ")\n" +
+                    "Time taken: " + isochroneQuery.getElapsedMs() + " ms\n" +
+                    "Budget: " + isochrone.budgetMeters + " meters\n" +
+                    "Reached nodes: " + isochrone.reachedNodes.size() + "\n" +
+                    "Boundary edges: " + isochrone.boundaryEdges.size() + "\n" +
+                    "Polygon vertices: " + isochrone.polygon.size());
+                mapPanel.repaint();
+            },
+            error -> {
+                updateProgress();
+                updateInfoArea("Error computing isochrone: " + error.getMessage());
+            });
+        updateProgress();
+    }
+
+    // Sin registro las búsquedas no pagan nada; al apagarlo se quita el overlay
+    private void onSearchSpaceToggled() {
+        boolean record = searchSpaceCheckBox.isSelected();
+        routingEngine.setRecordSearchSpace(record);
+        if (!record) {
+            mapPanel.currentSearchSpace = null;
+            mapPanel.repaint();
+        } else {
+            updateInfoArea("Search space recording on: the next route draws settled nodes (strong) and " +
+                "relaxed nodes (faint), forward in purple and backward in orange.");
+        }
+    }
+
+    // Un clic nuevo invalida la consulta en curso; con solo el origen elegido se adelanta su búsqueda
+    private void onSelectionChanged() {
+        cancelQuery();
+        if (mapPanel.selectedOrigin != null && mapPanel.selectedDestination == null) {
+            routingEngine.prepareOrigin(mapPanel.selectedOrigin);
+        }
+    }
+
+    // Cancela la consulta en curso (ruta o isócrona); su resultado ya no se muestra
+    private void cancelQuery() {
+        if (routingEngine != null) {
+            routingEngine.cancelQuery();
+            updateProgress();
+        }
+    }
+
+    private void updateProgress() {
+        boolean busy = routingEngine.isBusy();
+        if (progressBar.isVisible() != busy) {
+            progressBar.setVisible(busy);
+            progressBar.getParent().revalidate();
+        }
+    }
+
     private void clearSelection() {
+        cancelQuery();
         selectedOrigin = null;
         selectedDestination = null;
         currentRoute.clear();
@@ -380,11 +526,30 @@ public class Test {
         if (mapPanel != null) {
             mapPanel.selectedOrigin = null;
             mapPanel.selectedDestination = null;
+            mapPanel.currentIsochrone = null;
+            mapPanel.currentSearchSpace = null;
             if (mapPanel.currentRoute != null) mapPanel.currentRoute.clear();
+            mapPanel.currentVirtualRoute = null;
+            mapPanel.originPoint = null;
+            mapPanel.destinationPoint = null;
             mapPanel.repaint();
         }
     }
     
+    private void exportRenderStats() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new java.io.File("render-stats.csv"));
+        if (chooser.showSaveDialog(mainFrame) != JFileChooser.APPROVE_OPTION) return;
+
+        try {
+            mapPanel.renderStats.exportCsv(chooser.getSelectedFile().toPath());
+            updateInfoArea("Render stats for the last " + Math.min(mapPanel.renderStats.getFrameCount(), RenderStats.WINDOW) +
+                " frames written to " + chooser.getSelectedFile());
+        } catch (IOException e) {
+            updateInfoArea("Error writing render stats: " + e.getMessage());
+        }
+    }
+
     private void toggleConsole() {
         // This could be extended to show/hide a console window for debug output
         JOptionPane.showMessageDialog(mainFrame, 
@@ -409,16 +574,92 @@ public class Test {
         streetNameMapData = streetNameMap;
     }
     
+    /**
+     * Exports the metrics registry when asked to: -Dmetrics.file=PATH rewrites
+     * a snapshot every -Dmetrics.period seconds (default 10), and
+     * -Dmetrics.port=PORT serves it at http://localhost:PORT/metrics.
+     */
+    private static void startMetricsReporting() throws IOException {
+        String file = System.getProperty("metrics.file");
+        if (file != null) {
+            long period = Long.getLong("metrics.period", 10);
+            MetricsRegistry.global().startFileReporter(Paths.get(file), period);
+            System.out.println("Writing metrics to " + file + " every " + period + " s");
+        }
+        Integer port = Integer.getInteger("metrics.port");
+        if (port != null) {
+            MetricsRegistry.global().startHttpEndpoint(port);
+            System.out.println("Serving metrics at http://localhost:" + port + "/metrics");
+        }
+    }
+
+    /**
+     * Replays a seeded workload through every algorithm and profile until
+     * latencies stabilize (-Dwarmup=true). Tuned with -Dwarmup.pairs (pairs
+     * per length bucket, default 10), -Dwarmup.maxSeconds (default 30) and
+     * -Dwarmup.tolerance (relative change of a round's total query time
+     * between consecutive rounds, default 0.1).
+     */
+    private static void warmUp(Node[] graph, Map<Integer, String> idToCoord, ContractionHierarchies ch) {
+        WarmUp.Options options = new WarmUp.Options();
+        options.pairsPerBucket = Integer.getInteger("warmup.pairs", options.pairsPerBucket);
+        options.maxMillis = Long.getLong("warmup.maxSeconds", options.maxMillis / 1000) * 1000;
+        options.tolerance = Double.parseDouble(System.getProperty("warmup.tolerance", String.valueOf(options.tolerance)));
+        System.out.println("Warming up the routing engine...");
+        System.out.println(WarmUp.run(graph, idToCoord, ch, options));
+    }
+
+    /**
+     * Opens the query log when asked to: -Dquerylog.file=PATH records every
+     * route query, rotating after -Dquerylog.maxMb megabytes (default 64) and
+     * keeping -Dquerylog.files old files (default 5). Replay it with
+     * benchmark.QueryReplay.
+     */
+    private static QueryLog openQueryLog(int nodeCount) throws IOException {
+        String file = System.getProperty("querylog.file");
+        if (file == null) return null;
+        long maxBytes = Long.getLong("querylog.maxMb", 64) * 1024 * 1024;
+        int maxFiles = Integer.getInteger("querylog.files", 5);
+        QueryLog log = new QueryLog(Paths.get(file), nodeCount, maxBytes, maxFiles);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.err.println("Could not close query log: " + e.getMessage());
+            }
+        }));
+        System.out.println("Logging route queries to " + file);
+        return log;
+    }
+
+    // Coordinates parsed once by the loader, the spatial index and street geometry shared with the GUI
+    public static void setSpatialData(double[] nodeLon, double[] nodeLat, NodeSpatialIndex spatialIndex,
+                                      PolylineStore geometry) {
+        geometryData = geometry;
+        nodeLonData = nodeLon;
+        nodeLatData = nodeLat;
+        spatialIndexData = spatialIndex;
+    }
+    
     private void onProfileChanged() {
         VehicleProfile selectedProfile = (VehicleProfile) profileSelector.getSelectedItem();
         if (selectedProfile != null && chInstance != null) {
             System.out.println("Profile changing to: " + selectedProfile);
-            chInstance.setProfile(selectedProfile);
+            // La customización corre en el hilo de consultas; las siguientes esperan a que termine
+            routingEngine.setProfile(selectedProfile, this::updateProgress);
+            updateProgress();
+            // El árbol del origen quedó con los pesos del perfil anterior
+            if (mapPanel != null && mapPanel.selectedOrigin != null) {
+                routingEngine.prepareOrigin(mapPanel.selectedOrigin);
+            }
             
             // Update map panel profile
             if (mapPanel != null) {
                 mapPanel.currentProfile = selectedProfile;
                 mapPanel.currentRoute.clear();
+                mapPanel.currentVirtualRoute = null;
+                mapPanel.currentIsochrone = null;
+                mapPanel.currentSearchSpace = null;
                 mapPanel.repaint();
             }
             
@@ -434,9 +675,12 @@ public class Test {
             System.out.println("Algorithm changing to: " + selectedAlgorithm);
             
             // Update map panel algorithm
+            cancelQuery();
             if (mapPanel != null) {
                 mapPanel.currentAlgorithm = selectedAlgorithm;
                 mapPanel.currentRoute.clear();
+                mapPanel.currentVirtualRoute = null;
+                mapPanel.currentSearchSpace = null;
                 mapPanel.repaint();
             }
             
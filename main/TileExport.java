@@ -0,0 +1,66 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import models.*;
+import graph.*;
+import loader.*;
+import gui.*;
+
+/**
+ * Exports the street map as a static PNG tile pyramid without opening the GUI.
+ *
+ * Usage: java -Djava.awt.headless=true main.TileExport [csv] [outputDir] [maxLevel] [PROFILE...]
+ * Defaults: main/rutas.csv, tiles, the level reaching full street detail and all profiles.
+ */
+public class TileExport {
+    // Nivel máximo por defecto: el primero que llega a la red completa con algo de margen
+    private static final double DEFAULT_MAX_SCALE = StreetLevelOfDetail.FULL_DETAIL_SCALE * 8;
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+
+        String csv = args.length > 0 ? args[0] : "main/rutas.csv";
+        Path outputDir = Paths.get(args.length > 1 ? args[1] : "tiles");
+        List<VehicleProfile> profiles = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            profiles.add(VehicleProfile.valueOf(args[i].toUpperCase()));
+        }
+        if (profiles.isEmpty()) {
+            profiles.addAll(Arrays.asList(VehicleProfile.values()));
+        }
+
+        MapDataResult result = CSVRouteLoader.loadFromCSV(csv);
+        // Mismo grafo que la GUI: simplificado y con el R-tree de aristas
+        GraphSimplifier.simplify(result.graph, result.geometry);
+        EdgeRTree edgeRTree = EdgeRTree.build(result.graph, result.nodeLon, result.nodeLat, result.geometry);
+
+        MapPanel panel = new MapPanel();
+        panel.graphData = result.graph;
+        panel.idToCoordData = result.idToCoord;
+        panel.nodeLon = result.nodeLon;
+        panel.nodeLat = result.nodeLat;
+        panel.spatialIndex = result.spatialIndex;
+        panel.geometry = result.geometry;
+        panel.streetIndex = new StreetRenderIndex(result.graph, edgeRTree);
+        panel.levelOfDetail = StreetLevelOfDetail.build(panel.streetIndex, result.geometry, result.spatialIndex);
+        panel.calculateMapBounds();
+
+        int workers = Runtime.getRuntime().availableProcessors();
+        TileExporter exporter = new TileExporter(panel, workers);
+        int maxLevel = args.length > 2 ? Integer.parseInt(args[2]) : exporter.levelFor(DEFAULT_MAX_SCALE);
+
+        System.out.println("Exporting levels 0-" + maxLevel + " for " + profiles + " to " + outputDir +
+                           " with " + workers + " workers...");
+        TileExporter.Result export = exporter.export(outputDir, maxLevel, profiles);
+        System.out.println("Tile export complete in " + (export.elapsedMs / 1000.0) + " seconds");
+        System.out.println("Tiles with streets: " + export.rendered + " (written " + export.written +
+                           ", unchanged " + export.unchanged + "), empty skipped: " + export.empty +
+                           ", stale removed: " + export.removed);
+    }
+}
@@ -0,0 +1,114 @@
+package metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear latency histogram in nanoseconds. Each power of two is split
+ * into SUB_BUCKETS linear buckets, so any recorded value is known within
+ * about 3% while the whole range up to ~18 minutes takes ~1200 buckets.
+ *
+ * Recording is lock-free and allocation-free: every thread writes to its
+ * own recorder (registered on first use) with plain ordered stores, since
+ * it is the only writer. Snapshots merge all recorders; they may miss the
+ * values being recorded at that instant but never block the writers.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    // Después de los buckets: cantidad, suma y máximo
+    private static final int COUNT = BUCKETS;
+    private static final int SUM = BUCKETS + 1;
+    private static final int MAX = BUCKETS + 2;
+
+    private final List<AtomicLongArray> recorders = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<AtomicLongArray> recorder = ThreadLocal.withInitial(() -> {
+        AtomicLongArray r = new AtomicLongArray(BUCKETS + 3);
+        recorders.add(r);
+        return r;
+    });
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        AtomicLongArray r = recorder.get();
+        int bucket = bucketOf(nanos);
+        // Un solo escritor por recorder: no hace falta CAS
+        r.lazySet(bucket, r.get(bucket) + 1);
+        r.lazySet(COUNT, r.get(COUNT) + 1);
+        r.lazySet(SUM, r.get(SUM) + nanos);
+        if (nanos > r.get(MAX)) r.lazySet(MAX, nanos);
+    }
+
+    /** Records the time elapsed since a System.nanoTime() reading. */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS - 1 + SUB_BUCKET_BITS;
+        int sub = bucket % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    public Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot();
+        for (AtomicLongArray r : recorders) {
+            for (int i = 0; i < BUCKETS; i++) snapshot.counts[i] += r.get(i);
+            snapshot.count += r.get(COUNT);
+            snapshot.sum += r.get(SUM);
+            snapshot.max = Math.max(snapshot.max, r.get(MAX));
+        }
+        return snapshot;
+    }
+
+    /** Merged, immutable view of the histogram at one point in time. */
+    public static class Snapshot {
+        private final long[] counts = new long[BUCKETS];
+        private long count;
+        private long sum;
+        private long max;
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMs() {
+            return count == 0 ? 0 : sum / 1e6 / count;
+        }
+
+        public double getMaxMs() {
+            return max / 1e6;
+        }
+
+        /**
+         * @param quantile between 0 and 1, e.g. 0.99
+         * @return upper bound of the bucket holding the quantile, in ms
+         */
+        public double percentileMs(double quantile) {
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= Math.max(1, rank)) {
+                    long upper = i + 1 < BUCKETS ? lowerBound(i + 1) - 1 : max;
+                    return Math.min(upper, max) / 1e6;
+                }
+            }
+            return getMaxMs();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Named counters (striped LongAdder) and latency histograms shared by the
+ * loader, the contraction and the routing engine. Lookups after the first
+ * are a lock-free map read and updates never block, so hot paths can record
+ * every event. Snapshots are plain text, one metric per line, and can be
+ * written periodically to a file or served over HTTP on localhost.
+ */
+public class MetricsRegistry {
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /** Registry used by the engine code. */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    public LongAdder counter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter : counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        return histogram != null ? histogram : histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Text snapshot of every metric, sorted by name:
+     *   counter NAME VALUE
+     *   histogram NAME count=N mean_ms=.. p50_ms=.. p99_ms=.. p999_ms=.. max_ms=..
+     */
+    public String snapshot() {
+        StringBuilder out = new StringBuilder();
+        out.append("# metrics ").append(Instant.now()).append('\n');
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+            out.append("counter ").append(entry.getKey()).append(' ').append(entry.getValue().sum()).append('\n');
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram.Snapshot s = entry.getValue().snapshot();
+            out.append(String.format(Locale.ROOT,
+                "histogram %s count=%d mean_ms=%.3f p50_ms=%.3f p99_ms=%.3f p999_ms=%.3f max_ms=%.3f%n",
+                entry.getKey(), s.getCount(), s.getMeanMs(), s.percentileMs(0.5), s.percentileMs(0.99),
+                s.percentileMs(0.999), s.getMaxMs()));
+        }
+        return out.toString();
+    }
+
+    // Se escribe a un temporal y se reemplaza: quien lea el archivo nunca ve un snapshot a medias
+    public void writeSnapshot(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, snapshot().getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Rewrites the snapshot file every periodSeconds on a daemon thread.
+     * Cancel the returned future to stop it.
+     */
+    public ScheduledFuture<?> startFileReporter(Path file, long periodSeconds) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        return scheduler.scheduleAtFixedRate(() -> {
+            try {
+                writeSnapshot(file);
+            } catch (IOException e) {
+                System.err.println("Could not write metrics to " + file + ": " + e.getMessage());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Serves the snapshot at http://localhost:port/metrics. Only bound to
+     * the loopback interface: it is an admin endpoint, not a public one.
+     */
+    public HttpServer startHttpEndpoint(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = snapshot().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        return server;
+    }
+}
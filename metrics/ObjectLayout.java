@@ -0,0 +1,223 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * Estimates heap sizes from the HotSpot object layout: object header, field
+ * sizes, reference width and alignment, read from the running VM's options
+ * (compressed oops and class pointers, ObjectAlignmentInBytes).
+ *
+ * deepSize() follows references with an explicit stack. Fields of the
+ * application classes are read by reflection. JDK classes are closed to
+ * reflection since Java 9, so strings, boxed values, HashMap/TreeMap and
+ * other collections are sized from their public state and the layout of
+ * their internal classes (HashMap table capacity, ArrayList growth).
+ * Objects already in the visited set are not counted again, so a set
+ * shared across calls charges each object to the first structure that
+ * reaches it.
+ */
+public class ObjectLayout {
+    private final int referenceSize;
+    private final int headerSize;
+    private final int arrayHeaderSize;
+    private final int alignment;
+    private final Map<Class<?>, Long> shallowSizes = new HashMap<>();
+    private final Map<Class<?>, Field[]> referenceFields = new HashMap<>();
+
+    public ObjectLayout(int referenceSize, int headerSize, int arrayHeaderSize, int alignment) {
+        this.referenceSize = referenceSize;
+        this.headerSize = headerSize;
+        this.arrayHeaderSize = arrayHeaderSize;
+        this.alignment = alignment;
+    }
+
+    /** Layout of the running VM; HotSpot 64-bit defaults if it cannot be read. */
+    public static ObjectLayout forCurrentVm() {
+        boolean compressedOops = vmFlag("UseCompressedOops", "true").equals("true");
+        boolean compressedClasses = vmFlag("UseCompressedClassPointers", "true").equals("true");
+        int alignment = Integer.parseInt(vmFlag("ObjectAlignmentInBytes", "8"));
+        int header = compressedClasses ? 12 : 16;
+        // Cabecera de arreglo: mark word + clase + largo, alineado a la referencia
+        int arrayHeader = compressedClasses ? 16 : 20;
+        if (!compressedOops && arrayHeader % 8 != 0) arrayHeader += 4;
+        return new ObjectLayout(compressedOops ? 4 : 8, header, arrayHeader, alignment);
+    }
+
+    private static String vmFlag(String name, String fallback) {
+        try {
+            com.sun.management.HotSpotDiagnosticMXBean bean =
+                ManagementFactory.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class);
+            return bean != null ? bean.getVMOption(name).getValue() : fallback;
+        } catch (RuntimeException | LinkageError e) {
+            return fallback;
+        }
+    }
+
+    public int getReferenceSize() {
+        return referenceSize;
+    }
+
+    public long align(long bytes) {
+        return (bytes + alignment - 1) / alignment * alignment;
+    }
+
+    /** Size of an instance without what it references. */
+    public long shallowSize(Class<?> type) {
+        Long cached = shallowSizes.get(type);
+        if (cached != null) return cached;
+        long bytes = headerSize;
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) bytes += fieldSize(field.getType());
+            }
+        }
+        long size = align(bytes);
+        shallowSizes.put(type, size);
+        return size;
+    }
+
+    public long arraySize(Class<?> componentType, long length) {
+        return align(arrayHeaderSize + length * fieldSize(componentType));
+    }
+
+    private int fieldSize(Class<?> type) {
+        if (type == long.class || type == double.class) return 8;
+        if (type == int.class || type == float.class) return 4;
+        if (type == short.class || type == char.class) return 2;
+        if (type == byte.class || type == boolean.class) return 1;
+        return referenceSize;
+    }
+
+    /** Size of root and everything reachable from it not yet in visited. */
+    public long deepSize(Object root, Set<Object> visited) {
+        long total = 0;
+        ArrayDeque<Object> stack = new ArrayDeque<>();
+        if (root != null) stack.push(root);
+        while (!stack.isEmpty()) {
+            Object object = stack.pop();
+            if (!visited.add(object)) continue;
+            total += sizeAndChildren(object, stack);
+        }
+        return total;
+    }
+
+    public static Set<Object> newVisitedSet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    private long sizeAndChildren(Object object, ArrayDeque<Object> stack) {
+        Class<?> type = object.getClass();
+        if (type.isArray()) {
+            int length = Array.getLength(object);
+            Class<?> component = type.getComponentType();
+            if (!component.isPrimitive()) {
+                for (Object element : (Object[]) object) {
+                    if (element != null) stack.push(element);
+                }
+            }
+            return arraySize(component, length);
+        }
+        if (object instanceof String) {
+            String s = (String) object;
+            // Compact strings: un byte por carácter si todos son Latin-1
+            boolean latin1 = s.chars().allMatch(c -> c < 256);
+            return shallowSize(String.class) + arraySize(byte.class, latin1 ? s.length() : 2L * s.length());
+        }
+        if (object instanceof Map && isJdk(type)) return mapSize((Map<?, ?>) object, stack);
+        if (object instanceof Collection && isJdk(type)) return collectionSize((Collection<?>) object, stack);
+        if (isJdk(type)) return shallowSize(type);
+
+        for (Field field : referenceFields(type)) {
+            try {
+                Object value = field.get(object);
+                if (value != null) stack.push(value);
+            } catch (IllegalAccessException e) {
+                // Campo inaccesible: se cuenta solo la referencia
+            }
+        }
+        return shallowSize(type);
+    }
+
+    private Field[] referenceFields(Class<?> type) {
+        Field[] cached = referenceFields.get(type);
+        if (cached != null) return cached;
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c = type; c != null && !isJdk(c); c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) continue;
+                if (field.trySetAccessible()) fields.add(field);
+            }
+        }
+        Field[] result = fields.toArray(new Field[0]);
+        referenceFields.put(type, result);
+        return result;
+    }
+
+    private static boolean isJdk(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.") || name.startsWith("sun.");
+    }
+
+    private long mapSize(Map<?, ?> map, ArrayDeque<Object> stack) {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (entry.getKey() != null) stack.push(entry.getKey());
+            if (entry.getValue() != null) stack.push(entry.getValue());
+        }
+        long bytes = shallowSize(map.getClass());
+        if (map instanceof TreeMap) {
+            return bytes + map.size() * shallowSize(internalClass("java.util.TreeMap$Entry"));
+        }
+        String node = map instanceof LinkedHashMap ? "java.util.LinkedHashMap$Entry"
+                    : map instanceof java.util.concurrent.ConcurrentHashMap ? "java.util.concurrent.ConcurrentHashMap$Node"
+                    : "java.util.HashMap$Node";
+        return bytes + arraySize(Object.class, hashCapacity(map.size())) + map.size() * shallowSize(internalClass(node));
+    }
+
+    private long collectionSize(Collection<?> collection, ArrayDeque<Object> stack) {
+        for (Object element : collection) {
+            if (element != null) stack.push(element);
+        }
+        long bytes = shallowSize(collection.getClass());
+        int size = collection.size();
+        if (collection instanceof ArrayList || collection instanceof Vector || collection instanceof ArrayDeque) {
+            return bytes + arraySize(Object.class, listCapacity(size));
+        }
+        if (collection instanceof HashSet) {
+            // HashSet envuelve un HashMap con un valor compartido
+            return bytes + shallowSize(HashMap.class) + arraySize(Object.class, hashCapacity(size))
+                 + size * shallowSize(internalClass("java.util.HashMap$Node"));
+        }
+        if (collection instanceof LinkedList) {
+            return bytes + size * shallowSize(internalClass("java.util.LinkedList$Node"));
+        }
+        return bytes + arraySize(Object.class, size);
+    }
+
+    // Tabla de un HashMap llenado con put: potencia de dos con factor de carga 0.75
+    public static int hashCapacity(int size) {
+        if (size == 0) return 0;
+        int capacity = 16;
+        while (size > capacity * 3 / 4) capacity <<= 1;
+        return capacity;
+    }
+
+    // Capacidad de un ArrayList llenado con add: 10 y después crece 1.5x
+    public static int listCapacity(int size) {
+        if (size == 0) return 0;
+        int capacity = 10;
+        while (capacity < size) capacity += capacity >> 1;
+        return capacity;
+    }
+
+    private Class<?> internalClass(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            return Object.class;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package metrics;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import models.Algorithm;
+import models.VehicleProfile;
+
+/**
+ * Append-only binary log of answered route queries, for replaying real
+ * traffic later (see benchmark.QueryReplay). Each record takes 23 bytes:
+ * timestamp (epoch ms), origin, destination, profile, algorithm, flags and
+ * latency in microseconds. When the file reaches maxBytes it is rotated to
+ * FILE.1, FILE.1 to FILE.2 and so on, keeping maxFiles old files.
+ *
+ * Every file starts with a header holding the node count of the graph: the
+ * ids are only meaningful for the same CSV, and the reader checks it. Files
+ * left by another graph are rotated like any other; the reader stops at them.
+ * Records are buffered and a background thread flushes them at most a
+ * second after being written, also when no more queries arrive.
+ */
+public class QueryLog implements Closeable {
+    private static final int MAGIC = 0x52514C47; // "RQLG"
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 10;
+    public static final int RECORD_BYTES = 23;
+    private static final long FLUSH_INTERVAL_MS = 1000;
+
+    public static final int FOUND = 1;
+    public static final int FROM_ORIGIN_TREE = 2;
+    public static final int CANCELLED = 4;
+
+    private static final Algorithm[] ALGORITHMS = Algorithm.values();
+    private static final VehicleProfile[] PROFILES = VehicleProfile.values();
+
+    private final Path file;
+    private final int nodeCount;
+    private final long maxBytes;
+    private final int maxFiles;
+    private final ScheduledExecutorService flusher;
+    private DataOutputStream out;
+    private long size;
+    private boolean dirty;
+
+    public static class Record {
+        public final long timestampMs;
+        public final int origin;
+        public final int destination;
+        public final VehicleProfile profile;
+        public final Algorithm algorithm;
+        public final int flags;
+        public final int latencyMicros;
+
+        public Record(long timestampMs, int origin, int destination, VehicleProfile profile, Algorithm algorithm,
+                      int flags, int latencyMicros) {
+            this.timestampMs = timestampMs;
+            this.origin = origin;
+            this.destination = destination;
+            this.profile = profile;
+            this.algorithm = algorithm;
+            this.flags = flags;
+            this.latencyMicros = latencyMicros;
+        }
+    }
+
+    public QueryLog(Path file, int nodeCount, long maxBytes, int maxFiles) throws IOException {
+        this.file = file;
+        this.nodeCount = nodeCount;
+        this.maxBytes = Math.max(HEADER_BYTES + RECORD_BYTES, maxBytes);
+        this.maxFiles = Math.max(0, maxFiles);
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        open();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "query-log-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Continúa un archivo existente del mismo grafo; si no, rota y empieza uno nuevo
+    private void open() throws IOException {
+        if (Files.exists(file) && Files.size(file) >= HEADER_BYTES && loggedNodeCount(file) == nodeCount) {
+            // Un registro a medias (corte del proceso) se descarta antes de seguir escribiendo
+            size = HEADER_BYTES + (Files.size(file) - HEADER_BYTES) / RECORD_BYTES * RECORD_BYTES;
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.setLength(size);
+            }
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile(), true), 1 << 16));
+            return;
+        }
+        if (Files.exists(file)) rotate();
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile()), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(nodeCount);
+        size = HEADER_BYTES;
+    }
+
+    private void rotate() throws IOException {
+        if (maxFiles == 0) {
+            Files.delete(file);
+            return;
+        }
+        Files.deleteIfExists(rotated(file, maxFiles));
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path older = rotated(file, i);
+            if (Files.exists(older)) Files.move(older, rotated(file, i + 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(file, rotated(file, 1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static Path rotated(Path file, int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    public synchronized void append(long timestampMs, int origin, int destination, VehicleProfile profile,
+                                    Algorithm algorithm, int flags, long latencyNanos) {
+        if (out == null) return;
+        try {
+            if (size + RECORD_BYTES > maxBytes) {
+                out.close();
+                rotate();
+                open();
+            }
+            out.writeLong(timestampMs);
+            out.writeInt(origin);
+            out.writeInt(destination);
+            out.writeByte(profile.ordinal());
+            out.writeByte(algorithm.ordinal());
+            out.writeByte(flags);
+            out.writeInt((int) Math.min(Integer.MAX_VALUE, latencyNanos / 1000));
+            size += RECORD_BYTES;
+            dirty = true;
+        } catch (IOException e) {
+            disable(e);
+        }
+    }
+
+    // Llamado por el hilo de flush; sin registros nuevos no toca el archivo
+    private synchronized void flush() {
+        if (out == null || !dirty) return;
+        try {
+            out.flush();
+            dirty = false;
+        } catch (IOException e) {
+            disable(e);
+        }
+    }
+
+    // Un log roto no debe tirar consultas: se avisa una vez y se deja de escribir
+    private void disable(IOException e) {
+        System.err.println("Query log disabled, could not write " + file + ": " + e.getMessage());
+        out = null;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flusher.shutdownNow();
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    private static int loggedNodeCount(Path file) {
+        try {
+            return readNodeCount(file);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static int readNodeCount(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a query log: " + file);
+            short version = in.readShort();
+            if (version != VERSION) throw new IOException("Unsupported query log version " + version + ": " + file);
+            return in.readInt();
+        }
+    }
+
+    /**
+     * Reads a log and its rotated files, oldest first. Going back from the
+     * newest file, reading stops at the first one recorded on another graph:
+     * it and anything older predate the graph change. A record cut short by
+     * a crash at the end of a file is ignored.
+     * @param nodeCount node count of the graph the records will run on, or
+     *        -1 to accept the graph of the newest file
+     * @throws IOException if not even the newest file matches nodeCount
+     */
+    public static List<Record> readAll(Path file, int nodeCount) throws IOException {
+        List<Path> candidates = new ArrayList<>();
+        if (Files.exists(file)) candidates.add(file);
+        for (int i = 1; Files.exists(rotated(file, i)); i++) candidates.add(rotated(file, i));
+        if (candidates.isEmpty()) throw new FileNotFoundException(file.toString());
+
+        int expected = nodeCount != -1 ? nodeCount : readNodeCount(candidates.get(0));
+        LinkedList<Path> files = new LinkedList<>();
+        for (Path part : candidates) {
+            // Solo el más nuevo tiene que ser legible; uno viejo dañado corta la lectura como otro grafo
+            int logged = files.isEmpty() ? readNodeCount(part) : loggedNodeCount(part);
+            if (logged != expected) {
+                if (files.isEmpty()) {
+                    throw new IOException(part + " was recorded on a graph of " + logged + " nodes, not " + expected);
+                }
+                System.err.println("Skipping " + part + " and older files: not recorded on this graph");
+                break;
+            }
+            files.addFirst(part);
+        }
+
+        List<Record> records = new ArrayList<>();
+        for (Path part : files) {
+            long count = (Files.size(part) - HEADER_BYTES) / RECORD_BYTES;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(part), 1 << 16))) {
+                in.skipBytes(HEADER_BYTES);
+                for (long i = 0; i < count; i++) {
+                    long timestamp = in.readLong();
+                    int origin = in.readInt();
+                    int destination = in.readInt();
+                    VehicleProfile profile = PROFILES[in.readUnsignedByte()];
+                    Algorithm algorithm = ALGORITHMS[in.readUnsignedByte()];
+                    int flags = in.readUnsignedByte();
+                    int latency = in.readInt();
+                    records.add(new Record(timestamp, origin, destination, profile, algorithm, flags, latency));
+                }
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,115 @@
+package metrics;
+
+import jdk.jfr.*;
+
+/**
+ * Java Flight Recorder events of the routing engine, so recordings show
+ * which load stage, contraction batch, customization or query was running
+ * when CPU samples or GC pauses happened. The event duration is the time
+ * spent. When no recording is active, begin/commit are close to free and the
+ * fields are only filled once shouldCommit() says the event will be kept.
+ *
+ * Record with: java -XX:StartFlightRecording=filename=routing.jfr ... and
+ * inspect with: jfr print --categories Routing routing.jfr
+ */
+public final class RoutingEvents {
+    private RoutingEvents() {
+    }
+
+    @Name("routing.CsvLoadStage")
+    @Label("CSV Load Stage")
+    @Category({"Routing", "Load"})
+    @Description("One stage of CSVRouteLoader.loadFromCSV")
+    public static class CsvLoadStage extends Event {
+        @Label("File")
+        public String file;
+
+        @Label("Stage")
+        public String stage;
+
+        @Label("Items")
+        @Description("Rows, edges or nodes handled by the stage")
+        public long items;
+
+        // Guardados aparte hasta saber si el evento se registra; JFR no persiste campos transient
+        private transient String pendingFile;
+        private transient String pendingStage;
+
+        public static CsvLoadStage start(String file, String stage) {
+            CsvLoadStage event = new CsvLoadStage();
+            event.pendingFile = file;
+            event.pendingStage = stage;
+            event.begin();
+            return event;
+        }
+
+        public void end(long items) {
+            if (shouldCommit()) {
+                this.file = pendingFile;
+                this.stage = pendingStage;
+                this.items = items;
+                commit();
+            }
+        }
+    }
+
+    @Name("routing.ContractionBatch")
+    @Label("Contraction Batch")
+    @Category({"Routing", "Preprocessing"})
+    @Description("A batch of consecutive node contractions in ContractionHierarchies.preprocess")
+    public static class ContractionBatch extends Event {
+        @Label("First Level")
+        public int firstLevel;
+
+        @Label("Nodes Contracted")
+        public int nodes;
+
+        @Label("Shortcuts Added")
+        public int shortcuts;
+
+        @Label("Witness Searches")
+        public long witnessSearches;
+    }
+
+    @Name("routing.Customization")
+    @Label("Profile Customization")
+    @Category({"Routing", "Preprocessing"})
+    @Description("Recomputation of the custom edge weights for a vehicle profile")
+    public static class Customization extends Event {
+        @Label("Profile")
+        public String profile;
+
+        @Label("Edges")
+        public int edges;
+    }
+
+    @Name("routing.RouteQuery")
+    @Label("Route Query")
+    @Category({"Routing", "Query"})
+    @Description("One route query answered by RoutingEngine")
+    public static class RouteQuery extends Event {
+        @Label("Algorithm")
+        public String algorithm;
+
+        @Label("Profile")
+        public String profile;
+
+        @Label("Origin")
+        public int origin;
+
+        @Label("Destination")
+        public int destination;
+
+        @Label("Settled Nodes")
+        public long settledNodes;
+
+        @Label("Found")
+        public boolean found;
+
+        @Label("From Origin Tree")
+        public boolean fromOriginTree;
+
+        @Label("Cancelled")
+        public boolean cancelled;
+    }
+}
@@ -15,6 +15,16 @@ public class Edge {
     private String tipoC;
     private String redJerarq;
     private String bicisenda;
+    
+    // True for edges added by ContractionHierarchies (not real street segments)
+    private boolean shortcut;
+    
+    // Polyline in the PolylineStore (-1 if none); reversed for the backward edge of a two-way street
+    private int geometryId = -1;
+    private boolean geometryReversed;
+    
+    // Original pass-through nodes collapsed into this edge by GraphSimplifier (null if none)
+    private int[] viaNodes;
         
     public Edge(int from, int to, long weight) {
         this.from = from;
@@ -102,6 +112,45 @@ public class Edge {
         this.bicisenda = bicisenda != null ? bicisenda : "";
     }
     
+    public boolean isShortcut() {
+        return shortcut;
+    }
+    
+    public void setShortcut(boolean shortcut) {
+        this.shortcut = shortcut;
+    }
+    
+    public int getGeometryId() {
+        return geometryId;
+    }
+    
+    public boolean isGeometryReversed() {
+        return geometryReversed;
+    }
+    
+    public void setGeometry(int geometryId, boolean reversed) {
+        this.geometryId = geometryId;
+        this.geometryReversed = reversed;
+    }
+    
+    public int[] getViaNodes() {
+        return viaNodes;
+    }
+    
+    public void setViaNodes(int[] viaNodes) {
+        this.viaNodes = viaNodes;
+    }
+    
+    /**
+     * True if both edges carry the same CSV attributes, so every vehicle
+     * profile weighs them with the same factor.
+     */
+    public boolean hasSameAttributes(Edge other) {
+        return streetName.equals(other.streetName) && sentido.equals(other.sentido)
+            && tipoC.equals(other.tipoC) && redJerarq.equals(other.redJerarq)
+            && bicisenda.equals(other.bicisenda);
+    }
+    
     public boolean isProhibited() {
         return customWeight == Double.MAX_VALUE;
     }
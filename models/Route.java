@@ -13,6 +13,9 @@ public class Route {
     public String redJerarq;
     public String bicisenda;
     
+    // Polyline id of the full LINESTRING geometry (-1 if not loaded)
+    public int geometryId = -1;
+    
     public Route(int origin, int destination, long cost, String street, boolean isBidirectional) {
         this.origin = origin;
         this.destination = destination;
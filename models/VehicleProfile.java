@@ -1,14 +1,23 @@
 package models;
 
 public enum VehicleProfile {
-    VEHICULOS("Vehiculos (Auto/Transporte publico)"),
-    BICICLETA("Bicicleta (Evita autopistas y trafico)"),
-    PEATONAL("Peatonal (Solo rutas a pie)");
+    VEHICULOS("Vehiculos (Auto/Transporte publico)", 8.33),
+    BICICLETA("Bicicleta (Evita autopistas y trafico)", 4.16),
+    PEATONAL("Peatonal (Solo rutas a pie)", 1.39);
     
     private final String displayName;
+    private final double speedMps;
     
-    VehicleProfile(String displayName) {
+    VehicleProfile(String displayName, double speedMps) {
         this.displayName = displayName;
+        this.speedMps = speedMps;
+    }
+    
+    /**
+     * Average travel speed of the profile in metres per second
+     */
+    public double getSpeedMps() {
+        return speedMps;
     }
     
     @Override